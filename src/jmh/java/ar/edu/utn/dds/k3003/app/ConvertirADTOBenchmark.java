@@ -0,0 +1,38 @@
+package ar.edu.utn.dds.k3003.app;
+
+import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.model.PdI;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Entidad PdI → PdIDTO (lo que paga cada respuesta de la fachada). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConvertirADTOBenchmark {
+
+    private PdI pdi;
+
+    @Setup
+    public void setup() {
+        pdi = new PdI("hecho-42", "Foto del frente del incendio", "Córdoba",
+                LocalDateTime.of(2025, 10, 18, 6, 30), "Se ve humo sobre la ruta",
+                "https://cdn.example.org/pdis/123.jpg");
+        pdi.setId(123L);
+        pdi.setAutoTags(List.of("incendio", "forestal", "bomberos", "humo", "ruta", "evacuacion"));
+        pdi.setOcrText("INCENDIO FORESTAL EN LA ZONA NORTE");
+        pdi.setProcessingState(PdI.ProcessingState.PROCESSED);
+        pdi.setProcessedAt(LocalDateTime.of(2025, 10, 18, 6, 33));
+    }
+
+    @Benchmark
+    public PdIDTO convertirADTO() {
+        return Fachada.convertirADTO(pdi);
+    }
+}
@@ -0,0 +1,48 @@
+package ar.edu.utn.dds.k3003.clients;
+
+import ar.edu.utn.dds.k3003.config.JacksonConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Parseo de la respuesta de Apilayer en sus tres formas: array, {"result": [...]} y {"labels": [...]}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseLabelsBenchmark {
+
+    @Param({"array", "result", "labels"})
+    public String forma;
+
+    private ObjectMapper om;
+    private String body;
+
+    @Setup
+    public void setup() {
+        om = new JacksonConfig().objectMapper();
+
+        StringBuilder items = new StringBuilder();
+        String[] labels = {"Fire", "Smoke", "Tree", "Forest", "Sky", "Nature", "Wildfire", "Outdoors",
+                "Landscape", "Plant", "Vegetation", "Heat", "Flame", "Cloud", "Fire"};
+        for (int i = 0; i < labels.length; i++) {
+            if (i > 0) items.append(',');
+            items.append("{\"label\":\"").append(labels[i]).append("\",\"confidence\":")
+                    .append(0.99 - i * 0.05).append('}');
+        }
+        body = switch (forma) {
+            case "array" -> "[" + items + "]";
+            case "result" -> "{\"result\":[" + items + "],\"status\":\"ok\"}";
+            default -> "{\"labels\":[" + items + "]}";
+        };
+    }
+
+    @Benchmark
+    public List<String> parseLabels() {
+        return ApiLayerImageLabelClient.parseLabels(om, body);
+    }
+}
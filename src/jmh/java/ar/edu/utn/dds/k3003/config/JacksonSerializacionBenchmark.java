@@ -0,0 +1,57 @@
+package ar.edu.utn.dds.k3003.config;
+
+import ar.edu.utn.dds.k3003.controller.dtos.PdIResponseDTO;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.model.PdI;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Serialización de PdIDTO / PdIResponseDTO con el ObjectMapper SNAKE_CASE de JacksonConfig. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JacksonSerializacionBenchmark {
+
+    private ObjectMapper om;
+    private PdIDTO dto;
+    private PdIResponseDTO response;
+    private byte[] dtoJson;
+
+    @Setup
+    public void setup() throws Exception {
+        om = new JacksonConfig().objectMapper();
+        LocalDateTime momento = LocalDateTime.of(2025, 10, 18, 6, 30);
+        List<String> tags = List.of("incendio", "forestal", "bomberos", "humo", "ruta", "evacuacion");
+        String ocr = "INCENDIO FORESTAL EN LA ZONA NORTE. Bomberos voluntarios trabajan desde las 06:30 hs.";
+
+        dto = new PdIDTO("123", "hecho-42", "Foto del frente del incendio", "Córdoba", momento,
+                "Se ve humo sobre la ruta", "https://cdn.example.org/pdis/123.jpg", tags, ocr,
+                PdI.ProcessingState.PROCESSED, momento.plusMinutes(3), null);
+        response = new PdIResponseDTO(dto.id(), dto.hechoId(), dto.descripcion(), dto.lugar(), dto.momento(),
+                dto.contenido(), dto.autoTags(), dto.imageUrl(), dto.processingState().name(), dto.ocrText(),
+                dto.processedAt(), dto.lastError());
+        dtoJson = om.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public byte[] serializarPdIDTO() throws Exception {
+        return om.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public byte[] serializarPdIResponseDTO() throws Exception {
+        return om.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public PdIDTO deserializarPdIDTO() throws Exception {
+        return om.readValue(dtoJson, PdIDTO.class);
+    }
+}
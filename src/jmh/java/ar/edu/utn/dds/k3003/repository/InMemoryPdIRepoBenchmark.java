@@ -0,0 +1,87 @@
+package ar.edu.utn.dds.k3003.repository;
+
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
+import ar.edu.utn.dds.k3003.model.PdI;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InMemoryPdIRepo con varios threads sobre el mismo repositorio: lecturas solas,
+ * altas solas, y un grupo mixto (3 lectores por cada escritor) como en los workers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryPdIRepoBenchmark {
+
+    private static final int HECHOS = 100;
+    private static final int PRECARGADOS = 10_000;
+
+    private InMemoryPdIRepo repo;
+    private final AtomicLong secuencia = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        repo = new InMemoryPdIRepo();
+        for (int i = 0; i < PRECARGADOS; i++) {
+            repo.save(nuevo(i));
+        }
+        secuencia.set(PRECARGADOS);
+    }
+
+    private static PdI nuevo(long n) {
+        return new PdI("hecho-" + (n % HECHOS), "desc", "lugar", LocalDateTime.of(2025, 1, 1, 0, 0),
+                "contenido", "https://cdn.example.org/pdis/" + n + ".jpg");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<PdI> findById() {
+        return repo.findById(ThreadLocalRandom.current().nextLong(1, PRECARGADOS + 1));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PdI findByHechoIdAndImageUrl() {
+        long n = ThreadLocalRandom.current().nextLong(PRECARGADOS);
+        return repo.findByHechoIdAndImageUrl("hecho-" + (n % HECHOS), "https://cdn.example.org/pdis/" + n + ".jpg");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<PdIResumenDTO> findResumenesPorHechoDesde() {
+        int hecho = ThreadLocalRandom.current().nextInt(HECHOS);
+        return repo.findResumenesPorHechoDesde("hecho-" + hecho, 0L, Limit.of(20));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PdI save() {
+        return repo.save(nuevo(secuencia.getAndIncrement()));
+    }
+
+    @Benchmark
+    @Group("mixto")
+    @GroupThreads(3)
+    public PdI mixtoLectura() {
+        long n = ThreadLocalRandom.current().nextLong(PRECARGADOS);
+        return repo.findByHechoIdAndImageUrl("hecho-" + (n % HECHOS), "https://cdn.example.org/pdis/" + n + ".jpg");
+    }
+
+    @Benchmark
+    @Group("mixto")
+    @GroupThreads(1)
+    public PdI mixtoEscritura() {
+        return repo.save(nuevo(secuencia.getAndIncrement()));
+    }
+}
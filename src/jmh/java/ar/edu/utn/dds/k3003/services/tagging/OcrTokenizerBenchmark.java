@@ -0,0 +1,72 @@
+package ar.edu.utn.dds.k3003.services.tagging;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Top-K de tags sobre texto OCR: OcrTokenizer contra la versión regex + HashMap + sort
+ * que tenía OcrTagProvider (como referencia). Corré con {@code -prof gc} para ver la basura por documento.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OcrTokenizerBenchmark {
+
+    private static final String[] PALABRAS = {
+            "Incendio", "forestal", "en", "la", "zona", "norte", "de", "Córdoba", "bomberos", "voluntarios",
+            "trabajan", "desde", "las", "06:30", "hs.", "EVACUACIÓN", "preventiva", "ruta", "provincial",
+            "N°", "5", "km", "34", "Dirección", "Nacional", "Vialidad", "corte", "total", "tránsito",
+            "humo", "visibilidad", "reducida", "Atención", "vecinos", "línea", "emergencias", "911",
+            "agua", "inundación", "calle", "San", "Martín", "1250", "el", "y", "los", "del", "a"
+    };
+
+    @Param({"500", "20000"})
+    public int palabras;
+
+    private String texto;
+    private OcrTokenizer tokenizer;
+
+    @Setup
+    public void setup() {
+        // Texto tipo OCR: mayúsculas mezcladas, puntuación y saltos de línea, con semilla fija
+        Random r = new Random(42);
+        StringBuilder sb = new StringBuilder(palabras * 8);
+        for (int i = 0; i < palabras; i++) {
+            sb.append(PALABRAS[r.nextInt(PALABRAS.length)]);
+            int sep = r.nextInt(12);
+            sb.append(sep == 0 ? "\n" : sep == 1 ? ", " : sep == 2 ? ". " : " ");
+        }
+        texto = sb.toString();
+        tokenizer = new OcrTokenizer(List.of("el", "la", "los", "las", "de", "del", "y", "o", "a", "en",
+                "the", "of", "and"), 3, 10, true);
+    }
+
+    @Benchmark
+    public List<String> tokenizer() {
+        return tokenizer.topTokens(texto);
+    }
+
+    @Benchmark
+    public List<String> regexAnterior() {
+        Set<String> stop = Set.of("el", "la", "los", "las", "de", "del", "y", "o", "a", "en", "the", "of", "and");
+        Pattern token = Pattern.compile("[\\p{L}\\p{N}]{3,}");
+        Map<String, Integer> freq = new HashMap<>();
+
+        token.matcher(texto.toLowerCase(Locale.ROOT)).results()
+                .map(r -> r.group())
+                .filter(t -> !stop.contains(t))
+                .forEach(t -> freq.merge(t, 1, Integer::sum));
+
+        return freq.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
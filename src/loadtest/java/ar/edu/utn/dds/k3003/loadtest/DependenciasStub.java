@@ -0,0 +1,240 @@
+package ar.edu.utn.dds.k3003.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reemplazos locales de OCR.space, Apilayer, Solicitudes, Fuentes y del origen de las imágenes
+ * ({@code /img/}, un JPEG chico distinto por path) para el perfil {@code loadtest}.
+ * Un HttpServer del JDK en {@code loadtest.stubs.port}, aparte de Tomcat, con un thread por request
+ * (virtual si la JVM es 21+). Cada dependencia tiene su latencia y tasa de error:
+ * - {@code loadtest.stubs.<dep>.latency-median-ms} y {@code .latency-sigma}: log-normal (sigma 0 = fija).
+ * - {@code loadtest.stubs.<dep>.error-rate}: fracción de respuestas 503.
+ * Lo que no se configura por dependencia sale de {@code loadtest.stubs.default.*}.
+ * Métrica: {@code loadtest.stub.llamadas{dependencia, resultado}}.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class DependenciasStub {
+
+    private static final String[] PALABRAS = {
+            "incendio", "forestal", "zona", "norte", "bomberos", "voluntarios", "evacuación", "ruta",
+            "provincial", "corte", "tránsito", "humo", "visibilidad", "vecinos", "emergencias", "agua",
+            "inundación", "calle", "barrio", "alerta", "árbol", "caído", "servicio", "eléctrico"
+    };
+    private static final String[] LABELS = {
+            "fire", "smoke", "tree", "forest", "sky", "road", "water", "flood", "car", "building", "person"
+    };
+
+    private final byte[] imagen = jpeg();
+    private final HttpServer server;
+    private final Environment env;
+    private final ObjectMapper om;
+    private final MeterRegistry registry;
+
+    /** Latencia log-normal alrededor de la mediana y probabilidad de responder 503. */
+    record Comportamiento(double medianaMs, double sigma, double tasaError) {
+        long demoraMs() {
+            double z = sigma <= 0 ? 0 : ThreadLocalRandom.current().nextGaussian() * sigma;
+            return Math.max(0, Math.round(medianaMs * Math.exp(z)));
+        }
+
+        boolean falla() {
+            return tasaError > 0 && ThreadLocalRandom.current().nextDouble() < tasaError;
+        }
+    }
+
+    public DependenciasStub(@Value("${loadtest.stubs.port:18089}") int port,
+                            Environment env,
+                            ObjectMapper om,
+                            MeterRegistry registry) throws IOException {
+        this.env = env;
+        this.om = om;
+        this.registry = registry;
+
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stub-");
+        executor.setVirtualThreads(Runtime.version().feature() >= 21);
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/ocr", ex -> atender(ex, "ocr", this::ocr));
+        server.createContext("/imglbl", ex -> atender(ex, "imglbl", this::imglbl));
+        server.createContext("/solicitudes/hechos/", ex -> atender(ex, "solicitudes", this::solicitudes));
+        server.createContext("/fuentes/", ex -> atender(ex, "fuentes", this::fuentes));
+        server.createContext("/img/", ex -> atender(ex, "img", this::imagen));
+        server.start();
+
+        log.info("[LoadTest] stubs de OCR/Apilayer/Solicitudes/Fuentes/imágenes escuchando en http://127.0.0.1:{}", port);
+    }
+
+    @PreDestroy
+    void detener() {
+        server.stop(0);
+    }
+
+    /* ===================== Respuestas ===================== */
+
+    private Object ocr(HttpExchange ex) throws IOException {
+        descartarCuerpo(ex);   // upload de la imagen (POST /ocr/upload)
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        StringBuilder texto = new StringBuilder();
+        int n = 20 + r.nextInt(200);
+        for (int i = 0; i < n; i++) {
+            texto.append(PALABRAS[r.nextInt(PALABRAS.length)]).append(i % 12 == 11 ? "\r\n" : " ");
+        }
+        return Map.of("OCRExitCode", 1,
+                "IsErroredOnProcessing", false,
+                "ParsedResults", List.of(Map.of("ParsedText", texto.toString())));
+    }
+
+    private Object imglbl(HttpExchange ex) throws IOException {
+        descartarCuerpo(ex);   // upload de la imagen (POST /imglbl/upload)
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        int n = 3 + r.nextInt(6);
+        Object[] labels = new Object[n];
+        for (int i = 0; i < n; i++) {
+            labels[i] = Map.of("label", LABELS[r.nextInt(LABELS.length)], "confidence", 0.99 - i * 0.07);
+        }
+        return labels;
+    }
+
+    private Object solicitudes(HttpExchange ex) {
+        String path = ex.getRequestURI().getPath();
+        String hechoId = path.substring(path.lastIndexOf('/') + 1);
+        return Map.of("hechoId", hechoId, "activo", true);
+    }
+
+    private Object fuentes(HttpExchange ex) throws IOException {
+        // PATCH hecho/{id}/procesamiento: se devuelve lo recibido, como Fuentes
+        try (InputStream in = ex.getRequestBody()) {
+            return om.readTree(in);
+        }
+    }
+
+    /* ===================== Helpers ===================== */
+
+    private interface Respuesta {
+        Object generar(HttpExchange ex) throws IOException;
+    }
+
+    private void atender(HttpExchange ex, String dependencia, Respuesta respuesta) throws IOException {
+        try {
+            Comportamiento c = comportamiento(dependencia);
+            dormir(c.demoraMs());
+
+            if (c.falla()) {
+                registry.counter("loadtest.stub.llamadas", "dependencia", dependencia, "resultado", "error").increment();
+                escribir(ex, 503, "application/json", "{\"error\":\"stub: falla simulada\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            Object generada = respuesta.generar(ex);
+            registry.counter("loadtest.stub.llamadas", "dependencia", dependencia, "resultado", "ok").increment();
+            if (generada instanceof byte[] bytes) {
+                escribir(ex, 200, "image/jpeg", bytes);
+            } else {
+                escribir(ex, 200, "application/json", om.writeValueAsBytes(generada));
+            }
+        } finally {
+            ex.close();
+        }
+    }
+
+    private Comportamiento comportamiento(String dependencia) {
+        return new Comportamiento(
+                propiedad(dependencia, "latency-median-ms", 100.0),
+                propiedad(dependencia, "latency-sigma", 0.5),
+                propiedad(dependencia, "error-rate", 0.0));
+    }
+
+    private double propiedad(String dependencia, String clave, double porDefecto) {
+        Double valor = env.getProperty("loadtest.stubs." + dependencia + "." + clave, Double.class);
+        return valor != null ? valor
+                : env.getProperty("loadtest.stubs.default." + clave, Double.class, porDefecto);
+    }
+
+    private static void escribir(HttpExchange ex, int status, String contentType, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void descartarCuerpo(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * El mismo JPEG con el path en un segmento de comentario (COM) después del SOI: cada URL tiene bytes
+     * (y sha256) propios, así el índice por contenido no convierte la corrida en puros hits.
+     * La misma URL devuelve siempre los mismos bytes.
+     */
+    private byte[] imagen(HttpExchange ex) {
+        byte[] path = ex.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+        int largo = Math.min(path.length, 0xFFFF - 2);
+        byte[] bytes = new byte[imagen.length + 4 + largo];
+        bytes[0] = imagen[0];                      // SOI: FF D8
+        bytes[1] = imagen[1];
+        bytes[2] = (byte) 0xFF;                    // COM: FF FE + largo (incluye los 2 bytes del largo)
+        bytes[3] = (byte) 0xFE;
+        bytes[4] = (byte) ((largo + 2) >> 8);
+        bytes[5] = (byte) (largo + 2);
+        System.arraycopy(path, 0, bytes, 6, largo);
+        System.arraycopy(imagen, 2, bytes, 6 + largo, imagen.length - 2);
+        return bytes;
+    }
+
+    /** JPEG de 320x240 con algo de ruido, para que tenga un tamaño realista (decenas de KB). */
+    private static byte[] jpeg() {
+        try {
+            BufferedImage img = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = img.createGraphics();
+            g.setColor(new Color(200, 90, 30));
+            g.fillRect(0, 0, 320, 240);
+            g.dispose();
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            for (int i = 0; i < 20_000; i++) img.setRGB(r.nextInt(320), r.nextInt(240), r.nextInt(0xFFFFFF));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(img, "jpg", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo generar la imagen de prueba", e);
+        }
+    }
+
+    private static void dormir(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
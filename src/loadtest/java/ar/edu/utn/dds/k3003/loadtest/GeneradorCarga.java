@@ -0,0 +1,352 @@
+package ar.edu.utn.dds.k3003.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.CountingMode;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga del perfil {@code loadtest} ({@code loadtest.driver.enabled=true}).
+ * - Modelo abierto: dispara {@code POST /api/pdis} a {@code rate} por segundo durante {@code duration-seconds},
+ *   sin esperar respuestas; la latencia de ingesta se mide desde el instante planificado, así una cola
+ *   en el nodo no queda escondida por el propio generador (coordinated omission).
+ * - Tiempo hasta PROCESSED: se pagina {@code GET /api/pdis?after=&limit=} desde el menor id pendiente y
+ *   se compara {@code processed_at} con el momento de envío (generador y nodo comparten reloj).
+ * - Al terminar espera hasta {@code drain-timeout-seconds} a que se procese lo aceptado, loguea el
+ *   resumen y lo escribe en {@code report-file}.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+@ConditionalOnProperty(name = "loadtest.driver.enabled", havingValue = "true")
+public class GeneradorCarga {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final ObjectMapper om;
+    private final ApplicationContext context;
+    private final String targetUrl;
+    private final String imageBaseUrl;
+    private final double rate;
+    private final long duracionSeg;
+    private final int hechos;
+    private final long drainTimeoutSeg;
+    private final long reporteSeg;
+    private final int nodos;
+    private final String reportFile;
+    private final boolean salirAlTerminar;
+
+    // Registro propio y acumulativo: los percentiles del resumen cubren toda la corrida
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry(new SimpleConfig() {
+        @Override public String get(String key) { return null; }
+        @Override public CountingMode mode() { return CountingMode.CUMULATIVE; }
+    }, Clock.SYSTEM);
+    private final Timer ingesta;
+    private final Timer e2e;
+
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong aceptados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong fallidosHttp = new AtomicLong();
+    private final AtomicLong procesados = new AtomicLong();
+    private final AtomicLong conError = new AtomicLong();
+    private final AtomicReference<LocalDateTime> ultimoProcesado = new AtomicReference<>();
+
+    // id aceptado → momento de envío (wall clock, para comparar con processed_at)
+    private final ConcurrentSkipListMap<Long, LocalDateTime> pendientes = new ConcurrentSkipListMap<>();
+
+    private HttpClient http;
+    private long procesadosAnterior;
+    private long reporteAnterior;
+
+    public GeneradorCarga(ObjectMapper om,
+                          ApplicationContext context,
+                          @Value("${loadtest.driver.target-url:http://localhost:${server.port:8080}}") String targetUrl,
+                          @Value("${loadtest.driver.image-base-url:http://127.0.0.1:${loadtest.stubs.port:18089}/img}") String imageBaseUrl,
+                          @Value("${loadtest.driver.rate:20}") double rate,
+                          @Value("${loadtest.driver.duration-seconds:60}") long duracionSeg,
+                          @Value("${loadtest.driver.hechos:50}") int hechos,
+                          @Value("${loadtest.driver.drain-timeout-seconds:120}") long drainTimeoutSeg,
+                          @Value("${loadtest.driver.report-interval-seconds:5}") long reporteSeg,
+                          @Value("${loadtest.driver.nodes:1}") int nodos,
+                          @Value("${loadtest.driver.report-file:target/loadtest-report.json}") String reportFile,
+                          @Value("${loadtest.driver.exit-when-done:false}") boolean salirAlTerminar) {
+        this.om = om;
+        this.context = context;
+        this.targetUrl = targetUrl.endsWith("/") ? targetUrl.substring(0, targetUrl.length() - 1) : targetUrl;
+        this.imageBaseUrl = imageBaseUrl;
+        this.rate = Math.max(0.1, rate);
+        this.duracionSeg = Math.max(1, duracionSeg);
+        this.hechos = Math.max(1, hechos);
+        this.drainTimeoutSeg = Math.max(0, drainTimeoutSeg);
+        this.reporteSeg = Math.max(1, reporteSeg);
+        this.nodos = Math.max(1, nodos);
+        this.reportFile = reportFile;
+        this.salirAlTerminar = salirAlTerminar;
+
+        this.ingesta = Timer.builder("loadtest.ingesta")
+                .publishPercentiles(PERCENTILES)
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registro);
+        this.e2e = Timer.builder("loadtest.e2e")
+                .publishPercentiles(PERCENTILES)
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registro);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        Thread t = new Thread(this::correr, "loadtest-driver");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void correr() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("loadtest-http-");
+        executor.setVirtualThreads(Runtime.version().feature() >= 21);
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+
+        String corrida = Long.toString(System.currentTimeMillis(), 36);
+        log.info("[LoadTest] corrida {}: {} req/s durante {}s contra {}", corrida, rate, duracionSeg, targetUrl);
+
+        LocalDateTime inicioReloj = LocalDateTime.now();
+        long periodo = Math.round(1_000_000_000L / rate);
+        long inicio = System.nanoTime();
+        long fin = inicio + TimeUnit.SECONDS.toNanos(duracionSeg);
+        long proximoReporte = inicio + TimeUnit.SECONDS.toNanos(reporteSeg);
+
+        for (long i = 0; ; i++) {
+            long planificado = inicio + i * periodo;
+            if (planificado >= fin) break;
+            long espera = planificado - System.nanoTime();
+            if (espera > 0) LockSupport.parkNanos(espera);
+            enviar(corrida, i, planificado);
+
+            if (System.nanoTime() >= proximoReporte) {
+                reportarAvance(inicio);
+                proximoReporte += TimeUnit.SECONDS.toNanos(reporteSeg);
+            }
+        }
+        long finEnvio = System.nanoTime();
+        log.info("[LoadTest] fin de envíos ({}), esperando hasta {}s a que se procese lo aceptado",
+                enviados.get(), drainTimeoutSeg);
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeg);
+        do {
+            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            recolectarProcesados();
+            if (System.nanoTime() >= proximoReporte) {
+                reportarAvance(inicio);
+                proximoReporte += TimeUnit.SECONDS.toNanos(reporteSeg);
+            }
+        } while ((aceptados.get() + rechazados.get() + fallidosHttp.get() < enviados.get() || !pendientes.isEmpty())
+                && System.nanoTime() < limite);
+
+        resumen(inicioReloj, Duration.ofNanos(finEnvio - inicio));
+        if (salirAlTerminar) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private void enviar(String corrida, long i, long planificadoNanos) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("hecho_id", "lt-" + corrida + "-" + (i % hechos));
+        body.put("descripcion", "PdI de carga " + i);
+        body.put("lugar", "loadtest");
+        body.put("contenido", "contenido de prueba con fuego y agua");
+        body.put("image_url", imageBaseUrl + "/" + corrida + "-" + i + ".jpg");
+
+        HttpRequest req;
+        try {
+            req = HttpRequest.newBuilder(URI.create(targetUrl + "/api/pdis"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(om.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        LocalDateTime enviado = LocalDateTime.now();
+        enviados.incrementAndGet();
+        http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((resp, error) -> {
+            ingesta.record(System.nanoTime() - planificadoNanos, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                fallidosHttp.incrementAndGet();
+                log.debug("[LoadTest] error enviando PdI {}: {}", i, error.toString());
+                return;
+            }
+            if (resp.statusCode() != 202) {
+                rechazados.incrementAndGet();
+                log.debug("[LoadTest] PdI {} rechazado: HTTP {}", i, resp.statusCode());
+                return;
+            }
+            try {
+                // ProcesamientoResponseDTO con el mapper SNAKE_CASE: {"pdi_id": "...", "estado": "PENDING", ...}
+                long id = om.readTree(resp.body()).path("pdi_id").asLong(-1);
+                if (id > 0) pendientes.put(id, enviado);
+                aceptados.incrementAndGet();
+            } catch (IOException e) {
+                rechazados.incrementAndGet();
+            }
+        });
+    }
+
+    /** Pagina los PdIs desde el menor pendiente y registra los que ya quedaron PROCESSED o ERROR. */
+    private void recolectarProcesados() {
+        if (pendientes.isEmpty()) return;
+        long after = pendientes.firstKey() - 1;
+        long hasta = pendientes.lastKey();
+        try {
+            while (after < hasta) {
+                HttpRequest req = HttpRequest.newBuilder(
+                                URI.create(targetUrl + "/api/pdis?after=" + after + "&limit=1000"))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET().build();
+                HttpResponse<byte[]> resp = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
+                if (resp.statusCode() != 200) return;
+
+                JsonNode pagina = om.readTree(resp.body());
+                for (JsonNode p : pagina) {
+                    long id = p.path("id").asLong();
+                    String estado = p.path("estado").asText("");
+                    if ("PROCESSED".equals(estado)) {
+                        LocalDateTime enviado = pendientes.remove(id);
+                        if (enviado == null) continue;
+                        LocalDateTime procesado = om.treeToValue(p.path("processed_at"), LocalDateTime.class);
+                        if (procesado != null) {
+                            e2e.record(Duration.between(enviado, procesado));
+                            ultimoProcesado.accumulateAndGet(procesado,
+                                    (a, b) -> a == null || b.isAfter(a) ? b : a);
+                        }
+                        procesados.incrementAndGet();
+                    } else if ("ERROR".equals(estado) && pendientes.remove(id) != null) {
+                        conError.incrementAndGet();
+                    }
+                }
+
+                String siguiente = resp.headers().firstValue("X-Next-After").orElse(null);
+                if (siguiente == null) return;
+                after = Long.parseLong(siguiente);
+            }
+        } catch (IOException e) {
+            log.warn("[LoadTest] no se pudo consultar el estado de los PdIs: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reportarAvance(long inicio) {
+        recolectarProcesados();
+        long ahora = System.nanoTime();
+        long desde = reporteAnterior == 0 ? inicio : reporteAnterior;
+        long p = procesados.get();
+        double tasa = (p - procesadosAnterior) / Math.max(1e-9, (ahora - desde) / 1e9);
+        procesadosAnterior = p;
+        reporteAnterior = ahora;
+
+        log.info("[LoadTest] t={}s enviados={} aceptados={} rechazados={} errores_http={} procesados={} pendientes={} "
+                        + "| procesados/s={} | ingesta {} | e2e {}",
+                TimeUnit.NANOSECONDS.toSeconds(ahora - inicio), enviados.get(), aceptados.get(), rechazados.get(),
+                fallidosHttp.get(), p, pendientes.size(), String.format("%.1f", tasa),
+                percentiles(ingesta.takeSnapshot()), percentiles(e2e.takeSnapshot()));
+    }
+
+    private void resumen(LocalDateTime inicio, Duration duracionEnvio) {
+        LocalDateTime ultimo = ultimoProcesado.get();
+        double segundosProceso = ultimo == null ? 0 : Math.max(1e-3, Duration.between(inicio, ultimo).toMillis() / 1000.0);
+        double throughput = segundosProceso == 0 ? 0 : procesados.get() / segundosProceso;
+
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("target_url", targetUrl);
+        reporte.put("rate_objetivo", rate);
+        reporte.put("duracion_envio_s", duracionEnvio.toMillis() / 1000.0);
+        reporte.put("enviados", enviados.get());
+        reporte.put("aceptados", aceptados.get());
+        reporte.put("rechazados", rechazados.get());
+        reporte.put("errores_http", fallidosHttp.get());
+        reporte.put("procesados", procesados.get());
+        reporte.put("con_error", conError.get());
+        reporte.put("sin_procesar", pendientes.size());
+        reporte.put("ingesta_ms", percentilesMs(ingesta));
+        reporte.put("e2e_ms", percentilesMs(e2e));
+        reporte.put("throughput_por_s", throughput);
+        reporte.put("nodos", nodos);
+        reporte.put("throughput_por_nodo_por_s", throughput / nodos);
+
+        log.info("[LoadTest] RESUMEN enviados={} aceptados={} procesados={} sin_procesar={} | ingesta {} | e2e {} "
+                        + "| throughput sostenido={}/s ({} por nodo)",
+                enviados.get(), aceptados.get(), procesados.get(), pendientes.size(),
+                percentiles(ingesta.takeSnapshot()), percentiles(e2e.takeSnapshot()),
+                String.format("%.1f", throughput), String.format("%.1f", throughput / nodos));
+
+        try {
+            Path archivo = Path.of(reportFile);
+            if (archivo.getParent() != null) Files.createDirectories(archivo.getParent());
+            om.writerWithDefaultPrettyPrinter().writeValue(archivo.toFile(), reporte);
+            log.info("[LoadTest] reporte escrito en {}", archivo.toAbsolutePath());
+        } catch (IOException e) {
+            log.warn("[LoadTest] no se pudo escribir el reporte {}: {}", reportFile, e.getMessage());
+        }
+    }
+
+    private static String percentiles(HistogramSnapshot s) {
+        StringBuilder sb = new StringBuilder();
+        for (ValueAtPercentile v : s.percentileValues()) {
+            if (!sb.isEmpty()) sb.append(' ');
+            sb.append('p').append(Math.round(v.percentile() * 100)).append('=')
+                    .append(Math.round(v.value(TimeUnit.MILLISECONDS))).append("ms");
+        }
+        return sb.isEmpty() ? "-" : sb.toString();
+    }
+
+    private static Map<String, Object> percentilesMs(Timer t) {
+        HistogramSnapshot s = t.takeSnapshot();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("count", s.count());
+        out.put("mean", s.mean(TimeUnit.MILLISECONDS));
+        out.put("max", s.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile v : s.percentileValues()) {
+            out.put("p" + Math.round(v.percentile() * 100), v.value(TimeUnit.MILLISECONDS));
+        }
+        return out;
+    }
+}
@@ -1,14 +1,15 @@
 package ar.edu.utn.dds.k3003.app;
 
-import ar.edu.utn.dds.k3003.clients.FuentesProxy;
-import ar.edu.utn.dds.k3003.clients.dtos.ProcesamientoFuentesDTO;
+import ar.edu.utn.dds.k3003.exceptions.domain.pdi.PdIDuplicadoException;
 import ar.edu.utn.dds.k3003.facades.FachadaProcesadorPDI;
 import ar.edu.utn.dds.k3003.facades.FachadaSolicitudes;
 import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics.Operacion;
 import ar.edu.utn.dds.k3003.model.PdI;
-import ar.edu.utn.dds.k3003.repository.InMemoryPdIRepo;
 import ar.edu.utn.dds.k3003.repository.PdIRepository;
-import ar.edu.utn.dds.k3003.services.tagging.TagAggregatorService;
+import ar.edu.utn.dds.k3003.services.pipeline.PdIPipeline;
 
 import jakarta.annotation.PostConstruct;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,19 +18,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.lang.Nullable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.Counter;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
-import org.springframework.transaction.support.TransactionSynchronization;
 
 import java.util.stream.Collectors;
 
@@ -49,10 +50,8 @@ public class Fachada implements FachadaProcesadorPDI {
     @Getter
     private final PdIRepository pdiRepository;
 
-    // Servicio opcional para extraer tags desde imageUrl
-    private final @Nullable TagAggregatorService tagService;
-
-    private final AtomicLong generadorID = new AtomicLong(1);
+    // Carga, tagging y persistencia de cada PdI (con la notificación a Fuentes vía outbox)
+    private final PdIPipeline pipeline;
 
     // ⭐ AGREGADO — MÉTRICAS
     @Autowired
@@ -62,30 +61,23 @@ public class Fachada implements FachadaProcesadorPDI {
     private Counter pdisError;             // total de errores
     private Timer tiempoProcesamiento;     // tiempo por procesamiento
 
-    private final FuentesProxy fuentesProxy;   // ⭐ AGREGADO
-
     @PostConstruct
     public void initMetrics() {            // ⭐ AGREGADO
         this.pdisProcesados = meterRegistry.counter("pdi.procesados.total");
         this.pdisError = meterRegistry.counter("pdi.procesados.error");
-        this.tiempoProcesamiento = meterRegistry.timer("pdi.procesamiento.tiempo");
+        this.tiempoProcesamiento = ProcesamientoMetrics.histograma("pdi.procesamiento.tiempo")
+                .register(meterRegistry);
     }
 
-    /** Constructor por defecto para tests/local (repo en memoria). */
-    protected Fachada(FuentesProxy fuentesProxy) {
-        this.fuentesProxy = fuentesProxy;
-        this.pdiRepository = new InMemoryPdIRepo();
-        this.tagService = null;
-    }
+    // Tiempo de los saves (pdi.repositorio.save)
+    private final ProcesamientoMetrics metricas;
 
-    /** ÚNICO constructor autowireable (repo + servicio opcional). */
+    /** ÚNICO constructor autowireable (repo + pipeline de procesamiento). */
     @Autowired
-    public Fachada(PdIRepository pdiRepository,
-                   @Nullable TagAggregatorService tagAggregatorService,
-                   FuentesProxy fuentesProxy) {            // ⭐ AGREGADO
+    public Fachada(PdIRepository pdiRepository, PdIPipeline pipeline, ProcesamientoMetrics metricas) {
         this.pdiRepository = pdiRepository;
-        this.tagService = tagAggregatorService;
-        this.fuentesProxy = fuentesProxy;                // ⭐ AGREGADO
+        this.pipeline = pipeline;
+        this.metricas = metricas;
     }
 
     @Override
@@ -98,120 +90,60 @@ public class Fachada implements FachadaProcesadorPDI {
         return this.pdiRepository.save(pdi);
     }
 
-
-    @Transactional
+    /**
+     * Alta de un PdI nuevo confiando en la restricción única (hecho_id, image_url_hash):
+     * se inserta directo y sólo si la base lo rechaza se busca el existente para informarlo.
+     * Sin transacción propia a propósito: el save falla en la suya y no deja nada marcado rollback-only.
+     */
     @Override
-    public PdIDTO procesar(PdIDTO entrada) {
-
-        long inicio = System.currentTimeMillis();   // ⭐ AGREGADO
-
-        // ⭐ AGREGADO — DEBUG MICROMETER + API KEY
+    public PdI registrarPendiente(PdI pdi) {
         try {
-            // Print de API Key
-            String ddApiKey = System.getenv("DD_API_KEY");
-            System.out.println("🔥 DATADOG API KEY (env): " + ddApiKey);
-
-            // Print del total de métricas registradas
-            System.out.println("📊 MeterRegistry tiene " + meterRegistry.getMeters().size() + " métricas registradas");
+            return metricas.save(Operacion.ALTA).record(() -> this.pdiRepository.save(pdi));
+        } catch (DataIntegrityViolationException e) {
+            PdI existente = pdi.getImageUrl() == null ? null
+                    : this.pdiRepository.findByHechoIdAndImageUrl(pdi.getHechoId(), pdi.getImageUrl());
+            if (existente == null) throw e;
+            throw new PdIDuplicadoException(pdi.getHechoId(), existente.getId());
+        }
+    }
 
-            // Listar métricas registradas
-            meterRegistry.getMeters().forEach(m -> {
-                System.out.println("   ➤ MÉTRICA: " + m.getId().getName());
-            });
 
-        } catch (Exception ex) {
-            System.out.println("⚠️ Error mostrando métricas: " + ex.getMessage());
+    /** Versión bloqueante de {@link #procesarAsync}, para quien no puede seguir sin el resultado. */
+    @Override
+    public PdIDTO procesar(PdIDTO entrada) {
+        try {
+            return procesarAsync(entrada).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
         }
-        // ⭐ FIN DEBUG
+    }
 
-        try {
-            // --- TU CÓDIGO ORIGINAL TAL CUAL ---
-            PdI existente = pdiRepository
-                    .findByHechoIdAndImageUrl(entrada.hechoId(), entrada.imageUrl());
-
-            System.out.println("Existente : " + existente);
-
-            if (existente != null) {
-                if (existente.getProcessingState() == PdI.ProcessingState.PROCESSED ||
-                        existente.getProcessingState() == PdI.ProcessingState.PROCESSING) {
-                    return convertirADTO(existente);
-                }
-            }
-
-            if (existente == null) {
-                // Caso 3: NO existe → crearlo por primera vez
-                existente = new PdI(
-                        entrada.hechoId(),
-                        entrada.descripcion(),
-                        entrada.lugar(),
-                        entrada.momento(),
-                        entrada.contenido(),
-                        entrada.imageUrl()
-                );
-                existente = pdiRepository.save(existente); // PRIMER save (solo si NO existía)
-            }
-
-            existente = tagService.processImageTags(existente.getId());
-
-            existente.setProcessedAt(LocalDateTime.now());
-            existente.setProcessingState(PdI.ProcessingState.PROCESSED);
-
-
-            System.out.println("🔥🔥 PdI ANTES DE GUARDAR 🔥🔥");
-            System.out.println("ID: " + existente.getId());
-            System.out.println("HechoID: " + existente.getHechoId());
-            System.out.println("Estado: " + existente.getProcessingState());
-            System.out.println("OCR Text: " + existente.getOcrText());
-
-            System.out.println("AutoTags (" + existente.getAutoTags().size() + "):");
-            if (existente.getAutoTags().isEmpty()) {
-                System.out.println("   ⚠️  NO HAY TAGS — TagAggregatorService NO generó etiquetas");
-            } else {
-                existente.getAutoTags().forEach(t -> System.out.println("   ✔ " + t));
-            }
-
-            System.out.println("===============================================");
-
-            existente = pdiRepository.save(existente);
-
-            PdIDTO resultado = convertirADTO(existente);
-
-            // ⭐ MÉTRICA: PDI procesado OK
-            pdisProcesados.increment();
-
-            ProcesamientoFuentesDTO procNuevo =
-                    new ProcesamientoFuentesDTO(
-                            resultado.id(),
-                            resultado.processingState().name(),
-                            resultado.autoTags()
-                    );
-
-            TransactionSynchronizationManager.registerSynchronization(
-                    new TransactionSynchronization() {
-                        @Override
-                        public void afterCommit() {
-                            try {
-                                fuentesProxy.enviarProcesamientoAHecho(resultado.hechoId(), procNuevo);
-                            } catch (Exception ex) {
-                                System.err.println("❌ Error enviando procesamiento a Fuentes después del commit: " + ex.getMessage());
-                                ex.printStackTrace();
-                            }
-                        }
-                    }
-            );
-
-            return resultado;
+    @Override
+    public CompletableFuture<PdIDTO> procesarAsync(PdIDTO entrada) {
 
-        } catch (Exception e) {
-            // ⭐ MÉTRICA: error
-            pdisError.increment();
-            throw e;
+        long inicio = System.currentTimeMillis();   // ⭐ AGREGADO
 
-        } finally {
-            // ⭐ MÉTRICA: tiempo transcurrido
-            long duracion = System.currentTimeMillis() - inicio;
-            tiempoProcesamiento.record(duracion, java.util.concurrent.TimeUnit.MILLISECONDS);
+        // Carga → tagging → persistencia, cada etapa en su pool; la base no queda tomada durante el tagging
+        CompletableFuture<PdIPipeline.Resultado> resultado;
+        try {
+            resultado = pipeline.procesar(entrada);
+        } catch (RuntimeException e) {
+            resultado = CompletableFuture.failedFuture(e);
         }
+
+        return resultado
+                .whenComplete((r, error) -> {
+                    // ⭐ MÉTRICAS: PDI procesado OK / error
+                    if (error != null) pdisError.increment();
+                    else if (r.procesado()) pdisProcesados.increment();
+
+                    // ⭐ MÉTRICA: tiempo transcurrido
+                    long duracion = System.currentTimeMillis() - inicio;
+                    tiempoProcesamiento.record(duracion, java.util.concurrent.TimeUnit.MILLISECONDS);
+                })
+                .thenApply(r -> convertirADTO(r.pdi()));
     }
 
     @Override
@@ -230,7 +162,7 @@ public class Fachada implements FachadaProcesadorPDI {
             List<PdI> pdis = pdiRepository.findByHechoId(hechoId);
             log.info("PDIs encontradas para hechoId={}: {}", hechoId, pdis.size());
             pdis.forEach(pdi -> log.info("PDI: {}", pdi));
-            return pdis.stream().map(this::convertirADTO).toList();
+            return pdis.stream().map(Fachada::convertirADTO).toList();
         } catch (Exception e) {
             log.error("❌ ERROR ejecutando findByHechoId para hechoId={}: {}", hechoId, e.getMessage(), e);
             throw e;
@@ -241,19 +173,49 @@ public class Fachada implements FachadaProcesadorPDI {
     public List<PdIDTO> pdis() {
         return pdiRepository.findAll()
                 .stream()
-                .map(this::convertirADTO)
+                .map(Fachada::convertirADTO)
                 .toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<PdIResumenDTO> pdisDesde(String hechoId, Long after, int limit) {
+        long desde = (after == null) ? 0L : after;
+        return (hechoId != null)
+                ? pdiRepository.findResumenesPorHechoDesde(hechoId, desde, Limit.of(limit))
+                : pdiRepository.findResumenesDesde(desde, Limit.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void recorrerPdis(String hechoId, Consumer<PdIResumenDTO> consumidor) {
+        // Proyección DTO: no quedan entidades en el contexto de persistencia, no hace falta detach
+        try (Stream<PdIResumenDTO> pdis = (hechoId != null)
+                ? pdiRepository.streamResumenesPorHecho(hechoId)
+                : pdiRepository.streamResumenes()) {
+            pdis.forEach(consumidor);
+        }
+    }
+
+    @Override
+    public Optional<String> ocrTextDe(String pdiId) {
+        Long id = Long.parseLong(pdiId);
+        Optional<String> texto = pdiRepository.findOcrTextById(id);
+        // Vacío puede ser "sin OCR todavía" o "no existe": sólo en ese caso se paga el segundo probe
+        if (texto.isEmpty() && pdiRepository.findById(id).isEmpty()) {
+            throw new NoSuchElementException("No se encontró el PdI con id: " + id);
+        }
+        return texto;
+    }
+
     @Override
     public void borrarTodo() {
         pdiRepository.deleteAll();
-        generadorID.set(1);
     }
 
     // ---------- Helpers ----------
 
-    private PdIDTO convertirADTO(PdI p) {
+    static PdIDTO convertirADTO(PdI p) {
         return new PdIDTO(
                 p.getId() == null ? null : String.valueOf(p.getId()),
                 p.getHechoId(),
@@ -291,18 +253,4 @@ public class Fachada implements FachadaProcesadorPDI {
         p.setImageUrl(d.imageUrl());
         return p;
     }
-
-    private boolean isValidImageUrl(String url) {
-        if (url == null || url.isBlank()) return true;
-        try {
-            URI u = URI.create(url);
-            String scheme = Optional.ofNullable(u.getScheme()).orElse("").toLowerCase(Locale.ROOT);
-            if (!scheme.equals("http") && !scheme.equals("https")) return false;
-            String path = Optional.ofNullable(u.getPath()).orElse("").toLowerCase(Locale.ROOT);
-            return path.isEmpty() || path.endsWith(".jpg") || path.endsWith(".jpeg")
-                    || path.endsWith(".png") || path.endsWith(".gif") || path.endsWith(".webp");
-        } catch (Exception e) {
-            return false;
-        }
-    }
 }
@@ -1,24 +1,35 @@
 package ar.edu.utn.dds.k3003.clients;
 
+import ar.edu.utn.dds.k3003.resilience.Dependencias;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+import ar.edu.utn.dds.k3003.resilience.ProteccionDependencia;
+import ar.edu.utn.dds.k3003.resilience.RetryPolicy;
+import ar.edu.utn.dds.k3003.resilience.RetryScheduler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class ApiLayerImageLabelClient implements ImageLabelClient {
@@ -28,31 +39,44 @@ public class ApiLayerImageLabelClient implements ImageLabelClient {
     private final RestTemplate rt;
     private final ObjectMapper om;
     private final String baseUrl; // ej: https://api.apilayer.com/image_labeling/url
+    private final String uploadUrl; // ej: https://api.apilayer.com/image_labeling/upload (vacío = siempre por URL)
     private final String apiKey;
 
-    // Configurables por properties
-    private final int maxAttempts;
-    private final long baseBackoffMs;
+    // Reintentos (imglbl.retry.*) sin bloquear threads entre intentos
+    private final RetryScheduler retry;
+    private final RetryPolicy politica;
+    private final Executor executor;
+    private final ProteccionDependencia proteccion;
 
-    public ApiLayerImageLabelClient(RestTemplate rt,
+    public ApiLayerImageLabelClient(@Qualifier("imglblRestTemplate") RestTemplate rt,
                                     ObjectMapper om,
                                     @Value("${imglbl.base-url}") String baseUrl,
+                                    @Value("${imglbl.upload-url:https://api.apilayer.com/image_labeling/upload}") String uploadUrl,
                                     @Value("${imglbl.apikey}") String apiKey,
                                     @Value("${imglbl.retry.max-attempts:3}") int maxAttempts,
                                     @Value("${imglbl.retry.base-backoff-ms:600}") long baseBackoffMs,
-                                    // timeouts opcionales (si el RestTemplate no viene configurado)
-                                    @Value("${imglbl.timeout.connect-ms:3000}") int connectTimeoutMs,
-                                    @Value("${imglbl.timeout.read-ms:10000}") int readTimeoutMs) {
-        this.rt = ensureTimeouts(rt, connectTimeoutMs, readTimeoutMs);
+                                    RetryScheduler retry,
+                                    @Qualifier("clientesHttpExecutor") Executor executor,
+                                    Dependencias dependencias) {
+        this.rt = rt; // pool compartido, timeouts de imglbl.timeout.* (ver HttpAndAsyncConfig)
         this.om = om;
         this.baseUrl = baseUrl;
+        this.uploadUrl = uploadUrl == null ? "" : uploadUrl.strip();
         this.apiKey = apiKey;
-        this.maxAttempts = Math.max(1, maxAttempts);
-        this.baseBackoffMs = Math.max(100, baseBackoffMs);
+        this.retry = retry;
+        this.politica = retry.politica(maxAttempts, Math.max(100, baseBackoffMs));
+        this.executor = executor;
+        this.proteccion = dependencias.obtener("imglbl", ApiLayerImageLabelClient::reintentable);
     }
 
     @Override
     public List<String> extractLabels(String imageUrl) {
+        return RetryScheduler.esperar(extractLabelsAsync(imageUrl, Plazo.SIN_LIMITE));
+    }
+
+    /** Cada intento corre en clientesHttpExecutor; los backoffs los agenda el RetryScheduler. */
+    @Override
+    public CompletableFuture<List<String>> extractLabelsAsync(String imageUrl, Plazo plazo) {
         String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
                 .queryParam("url", imageUrl)
                 .toUriString();
@@ -61,53 +85,89 @@ public class ApiLayerImageLabelClient implements ImageLabelClient {
         headers.set("apikey", apiKey);
         HttpEntity<Void> req = new HttpEntity<>(headers);
 
-        long backoff = baseBackoffMs;
+        return retry.ejecutar("imglbl", politica, ApiLayerImageLabelClient::reintentable,
+                () -> intento(plazo, () -> llamar(url, req)));
+    }
+
+    @Override
+    public List<String> extractLabels(ImagenDescargada imagen) {
+        return RetryScheduler.esperar(extractLabelsAsync(imagen, Plazo.SIN_LIMITE));
+    }
+
+    /**
+     * Sube los bytes ya descargados como cuerpo del POST: Apilayer no vuelve a ir al origen.
+     * La imagen queda retenida hasta que termina el último intento.
+     */
+    @Override
+    public CompletableFuture<List<String>> extractLabelsAsync(ImagenDescargada imagen, Plazo plazo) {
+        if (uploadUrl.isEmpty()) return extractLabelsAsync(imagen.url(), plazo);
+        imagen.retener();
+        return retry.ejecutar("imglbl", politica, ApiLayerImageLabelClient::reintentable,
+                        () -> intento(plazo, () -> subir(imagen)))
+                .whenComplete((labels, error) -> imagen.liberar());
+    }
+
+    // Con el plazo vencido no se intenta (ni se reintenta); si no, los timeouts HTTP se recortan a lo que queda
+    private CompletableFuture<List<String>> intento(Plazo plazo, Callable<List<String>> llamada) {
+        if (plazo.vencido()) return CompletableFuture.failedFuture(new TimeoutException("Plazo de Apilayer vencido"));
+        return proteccion.ejecutarEn(() -> PlazoHttp.durante(plazo, llamada), executor);
+    }
+
+    private List<String> llamar(String url, HttpEntity<Void> req) {
+        long t0 = System.currentTimeMillis();
+        log.info("[IMGLBL] GET {}", baseUrl);
+        log.debug("[IMGLBL] full URL: {}", url);
+
+        ResponseEntity<String> resp = rt.exchange(url, HttpMethod.GET, req, String.class);
+        int sc = resp.getStatusCode().value();
+        String body = resp.getBody();
+        log.info("[IMGLBL] status={} in {}ms", sc, (System.currentTimeMillis() - t0));
+        log.debug("[IMGLBL] body<= {}", truncate(body, 500));
 
-        for (int attempt = 1; ; attempt++) {
+        if (sc != 200) throw new RespuestaInvalidaException("IMGLBL HTTP " + sc);
+
+        return parseLabels(om, body);
+    }
+
+    private List<String> subir(ImagenDescargada imagen) {
+        // Cada intento retiene la imagen: si el que la pidió ya se fue, el buffer no se recicla a mitad del upload
+        imagen.retener();
+        try {
             long t0 = System.currentTimeMillis();
-            try {
-                log.info("[IMGLBL] GET {}", baseUrl);
-                log.debug("[IMGLBL] full URL: {}", url);
-
-                ResponseEntity<String> resp = rt.exchange(url, HttpMethod.GET, req, String.class);
-                int sc = resp.getStatusCode().value();
-                String body = resp.getBody();
-                log.info("[IMGLBL] status={} in {}ms (attempt={})", sc, (System.currentTimeMillis() - t0), attempt);
-                log.debug("[IMGLBL] body<= {}", truncate(body, 500));
-
-                if (sc != 200) throw new IllegalStateException("IMGLBL HTTP " + sc);
-
-                return parseLabels(body);
-
-            } catch (ResourceAccessException e) {
-                // timeouts / I/O
-                log.warn("[IMGLBL] attempt={} timeout/I-O: {}", attempt, firstLine(e));
-                if (attempt >= maxAttempts) throw e;
-                sleep(backoff);
-                backoff = backoff * 2; // backoff exponencial
-            } catch (HttpStatusCodeException e) {
-                // 4xx/5xx: reintentamos sólo si es 5xx; 4xx no suele recuperarse
-                int status = e.getStatusCode().value();
-                log.warn("[IMGLBL] attempt={} HTTP {}: {}", attempt, status, firstLine(e));
-                if (status >= 500 && attempt < maxAttempts) {
-                    sleep(backoff);
-                    backoff = backoff * 2;
-                } else {
-                    throw e;
-                }
-            } catch (RuntimeException e) {
-                // otros errores (parseo, etc.). Reintento 1 vez más por si fue intermitente.
-                log.warn("[IMGLBL] attempt={} error: {}", attempt, firstLine(e));
-                if (attempt >= maxAttempts) throw e;
-                sleep(backoff);
-                backoff = backoff * 2;
-            }
+            log.info("[IMGLBL] POST {} ({} bytes)", uploadUrl, imagen.largo());
+
+            ResponseEntity<String> resp = rt.execute(uploadUrl, HttpMethod.POST, req -> {
+                req.getHeaders().set("apikey", apiKey);
+                req.getHeaders().setContentType(MediaType.parseMediaType(imagen.contentType()));
+                req.getHeaders().setContentLength(imagen.largo());
+                imagen.escribir(req.getBody());
+            }, r -> new ResponseEntity<>(StreamUtils.copyToString(r.getBody(), StandardCharsets.UTF_8), r.getStatusCode()));
+
+            int sc = resp.getStatusCode().value();
+            log.info("[IMGLBL] status={} in {}ms", sc, (System.currentTimeMillis() - t0));
+            log.debug("[IMGLBL] body<= {}", truncate(resp.getBody(), 500));
+            if (sc != 200) throw new RespuestaInvalidaException("IMGLBL HTTP " + sc);
+
+            return parseLabels(om, resp.getBody());
+        } finally {
+            imagen.liberar();
+        }
+    }
+
+    // Sólo errores de transporte, 5xx y 429: un 4xx, un body ilegible o un bug no mejoran reintentando
+    // (y tampoco son una falla de Apilayer para el breaker)
+    private static boolean reintentable(Throwable e) {
+        if (e instanceof HttpStatusCodeException h) {
+            int status = h.getStatusCode().value();
+            return status >= 500 || status == 429;
         }
+        return e instanceof ResourceAccessException;
     }
 
     // ---- Helpers ----
 
-    private List<String> parseLabels(String body) {
+    // Estático y package-private: sin estado propio, y así lo mide el benchmark de src/jmh
+    static List<String> parseLabels(ObjectMapper om, String body) {
         try {
             String jsonStr = (body == null) ? "" : body.trim();
             List<String> out = new ArrayList<>();
@@ -140,30 +200,10 @@ public class ApiLayerImageLabelClient implements ImageLabelClient {
                     .toList();
 
         } catch (Exception e) {
-            throw new IllegalStateException("IMGLBL parse error: " + firstLine(e), e);
+            throw new RespuestaInvalidaException("IMGLBL parse error: " + firstLine(e), e);
         }
     }
 
-    private static RestTemplate ensureTimeouts(RestTemplate rt, int connectMs, int readMs) {
-        // Si el RT ya tiene timeouts vía otra factory, respetalos.
-        if (!(rt.getRequestFactory() instanceof SimpleClientHttpRequestFactory f)) {
-            // Intento crear una factory simple con timeouts si no es de este tipo
-            SimpleClientHttpRequestFactory nf = new SimpleClientHttpRequestFactory();
-            nf.setConnectTimeout(connectMs);
-            nf.setReadTimeout(readMs);
-            rt.setRequestFactory(nf);
-            return rt;
-        }
-        // Si es SimpleClientHttpRequestFactory, seteamos (idempotente)
-        f.setConnectTimeout(connectMs);
-        f.setReadTimeout(readMs);
-        return rt;
-    }
-
-    private static void sleep(long ms) {
-        try { Thread.sleep(ms); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
-    }
-
     private static String truncate(String s, int max) {
         if (s == null) return null;
         return s.length() <= max ? s : s.substring(0, max) + "...";
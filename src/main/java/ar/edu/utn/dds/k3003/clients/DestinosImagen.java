@@ -0,0 +1,126 @@
+package ar.edu.utn.dds.k3003.clients;
+
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen.ImagenRechazadaException;
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen.ImagenRechazadaException.Motivo;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A qué hosts puede salir {@link ImageFetcher}: la imageUrl la manda el usuario, así que sin esto el
+ * servicio descarga de cualquier lado (loopback, red interna, metadata de la nube en 169.254.169.254).
+ * - Allowlist opcional ({@code image.fetch.allowed-hosts}): host exacto o {@code .dominio} para subdominios.
+ *   Vacía acepta cualquier host público.
+ * - Como DnsResolver del cliente HTTP de imágenes: la dirección se controla al conectar, sobre la misma
+ *   resolución que se usa para el socket (un DNS que cambia entre validar y conectar no la saltea).
+ * - Direcciones no públicas (loopback, privadas RFC1918/ULA, link-local, CGNAT, multicast, sin especificar)
+ *   se rechazan salvo {@code image.fetch.allow-private-addresses=true} (sólo para el perfil loadtest).
+ */
+@Component
+public class DestinosImagen implements DnsResolver {
+
+    /** Rechazo al resolver: el cliente HTTP lo propaga como IOException y ImageFetcher lo distingue. */
+    static class DestinoNoPermitidoException extends UnknownHostException {
+        DestinoNoPermitidoException(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    private final List<String> permitidos;
+    private final boolean permitirPrivadas;
+
+    public DestinosImagen(@Value("${image.fetch.allowed-hosts:}") List<String> permitidos,
+                          @Value("${image.fetch.allow-private-addresses:false}") boolean permitirPrivadas) {
+        this.permitidos = permitidos.stream()
+                .map(h -> h.strip().toLowerCase(Locale.ROOT))
+                .filter(h -> !h.isEmpty())
+                .toList();
+        this.permitirPrivadas = permitirPrivadas;
+    }
+
+    /** Allowlist, antes de salir a la red (en cada salto de una redirección). */
+    public void verificarHost(String host) {
+        if (!hostPermitido(host)) {
+            throw new ImagenRechazadaException(Motivo.DESTINO_NO_PERMITIDO,
+                    "El host " + host + " no está en image.fetch.allowed-hosts");
+        }
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        if (!hostPermitido(host)) {
+            throw new DestinoNoPermitidoException("El host " + host + " no está en image.fetch.allowed-hosts");
+        }
+        InetAddress[] direcciones = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+        if (!permitirPrivadas) {
+            for (InetAddress d : direcciones) {
+                if (!esPublica(d)) {
+                    throw new DestinoNoPermitidoException(
+                            "El host " + host + " resuelve a una dirección no pública (" + d.getHostAddress() + ")");
+                }
+            }
+        }
+        return direcciones;
+    }
+
+    @Override
+    public String resolveCanonicalHostname(String host) throws UnknownHostException {
+        return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+    }
+
+    boolean hostPermitido(String host) {
+        if (permitidos.isEmpty()) return true;
+        String h = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        for (String p : permitidos) {
+            if (p.startsWith(".") ? h.endsWith(p) || h.equals(p.substring(1)) : h.equals(p)) return true;
+        }
+        return false;
+    }
+
+    static boolean esPublica(InetAddress d) {
+        if (d.isAnyLocalAddress() || d.isLoopbackAddress() || d.isLinkLocalAddress()
+                || d.isSiteLocalAddress() || d.isMulticastAddress()) {
+            return false;
+        }
+        byte[] b = d.getAddress();
+        if (d instanceof Inet4Address) {
+            int b0 = b[0] & 0xFF;
+            int b1 = b[1] & 0xFF;
+            if (b0 == 0) return false;                                  // 0.0.0.0/8
+            if (b0 == 100 && b1 >= 64 && b1 <= 127) return false;       // 100.64.0.0/10 (CGNAT)
+            if (b0 == 192 && b1 == 0 && (b[2] & 0xFF) == 0) return false; // 192.0.0.0/24
+            if (b0 == 198 && (b1 == 18 || b1 == 19)) return false;      // 198.18.0.0/15
+            return b0 < 240;                                            // 240.0.0.0/4 reservada
+        }
+        if (d instanceof Inet6Address) {
+            if ((b[0] & 0xFE) == 0xFC) return false;                    // fc00::/7 (ULA)
+            // ::ffff:a.b.c.d y 64:ff9b::/96 (NAT64) llevan una IPv4 adentro: se evalúa esa
+            boolean mapeada = sonCeros(b, 0, 10) && (b[10] & 0xFF) == 0xFF && (b[11] & 0xFF) == 0xFF;
+            boolean nat64 = (b[0] & 0xFF) == 0x00 && (b[1] & 0xFF) == 0x64 && (b[2] & 0xFF) == 0xFF
+                    && (b[3] & 0xFF) == 0x9B && sonCeros(b, 4, 12);
+            if (mapeada || nat64) {
+                try {
+                    return esPublica(InetAddress.getByAddress(new byte[]{b[12], b[13], b[14], b[15]}));
+                } catch (UnknownHostException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean sonCeros(byte[] b, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (b[i] != 0) return false;
+        }
+        return true;
+    }
+}
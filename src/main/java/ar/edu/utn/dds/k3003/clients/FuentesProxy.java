@@ -16,9 +16,7 @@ public class FuentesProxy {
 
     private static final Logger log = LoggerFactory.getLogger(FuentesProxy.class);
 
-    public FuentesProxy(ObjectMapper objectMapper) {
-        var env = System.getenv();
-        String base = env.getOrDefault("URL_FUENTES", "https://tp-anual-dds-fuentes.onrender.com/api/");
+    public FuentesProxy(ObjectMapper objectMapper, OkHttpClient baseClient, String base) {
         this.endpoint = base.endsWith("/") ? base : base + "/";
 
         // evitar fallos por campos extras
@@ -27,7 +25,8 @@ public class FuentesProxy {
                 false
         );
 
-        OkHttpClient client = new OkHttpClient.Builder()
+        // newBuilder(): comparte pool de conexiones y dispatcher con el resto de los clientes Retrofit
+        OkHttpClient client = baseClient.newBuilder()
                 .connectTimeout(10, java.util.concurrent.TimeUnit.SECONDS)
                 .writeTimeout(20, java.util.concurrent.TimeUnit.SECONDS)
                 .readTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
@@ -0,0 +1,312 @@
+package ar.edu.utn.dds.k3003.clients;
+
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen.ImagenRechazadaException;
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen.ImagenRechazadaException.Motivo;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics.Etapa;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Descarga la imagen de un PdI una sola vez para todos los TagProvider.
+ * - Antes de salir a la red valida la URL (http/https y, si tiene extensión, que sea de imagen) y el host
+ *   contra la allowlist; al conectar, {@link DestinosImagen} rechaza direcciones no públicas (SSRF).
+ * - Las redirecciones se siguen a mano, hasta {@code image.fetch.max-redirects}, validando cada salto.
+ * - Tope de tamaño ({@code image.fetch.max-bytes}): se corta por Content-Length o al pasarlo leyendo.
+ * - El tipo se decide por los primeros bytes (JPEG, PNG, GIF, WEBP, BMP, TIFF), no por el Content-Type:
+ *   si no es una imagen se corta sin leer el resto.
+ * - Timeout de lectura por paquete y deadline total ({@code image.fetch.timeout-ms}) para orígenes lentos.
+ * - Los bytes quedan en un buffer de un pool chico que se reutiliza entre descargas (ver ImagenDescargada),
+ *   junto con su SHA-256 para el índice por contenido (IndiceContenidoImagen).
+ * Métricas: {@code pdi.etapa.tiempo{etapa=descarga}}, {@code imagen.descarga.bytes},
+ * {@code imagen.descarga.rechazos{motivo}} y {@code imagen.buffer.pool.libres}.
+ */
+@Service
+public class ImageFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageFetcher.class);
+
+    private static final Set<String> EXTENSIONES = Set.of("jpg", "jpeg", "png", "gif", "webp", "bmp", "tif", "tiff");
+    private static final int CABECERA = 12;   // bytes necesarios para reconocer cualquiera de los formatos
+
+    private final CloseableHttpClient http;
+    private final DestinosImagen destinos;
+    private final int maxRedirecciones;
+    private final int maxBytes;
+    private final long timeoutMs;
+    private final RequestConfig requestConfig;
+
+    private final BlockingQueue<byte[]> libres;
+    private final int bufferInicial;
+    private final int maxBufferEnPool;
+
+    private final ProcesamientoMetrics metricas;
+    private final DistributionSummary bytes;
+    private final Map<Motivo, Counter> rechazos = new EnumMap<>(Motivo.class);
+
+    public ImageFetcher(@Qualifier("imagenHttpClient") CloseableHttpClient http,
+                        DestinosImagen destinos,
+                        @Value("${image.fetch.max-redirects:3}") int maxRedirecciones,
+                        @Value("${image.fetch.max-bytes:5242880}") int maxBytes,
+                        @Value("${image.fetch.timeout-ms:10000}") long timeoutMs,
+                        @Value("${image.fetch.read-timeout-ms:5000}") long readTimeoutMs,
+                        @Value("${http.pool.acquire-timeout-ms:2000}") long acquireTimeoutMs,
+                        @Value("${image.fetch.pool.size:16}") int poolSize,
+                        @Value("${image.fetch.pool.buffer-bytes:65536}") int bufferInicial,
+                        @Value("${image.fetch.pool.max-buffer-bytes:1048576}") int maxBufferEnPool,
+                        ProcesamientoMetrics metricas,
+                        MeterRegistry registry) {
+        this.http = http;   // pool propio, con DNS filtrado y sin redirecciones automáticas (ver HttpAndAsyncConfig)
+        this.destinos = destinos;
+        this.maxRedirecciones = Math.max(0, maxRedirecciones);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.timeoutMs = Math.max(1, timeoutMs);
+        this.requestConfig = RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(Math.max(1, readTimeoutMs)))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(Math.max(1, acquireTimeoutMs)))
+                .setRedirectsEnabled(false)
+                .build();
+
+        this.libres = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.bufferInicial = Math.max(CABECERA, Math.min(bufferInicial, this.maxBytes));
+        this.maxBufferEnPool = Math.max(this.bufferInicial, maxBufferEnPool);
+
+        this.metricas = metricas;
+        this.bytes = DistributionSummary.builder("imagen.descarga.bytes")
+                .baseUnit("bytes")
+                .register(registry);
+        for (Motivo m : Motivo.values()) {
+            rechazos.put(m, registry.counter("imagen.descarga.rechazos", "motivo", m.name().toLowerCase(Locale.ROOT)));
+        }
+        Gauge.builder("imagen.buffer.pool.libres", libres, BlockingQueue::size).register(registry);
+    }
+
+    /**
+     * Descarga y valida la imagen. El llamador es dueño de la única referencia inicial y
+     * tiene que llamar a {@link ImagenDescargada#liberar()} cuando termina.
+     */
+    public ImagenDescargada descargar(String imageUrl) {
+        try {
+            return metricas.etapa(Etapa.DESCARGA).recordCallable(() -> {
+                URI uri = validarUrl(imageUrl);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                for (int salto = 0; ; salto++) {
+                    destinos.verificarHost(uri.getHost());
+                    Respuesta r = pedir(imageUrl, uri, deadline);
+                    if (r.imagen() != null) return r.imagen();
+                    if (salto >= maxRedirecciones) {
+                        throw new ImagenRechazadaException(Motivo.URL_INVALIDA,
+                                "Más de " + maxRedirecciones + " redirecciones para " + imageUrl);
+                    }
+                    uri = validarUrl(r.redireccion().toString());
+                }
+            });
+        } catch (ImagenRechazadaException e) {
+            rechazos.get(e.getMotivo()).increment();
+            throw e;
+        } catch (Exception e) {
+            rechazos.get(Motivo.ORIGEN).increment();
+            throw new ImagenRechazadaException(Motivo.ORIGEN, "No se pudo descargar " + imageUrl + ": " + e, e);
+        }
+    }
+
+    /** Una de dos: la imagen, o a dónde redirige el origen (todavía sin validar). */
+    private record Respuesta(ImagenDescargada imagen, URI redireccion) {}
+
+    private Respuesta pedir(String imageUrl, URI uri, long deadline) {
+        HttpGet get = new HttpGet(uri);
+        get.setConfig(requestConfig);
+        get.setHeader(HttpHeaders.ACCEPT, "image/*");
+        try {
+            return http.execute(get, respuesta -> {
+                URI destino = redireccion(uri, respuesta);
+                return destino != null ? new Respuesta(null, destino)
+                        : new Respuesta(leer(imageUrl, respuesta, deadline), null);
+            });
+        } catch (DestinosImagen.DestinoNoPermitidoException e) {
+            throw new ImagenRechazadaException(Motivo.DESTINO_NO_PERMITIDO,
+                    "Descarga de " + imageUrl + " rechazada: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new ImagenRechazadaException(Motivo.ORIGEN,
+                    "No se pudo descargar " + imageUrl + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static URI redireccion(URI actual, ClassicHttpResponse respuesta) {
+        int sc = respuesta.getCode();
+        if (sc != 301 && sc != 302 && sc != 303 && sc != 307 && sc != 308) return null;
+        Header location = respuesta.getFirstHeader(HttpHeaders.LOCATION);
+        if (location == null) return null;   // 3xx sin destino: lo rechaza leer() como respuesta no 200
+        try {
+            return actual.resolve(location.getValue().strip());
+        } catch (IllegalArgumentException e) {
+            throw new ImagenRechazadaException(Motivo.URL_INVALIDA,
+                    "Redirección mal formada desde " + actual + ": " + location.getValue(), e);
+        }
+    }
+
+    /**
+     * URL apta para descargar: esquema http/https con host y, si el último segmento tiene extensión,
+     * una de imagen. Sin extensión se acepta: el contenido lo decide el sniffing.
+     */
+    static URI validarUrl(String url) {
+        if (url == null || url.isBlank()) {
+            throw new ImagenRechazadaException(Motivo.URL_INVALIDA, "PdI sin imageUrl");
+        }
+        try {
+            URI u = URI.create(url.strip());
+            String scheme = Optional.ofNullable(u.getScheme()).orElse("").toLowerCase(Locale.ROOT);
+            if ((!scheme.equals("http") && !scheme.equals("https")) || u.getHost() == null) {
+                throw new ImagenRechazadaException(Motivo.URL_INVALIDA, "URL de imagen no soportada: " + url);
+            }
+            String path = Optional.ofNullable(u.getPath()).orElse("").toLowerCase(Locale.ROOT);
+            String ultimo = path.substring(path.lastIndexOf('/') + 1);
+            int punto = ultimo.lastIndexOf('.');
+            if (punto >= 0 && !EXTENSIONES.contains(ultimo.substring(punto + 1))) {
+                throw new ImagenRechazadaException(Motivo.URL_INVALIDA, "La URL no apunta a una imagen: " + url);
+            }
+            return u;
+        } catch (IllegalArgumentException e) {
+            throw new ImagenRechazadaException(Motivo.URL_INVALIDA, "URL de imagen mal formada: " + url, e);
+        }
+    }
+
+    /**
+     * Tipo de imagen según la firma de los primeros bytes; null si no es un formato conocido.
+     */
+    static String detectarTipo(byte[] b, int largo) {
+        if (largo >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) return "image/jpeg";
+        if (largo >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G'
+                && b[4] == 0x0D && b[5] == 0x0A && b[6] == 0x1A && b[7] == 0x0A) return "image/png";
+        if (largo >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8'
+                && (b[4] == '7' || b[4] == '9') && b[5] == 'a') return "image/gif";
+        if (largo >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') return "image/webp";
+        if (largo >= 4 && ((b[0] == 'I' && b[1] == 'I' && b[2] == 0x2A && b[3] == 0)
+                || (b[0] == 'M' && b[1] == 'M' && b[2] == 0 && b[3] == 0x2A))) return "image/tiff";
+        if (largo >= 2 && b[0] == 'B' && b[1] == 'M') return "image/bmp";
+        return null;
+    }
+
+    /* ===================== Lectura ===================== */
+
+    private ImagenDescargada leer(String url, ClassicHttpResponse respuesta, long deadline) throws IOException {
+        int sc = respuesta.getCode();
+        if (sc != 200) {
+            throw new ImagenRechazadaException(Motivo.ORIGEN, "El origen respondió HTTP " + sc + " para " + url);
+        }
+        HttpEntity entity = respuesta.getEntity();
+        if (entity == null) {
+            throw new ImagenRechazadaException(Motivo.ORIGEN, "El origen respondió sin contenido para " + url);
+        }
+        long declarado = entity.getContentLength();
+        if (declarado > maxBytes) {
+            throw demasiadoGrande(url, declarado);
+        }
+
+        byte[] buf = tomarBuffer(declarado);
+        boolean entregado = false;
+        try (InputStream in = entity.getContent()) {
+            int largo = 0;
+            String tipo = null;
+            while (true) {
+                if (System.nanoTime() > deadline) {
+                    throw new ImagenRechazadaException(Motivo.ORIGEN,
+                            "Descarga de " + url + " superó " + timeoutMs + " ms");
+                }
+                if (largo == buf.length) {
+                    if (largo > maxBytes) throw demasiadoGrande(url, largo);
+                    buf = Arrays.copyOf(buf, (int) Math.min((long) maxBytes + 1, largo * 2L));
+                }
+                int n = in.read(buf, largo, buf.length - largo);
+                if (n < 0) break;
+                largo += n;
+                if (largo > maxBytes) throw demasiadoGrande(url, largo);
+
+                // En cuanto alcanzan los bytes, se decide si es una imagen (sin leer el resto)
+                if (tipo == null && largo >= CABECERA) {
+                    tipo = tipoOFalla(url, buf, largo);
+                }
+            }
+            if (tipo == null) tipo = tipoOFalla(url, buf, largo);
+
+            bytes.record(largo);
+            entregado = true;
+            return new ImagenDescargada(url, tipo, sha256(buf, largo), buf, largo, this::devolverBuffer);
+        } finally {
+            if (!entregado) devolverBuffer(buf);
+        }
+    }
+
+    private static String sha256(byte[] buf, int largo) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(buf, 0, largo);
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private String tipoOFalla(String url, byte[] buf, int largo) {
+        String tipo = detectarTipo(buf, largo);
+        if (tipo == null) {
+            throw new ImagenRechazadaException(Motivo.NO_ES_IMAGEN, "El contenido de " + url + " no es una imagen");
+        }
+        return tipo;
+    }
+
+    private ImagenRechazadaException demasiadoGrande(String url, long largo) {
+        return new ImagenRechazadaException(Motivo.DEMASIADO_GRANDE,
+                "La imagen de " + url + " supera " + maxBytes + " bytes (" + largo + ")");
+    }
+
+    /* ===================== Pool de buffers ===================== */
+
+    private byte[] tomarBuffer(long declarado) {
+        // Con Content-Length conocido se dimensiona justo (+1 para detectar un origen que manda de más)
+        int necesario = declarado > 0 ? (int) declarado + 1 : bufferInicial;
+        byte[] buf = libres.poll();
+        if (buf != null && buf.length >= necesario) return buf;
+        if (buf != null) devolverBuffer(buf);
+        return new byte[Math.max(necesario, bufferInicial)];
+    }
+
+    private void devolverBuffer(byte[] buf) {
+        // Los que crecieron de más no se guardan: el pool no retiene memoria de imágenes grandes
+        if (buf.length <= maxBufferEnPool && !libres.offer(buf)) {
+            log.trace("[ImageFetcher] pool de buffers lleno, se descarta uno de {} bytes", buf.length);
+        }
+    }
+}
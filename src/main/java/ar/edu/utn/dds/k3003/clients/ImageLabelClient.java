@@ -1,8 +1,36 @@
 package ar.edu.utn.dds.k3003.clients;
 
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface ImageLabelClient {
     List<String> extractLabels(String imageUrl);
-}
 
+    /**
+     * Versión asíncrona; {@code plazo} acota los timeouts de la llamada HTTP y los reintentos.
+     * Por defecto resuelve con la sincrónica en el thread que llama (sin plazo).
+     */
+    default CompletableFuture<List<String>> extractLabelsAsync(String imageUrl, Plazo plazo) {
+        try {
+            return CompletableFuture.completedFuture(extractLabels(imageUrl));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Con la imagen ya descargada; por defecto le pasa la URL a la API como antes. */
+    default List<String> extractLabels(ImagenDescargada imagen) {
+        return extractLabels(imagen.url());
+    }
+
+    /** Asíncrona con la imagen ya descargada; por defecto resuelve con la sincrónica en el thread que llama. */
+    default CompletableFuture<List<String>> extractLabelsAsync(ImagenDescargada imagen, Plazo plazo) {
+        try {
+            return CompletableFuture.completedFuture(extractLabels(imagen));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ar.edu.utn.dds.k3003.clients;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bytes de una imagen ya descargada por {@link ImageFetcher}, compartidos por todos los TagProvider.
+ * - El buffer sale de un pool: se cuentan referencias y vuelve al pool cuando se libera la última.
+ *   Quien la recibe y la pasa a otro thread llama {@link #retener()} antes y {@link #liberar()} al terminar.
+ * - Sólo lectura: los bytes se escriben tal cual a un OutputStream, sin copiarlos.
+ */
+public final class ImagenDescargada {
+
+    private final String url;
+    private final String contentType;
+    private final String sha256;
+    private final byte[] buffer;
+    private final int largo;
+    private final Consumer<byte[]> devolver;
+    private final AtomicInteger referencias = new AtomicInteger(1);
+
+    ImagenDescargada(String url, String contentType, String sha256, byte[] buffer, int largo,
+                     Consumer<byte[]> devolver) {
+        this.url = url;
+        this.contentType = contentType;
+        this.sha256 = sha256;
+        this.buffer = buffer;
+        this.largo = largo;
+        this.devolver = devolver;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    /** Tipo detectado por el contenido (image/jpeg, image/png...), no el que informó el origen. */
+    public String contentType() {
+        return contentType;
+    }
+
+    /** SHA-256 (hex) de los bytes: identifica la imagen aunque llegue desde otra URL. */
+    public String sha256() {
+        return sha256;
+    }
+
+    /** Extensión de archivo acorde al tipo, para las APIs que la piden en el nombre del upload. */
+    public String extension() {
+        return contentType.substring(contentType.indexOf('/') + 1);
+    }
+
+    public int largo() {
+        return largo;
+    }
+
+    public void escribir(OutputStream out) throws IOException {
+        verificarViva();
+        out.write(buffer, 0, largo);
+    }
+
+    public InputStream abrir() {
+        verificarViva();
+        return new ByteArrayInputStream(buffer, 0, largo);
+    }
+
+    public ImagenDescargada retener() {
+        if (referencias.getAndUpdate(n -> n > 0 ? n + 1 : n) <= 0) {
+            throw new IllegalStateException("Imagen ya liberada: " + url);
+        }
+        return this;
+    }
+
+    public void liberar() {
+        if (referencias.decrementAndGet() == 0) devolver.accept(buffer);
+    }
+
+    private void verificarViva() {
+        if (referencias.get() <= 0) throw new IllegalStateException("Imagen ya liberada: " + url);
+    }
+}
@@ -1,6 +1,35 @@
 package ar.edu.utn.dds.k3003.clients;
 
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+
+import java.util.concurrent.CompletableFuture;
+
 public interface OcrClient {
     String extractText(String imageUrl);
-}
 
+    /**
+     * Versión asíncrona; {@code plazo} acota los timeouts de la llamada HTTP y los reintentos.
+     * Por defecto resuelve con la sincrónica en el thread que llama (sin plazo).
+     */
+    default CompletableFuture<String> extractTextAsync(String imageUrl, Plazo plazo) {
+        try {
+            return CompletableFuture.completedFuture(extractText(imageUrl));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Con la imagen ya descargada; por defecto le pasa la URL a la API como antes. */
+    default String extractText(ImagenDescargada imagen) {
+        return extractText(imagen.url());
+    }
+
+    /** Asíncrona con la imagen ya descargada; por defecto resuelve con la sincrónica en el thread que llama. */
+    default CompletableFuture<String> extractTextAsync(ImagenDescargada imagen, Plazo plazo) {
+        try {
+            return CompletableFuture.completedFuture(extractText(imagen));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
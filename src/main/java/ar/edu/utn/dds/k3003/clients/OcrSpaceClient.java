@@ -1,15 +1,34 @@
 package ar.edu.utn.dds.k3003.clients;
 
+import ar.edu.utn.dds.k3003.resilience.Dependencias;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+import ar.edu.utn.dds.k3003.resilience.ProteccionDependencia;
+import ar.edu.utn.dds.k3003.resilience.RetryPolicy;
+import ar.edu.utn.dds.k3003.resilience.RetryScheduler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
 @Service
 public class OcrSpaceClient implements OcrClient {
 
@@ -18,27 +37,85 @@ public class OcrSpaceClient implements OcrClient {
     private final RestTemplate rt;
     private final ObjectMapper om;
     private final String baseUrl; // ej: https://api.ocr.space/parse/imageurl
+    private final String uploadUrl; // ej: https://api.ocr.space/parse/image (vacío = siempre por URL)
     private final String apiKey;
 
+    private final RetryScheduler retry;
+    private final RetryPolicy politica;
+    private final Executor executor;
+    private final ProteccionDependencia proteccion;
+
     public OcrSpaceClient(RestTemplate rt,
                           ObjectMapper om,
                           @Value("${ocr.base-url}") String baseUrl,
-                          @Value("${ocr.apikey}") String apiKey) {
+                          @Value("${ocr.upload-url:https://api.ocr.space/parse/image}") String uploadUrl,
+                          @Value("${ocr.apikey}") String apiKey,
+                          @Value("${ocr.retry.max-attempts:2}") int maxAttempts,
+                          @Value("${ocr.retry.base-backoff-ms:500}") long baseBackoffMs,
+                          RetryScheduler retry,
+                          @Qualifier("clientesHttpExecutor") Executor executor,
+                          Dependencias dependencias) {
         this.rt = rt;
         this.om = om;
         this.baseUrl = baseUrl;
+        this.uploadUrl = uploadUrl == null ? "" : uploadUrl.strip();
         this.apiKey = apiKey;
+        this.retry = retry;
+        this.politica = retry.politica(maxAttempts, baseBackoffMs);
+        this.executor = executor;
+        this.proteccion = dependencias.obtener("ocr", OcrSpaceClient::reintentable);
     }
 
     @Override
     public String extractText(String imageUrl) {
-        long t0 = System.currentTimeMillis();
+        return RetryScheduler.esperar(extractTextAsync(imageUrl, Plazo.SIN_LIMITE));
+    }
 
+    /** Cada intento corre en clientesHttpExecutor; los backoffs los agenda el RetryScheduler. */
+    @Override
+    public CompletableFuture<String> extractTextAsync(String imageUrl, Plazo plazo) {
         String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
                 .queryParam("apikey", apiKey)
                 .queryParam("url", imageUrl)
                 .toUriString();
 
+        return retry.ejecutar("ocr", politica, OcrSpaceClient::reintentable, () -> intento(plazo, () -> llamar(url)));
+    }
+
+    @Override
+    public String extractText(ImagenDescargada imagen) {
+        return RetryScheduler.esperar(extractTextAsync(imagen, Plazo.SIN_LIMITE));
+    }
+
+    /**
+     * Sube los bytes ya descargados (multipart, campo {@code file}): OCR.space no vuelve a ir al origen.
+     * La imagen queda retenida hasta que termina el último intento.
+     */
+    @Override
+    public CompletableFuture<String> extractTextAsync(ImagenDescargada imagen, Plazo plazo) {
+        if (uploadUrl.isEmpty()) return extractTextAsync(imagen.url(), plazo);
+        imagen.retener();
+        return retry.ejecutar("ocr", politica, OcrSpaceClient::reintentable, () -> intento(plazo, () -> subir(imagen)))
+                .whenComplete((texto, error) -> imagen.liberar());
+    }
+
+    // Con el plazo vencido no se intenta (ni se reintenta); si no, los timeouts HTTP se recortan a lo que queda
+    private CompletableFuture<String> intento(Plazo plazo, Callable<String> llamada) {
+        if (plazo.vencido()) return CompletableFuture.failedFuture(new TimeoutException("Plazo de OCR vencido"));
+        return proteccion.ejecutarEn(() -> PlazoHttp.durante(plazo, llamada), executor);
+    }
+
+    // Sólo errores de transporte, 5xx y 429: una respuesta con OCRExitCode de error no mejora reintentando
+    private static boolean reintentable(Throwable e) {
+        if (e instanceof HttpStatusCodeException h) {
+            int status = h.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return e instanceof ResourceAccessException;
+    }
+
+    private String llamar(String url) {
+        long t0 = System.currentTimeMillis();
         log.info("[OCR] GET {}", baseUrl);
         log.debug("[OCR] full URL (masked): {}", url.replace(apiKey, "***"));
 
@@ -48,21 +125,58 @@ public class OcrSpaceClient implements OcrClient {
         log.info("[OCR] status={} in {}ms", sc, (System.currentTimeMillis() - t0));
         log.debug("[OCR] body<= {}", truncate(body, 500));
 
-        if (sc != 200) throw new IllegalStateException("OCR HTTP " + sc);
+        return parsear(sc, body);
+    }
+
+    private String subir(ImagenDescargada imagen) {
+        // Cada intento retiene la imagen: si el que la pidió ya se fue, el buffer no se recicla a mitad del upload
+        imagen.retener();
+        try {
+            long t0 = System.currentTimeMillis();
+            log.info("[OCR] POST {} ({} bytes)", uploadUrl, imagen.largo());
+
+            String boundary = "pdi-" + UUID.randomUUID();
+            byte[] cabecera = ("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"imagen." + imagen.extension() + "\"\r\n"
+                    + "Content-Type: " + imagen.contentType() + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            byte[] cierre = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+            ResponseEntity<String> resp = rt.execute(uploadUrl, HttpMethod.POST, req -> {
+                req.getHeaders().set("apikey", apiKey);
+                req.getHeaders().setContentType(MediaType.parseMediaType("multipart/form-data; boundary=" + boundary));
+                req.getHeaders().setContentLength(cabecera.length + imagen.largo() + cierre.length);
+                OutputStream out = req.getBody();
+                out.write(cabecera);
+                imagen.escribir(out);
+                out.write(cierre);
+            }, r -> new ResponseEntity<>(StreamUtils.copyToString(r.getBody(), StandardCharsets.UTF_8), r.getStatusCode()));
 
+            int sc = resp.getStatusCode().value();
+            log.info("[OCR] status={} in {}ms", sc, (System.currentTimeMillis() - t0));
+            log.debug("[OCR] body<= {}", truncate(resp.getBody(), 500));
+            return parsear(sc, resp.getBody());
+        } finally {
+            imagen.liberar();
+        }
+    }
+
+    private String parsear(int sc, String body) {
+        if (sc != 200) throw new RespuestaInvalidaException("OCR HTTP " + sc);
+
+        JsonNode root;
         try {
-            JsonNode root = om.readTree(body == null ? "{}" : body);
-            int exit = root.path("OCRExitCode").asInt(0);
-            if (exit != 1) {
-                String msg = root.path("ErrorMessage").asText("unknown");
-                throw new IllegalStateException("OCRExitCode=" + exit + " msg=" + msg);
-            }
-            JsonNode results = root.path("ParsedResults");
-            if (!results.isArray() || results.isEmpty()) return "";
-            return results.get(0).path("ParsedText").asText("");
+            root = om.readTree(body == null ? "{}" : body);
         } catch (Exception e) {
-            throw new IllegalStateException("OCR parse error: " + firstLine(e), e);
+            throw new RespuestaInvalidaException("OCR parse error: " + firstLine(e), e);
+        }
+        int exit = root.path("OCRExitCode").asInt(0);
+        if (exit != 1) {
+            String msg = root.path("ErrorMessage").asText("unknown");
+            throw new RespuestaInvalidaException("OCRExitCode=" + exit + " msg=" + msg);
         }
+        JsonNode results = root.path("ParsedResults");
+        if (!results.isArray() || results.isEmpty()) return "";
+        return results.get(0).path("ParsedText").asText("");
     }
 
     private static String truncate(String s, int max) {
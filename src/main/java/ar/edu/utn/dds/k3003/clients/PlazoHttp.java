@@ -0,0 +1,35 @@
+package ar.edu.utn.dds.k3003.clients;
+
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Plazo de la llamada HTTP que corre en el thread actual.
+ * Los clientes envuelven la llamada al RestTemplate con {@link #durante} y la request factory de
+ * HttpAndAsyncConfig lo lee al armar la request para acotar sus timeouts (pool, conexión, lectura).
+ */
+public final class PlazoHttp {
+
+    private static final ThreadLocal<Plazo> ACTUAL = new ThreadLocal<>();
+
+    private PlazoHttp() {
+    }
+
+    /** Corre {@code llamada} con {@code plazo}; si ya venció, falla con TimeoutException sin salir a la red. */
+    public static <T> T durante(Plazo plazo, Callable<T> llamada) throws Exception {
+        if (plazo.vencido()) throw new TimeoutException("Plazo vencido antes de llamar");
+        ACTUAL.set(plazo);
+        try {
+            return llamada.call();
+        } finally {
+            ACTUAL.remove();
+        }
+    }
+
+    public static Plazo actual() {
+        Plazo p = ACTUAL.get();
+        return p != null ? p : Plazo.SIN_LIMITE;
+    }
+}
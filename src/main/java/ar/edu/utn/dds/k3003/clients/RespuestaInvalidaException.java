@@ -0,0 +1,16 @@
+package ar.edu.utn.dds.k3003.clients;
+
+/**
+ * El proveedor (OCR.space, Apilayer) respondió, pero con un error propio o un body que no se puede leer.
+ * Reintentar la misma imagen no cambia el resultado: {@code ImageResultCache} lo recuerda como fallo.
+ */
+public class RespuestaInvalidaException extends IllegalStateException {
+
+    public RespuestaInvalidaException(String message) {
+        super(message);
+    }
+
+    public RespuestaInvalidaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
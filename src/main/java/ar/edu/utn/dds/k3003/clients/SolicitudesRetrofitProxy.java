@@ -1,17 +1,25 @@
 package ar.edu.utn.dds.k3003.clients;
 
+import ar.edu.utn.dds.k3003.clients.cache.EstadoHechoCache;
 import ar.edu.utn.dds.k3003.facades.FachadaSolicitudes;
+import ar.edu.utn.dds.k3003.resilience.Dependencias;
+import ar.edu.utn.dds.k3003.resilience.ProteccionDependencia;
+import ar.edu.utn.dds.k3003.resilience.RetryPolicy;
+import ar.edu.utn.dds.k3003.resilience.RetryScheduler;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import retrofit2.Call;
+import retrofit2.Callback;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
@@ -20,17 +28,20 @@ import retrofit2.http.Path;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Proxy con Retrofit. Método clave: estaActivo(hechoId).
+ * Las respuestas se cachean por hechoId con stale-while-revalidate (ver {@link EstadoHechoCache}).
  */
 @Slf4j
 @Component
 @Primary
-@Profile({"prod","default"})
+@Profile({"prod","default","loadtest"})
 public class SolicitudesRetrofitProxy implements FachadaSolicitudes {
 
     // ===== API =====
@@ -47,8 +58,23 @@ public class SolicitudesRetrofitProxy implements FachadaSolicitudes {
     ) { }
 
     private final SolicitudesApi api;
-
-    public SolicitudesRetrofitProxy(@Value("${solicitudes.base-url}") String baseUrl) {
+    private final EstadoHechoCache cache;
+    private final RetryScheduler retry;
+    private final RetryPolicy politica;
+    private final ProteccionDependencia proteccion;
+
+    public SolicitudesRetrofitProxy(@Value("${solicitudes.base-url}") String baseUrl,
+                                    @Value("${solicitudes.cache.ttl-ms:30000}") long ttlMs,
+                                    @Value("${solicitudes.cache.max-stale-ms:300000}") long maxStaleMs,
+                                    @Value("${solicitudes.cache.max-size:10000}") long maxSize,
+                                    @Value("${solicitudes.bulk.parallelism:10}") int paralelismoLote,
+                                    @Value("${solicitudes.retry.max-attempts:3}") int maxAttempts,
+                                    @Value("${solicitudes.retry.base-backoff-ms:200}") long baseBackoffMs,
+                                    @Qualifier("solicitudesRefreshExecutor") Executor refreshExecutor,
+                                    RetryScheduler retry,
+                                    Dependencias dependencias,
+                                    OkHttpClient baseClient,
+                                    MeterRegistry registry) {
         // Normalizo baseUrl para que termine en "/"
         String base = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
 
@@ -57,7 +83,8 @@ public class SolicitudesRetrofitProxy implements FachadaSolicitudes {
         HttpLoggingInterceptor httpLog = new HttpLoggingInterceptor(msg -> log.info("[HTTP] {}", msg));
         httpLog.setLevel(HttpLoggingInterceptor.Level.BODY);
 
-        OkHttpClient client = new OkHttpClient.Builder()
+        // newBuilder(): comparte pool de conexiones y dispatcher con el resto de los clientes Retrofit
+        OkHttpClient client = baseClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .writeTimeout(Duration.ofSeconds(30))
                 .callTimeout(Duration.ofSeconds(30))
@@ -76,6 +103,12 @@ public class SolicitudesRetrofitProxy implements FachadaSolicitudes {
                 .build();
 
         this.api = retrofit.create(SolicitudesApi.class);
+        this.retry = retry;
+        this.politica = retry.politica(maxAttempts, baseBackoffMs);
+        // un 404 es una respuesta válida de Solicitudes, no una señal de que esté caído
+        this.proteccion = dependencias.obtener("solicitudes", e -> !(e instanceof NoSuchElementException));
+        this.cache = new EstadoHechoCache(this::consultarRemoto,
+                Duration.ofMillis(ttlMs), Duration.ofMillis(maxStaleMs), maxSize, paralelismoLote, refreshExecutor, registry);
     }
 
     // =========================
@@ -83,43 +116,64 @@ public class SolicitudesRetrofitProxy implements FachadaSolicitudes {
     // =========================
     @Override
     public boolean estaActivo(String hechoId) {
-        log.warn("[estaActivo] IN hechoId={}", hechoId); // visible aun con INFO
+        return cache.estaActivo(hechoId);
+    }
 
-        for (int attempt = 1; attempt <= 3; attempt++) {
-            try {
-                Response<HechoResponseDTO> resp = api.getHechoActivo(hechoId).execute();
-                int code = resp.code();
-                log.warn("[estaActivo] attempt={} status={}", attempt, code);
+    @Override
+    public EstadoHechos estanActivos(Collection<String> hechoIds) {
+        return cache.estanActivos(hechoIds);
+    }
+
+    /** Descarta el estado cacheado del hecho (p.ej. cuando Solicitudes avisa un cambio). */
+    public void invalidar(String hechoId) {
+        log.info("[estaActivo] invalidando cache hechoId={}", hechoId);
+        cache.invalidar(hechoId);
+    }
 
+    /**
+     * Consulta a Solicitudes sin bloquear: la llamada sale por el dispatcher de OkHttp (enqueue)
+     * y los reintentos (429/503, errores de red) los agenda el RetryScheduler. Un 404 no se reintenta.
+     */
+    private CompletableFuture<Boolean> consultarRemoto(String hechoId) {
+        log.debug("[estaActivo] IN hechoId={}", hechoId);
+        return retry.ejecutar("solicitudes", politica,
+                e -> !(e instanceof NoSuchElementException),
+                () -> proteccion.ejecutarAsync(() -> consultarUnaVez(hechoId)));
+    }
+
+    private CompletableFuture<Boolean> consultarUnaVez(String hechoId) {
+        CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+        api.getHechoActivo(hechoId).enqueue(new Callback<>() {
+            @Override
+            public void onResponse(Call<HechoResponseDTO> call, Response<HechoResponseDTO> resp) {
+                int code = resp.code();
                 if (resp.isSuccessful()) {
                     HechoResponseDTO body = resp.body();
-                    log.warn("[estaActivo] OK body={}", body);
-                    return body != null && Boolean.TRUE.equals(body.activo());
-                } else {
-                    String err = resp.errorBody() != null ? resp.errorBody().string() : "(sin error body)";
-                    log.error("[estaActivo] FAIL status={} errorBody={}", code, err);
-
-                    if (code == 404) throw new NoSuchElementException("No existe el hecho " + hechoId);
-                    if (code == 429 || code == 503) {
-                        Thread.sleep(200L * (1L << (attempt - 1)));
-                        continue;
-                    }
-                    throw new IOException("HTTP " + code + " " + err);
+                    log.debug("[estaActivo] OK status={} body={}", code, body);
+                    resultado.complete(body != null && Boolean.TRUE.equals(body.activo()));
+                    return;
                 }
-            } catch (NoSuchElementException e) {
-                log.error("[estaActivo] 404 hechoId={}", hechoId);
-                throw e;
-            } catch (Exception e) {
-                log.error("[estaActivo] EXC intento={} hechoId={} msg={}", attempt, hechoId, e.getMessage(), e);
-                if (attempt == 3) throw new RuntimeException("Fallo consultando Solicitudes", e);
-                try { Thread.sleep(200L * (1L << (attempt - 1))); } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Backoff interrumpido", ie);
+                if (code == 404) {
+                    log.error("[estaActivo] 404 hechoId={}", hechoId);
+                    resultado.completeExceptionally(new NoSuchElementException("No existe el hecho " + hechoId));
+                    return;
                 }
+                String err;
+                try {
+                    err = resp.errorBody() != null ? resp.errorBody().string() : "(sin error body)";
+                } catch (IOException e) {
+                    err = "(error body ilegible)";
+                }
+                log.error("[estaActivo] FAIL status={} errorBody={}", code, err);
+                resultado.completeExceptionally(new IOException("HTTP " + code + " " + err));
+            }
+
+            @Override
+            public void onFailure(Call<HechoResponseDTO> call, Throwable t) {
+                log.error("[estaActivo] EXC hechoId={} msg={}", hechoId, t.getMessage());
+                resultado.completeExceptionally(t);
             }
-        }
-        // no debería llegar
-        log.error("[estaActivo] OUT (sin resultado) hechoId={}", hechoId);
-        return false;
+        });
+        return resultado;
     }
 }
@@ -0,0 +1,60 @@
+package ar.edu.utn.dds.k3003.clients.cache;
+
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+import ar.edu.utn.dds.k3003.clients.ApiLayerImageLabelClient;
+import ar.edu.utn.dds.k3003.clients.ImageLabelClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ImageLabelClient con cache por imageUrl delante de Apilayer.
+ */
+@Service
+@Primary
+public class CachingImageLabelClient implements ImageLabelClient {
+
+    private final ImageLabelClient delegate;
+    private final ImageResultCache<List<String>> cache;
+
+    public CachingImageLabelClient(ApiLayerImageLabelClient delegate,
+                                   MeterRegistry registry,
+                                   @Value("${cache.imglbl.max-size:2000}") long maxSize,
+                                   @Value("${cache.imglbl.ttl-minutes:360}") long ttlMinutes,
+                                   @Value("${cache.imglbl.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.delegate = delegate;
+        this.cache = new ImageResultCache<>("imglbl", maxSize,
+                Duration.ofMinutes(ttlMinutes), Duration.ofSeconds(negativeTtlSeconds), registry);
+    }
+
+    @Override
+    public List<String> extractLabels(String imageUrl) {
+        return cache.get(imageUrl, delegate::extractLabels);
+    }
+
+    /** Misma clave (imageUrl): un hit evita el upload; un miss sube los bytes ya descargados. */
+    @Override
+    public List<String> extractLabels(ImagenDescargada imagen) {
+        return cache.get(imagen.url(), url -> delegate.extractLabels(imagen));
+    }
+
+    /**
+     * Misma cache y mismo vuelo que la sincrónica, sin bloquear al que llama.
+     * Un miss que se suma a un vuelo en curso queda con el plazo de quien lo inició.
+     */
+    @Override
+    public CompletableFuture<List<String>> extractLabelsAsync(String imageUrl, Plazo plazo) {
+        return cache.getAsync(imageUrl, url -> delegate.extractLabelsAsync(url, plazo));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> extractLabelsAsync(ImagenDescargada imagen, Plazo plazo) {
+        return cache.getAsync(imagen.url(), url -> delegate.extractLabelsAsync(imagen, plazo));
+    }
+}
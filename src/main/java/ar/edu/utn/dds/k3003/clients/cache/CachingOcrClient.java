@@ -0,0 +1,59 @@
+package ar.edu.utn.dds.k3003.clients.cache;
+
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+import ar.edu.utn.dds.k3003.clients.OcrClient;
+import ar.edu.utn.dds.k3003.clients.OcrSpaceClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * OcrClient con cache por imageUrl delante de OCR.space.
+ */
+@Service
+@Primary
+public class CachingOcrClient implements OcrClient {
+
+    private final OcrClient delegate;
+    private final ImageResultCache<String> cache;
+
+    public CachingOcrClient(OcrSpaceClient delegate,
+                            MeterRegistry registry,
+                            @Value("${cache.ocr.max-size:2000}") long maxSize,
+                            @Value("${cache.ocr.ttl-minutes:360}") long ttlMinutes,
+                            @Value("${cache.ocr.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.delegate = delegate;
+        this.cache = new ImageResultCache<>("ocr", maxSize,
+                Duration.ofMinutes(ttlMinutes), Duration.ofSeconds(negativeTtlSeconds), registry);
+    }
+
+    @Override
+    public String extractText(String imageUrl) {
+        return cache.get(imageUrl, delegate::extractText);
+    }
+
+    /** Misma clave (imageUrl): un hit evita el upload; un miss sube los bytes ya descargados. */
+    @Override
+    public String extractText(ImagenDescargada imagen) {
+        return cache.get(imagen.url(), url -> delegate.extractText(imagen));
+    }
+
+    /**
+     * Misma cache y mismo vuelo que la sincrónica, sin bloquear al que llama.
+     * Un miss que se suma a un vuelo en curso queda con el plazo de quien lo inició.
+     */
+    @Override
+    public CompletableFuture<String> extractTextAsync(String imageUrl, Plazo plazo) {
+        return cache.getAsync(imageUrl, url -> delegate.extractTextAsync(url, plazo));
+    }
+
+    @Override
+    public CompletableFuture<String> extractTextAsync(ImagenDescargada imagen, Plazo plazo) {
+        return cache.getAsync(imagen.url(), url -> delegate.extractTextAsync(imagen, plazo));
+    }
+}
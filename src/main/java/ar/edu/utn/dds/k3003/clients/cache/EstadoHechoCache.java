@@ -0,0 +1,129 @@
+package ar.edu.utn.dds.k3003.clients.cache;
+
+import ar.edu.utn.dds.k3003.facades.FachadaSolicitudes.EstadoHechos;
+import ar.edu.utn.dds.k3003.resilience.RetryScheduler;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Cache del flag "activo" por hechoId con stale-while-revalidate.
+ * - Antes del TTL blando se sirve el valor cacheado sin tocar la red.
+ * - Pasado el TTL blando se sirve el valor viejo y se dispara UN refresh en background por hecho.
+ * - Pasado el TTL duro (max-stale) la entrada expira y el próximo pedido espera al remoto.
+ * - {@link #estanActivos} resuelve varios hechos juntos: los faltantes se consultan en paralelo,
+ *   de a {@code paralelismoLote} (por debajo del bulkhead de Solicitudes).
+ * - Métricas: {@code cache.*{cache=solicitudes.activo}} (hit ratio) y
+ *   {@code solicitudes.cache.refresh} (latencia de los refresh en background).
+ */
+@Slf4j
+public class EstadoHechoCache {
+
+    private final LoadingCache<String, Boolean> cache;
+    private final Function<String, CompletableFuture<Boolean>> remoto;
+    private final int paralelismoLote;
+    private final Timer refreshLatency;
+
+    public EstadoHechoCache(Function<String, CompletableFuture<Boolean>> remoto,
+                            Duration ttl,
+                            Duration maxStale,
+                            long maxSize,
+                            int paralelismoLote,
+                            Executor refreshExecutor,
+                            MeterRegistry registry) {
+        this.remoto = remoto;
+        this.paralelismoLote = Math.max(1, paralelismoLote);
+        this.refreshLatency = Timer.builder("solicitudes.cache.refresh")
+                .description("Latencia de refresh en background de estaActivo")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        CacheLoader<String, Boolean> loader = new CacheLoader<>() {
+            @Override
+            public Boolean load(String hechoId) {
+                return RetryScheduler.esperar(remoto.apply(hechoId));
+            }
+
+            // El refresh no ocupa un thread del executor mientras espera al remoto (ni sus reintentos)
+            @Override
+            public CompletableFuture<Boolean> asyncReload(String hechoId, Boolean anterior, Executor executor) {
+                long t0 = System.nanoTime();
+                return remoto.apply(hechoId).handle((activo, error) -> {
+                    refreshLatency.record(Duration.ofNanos(System.nanoTime() - t0));
+                    if (error == null) return activo;
+                    Throwable causa = (error instanceof CompletionException && error.getCause() != null)
+                            ? error.getCause() : error;
+                    if (causa instanceof NoSuchElementException) {
+                        // el hecho dejó de existir: null saca la entrada de la cache
+                        log.warn("[estaActivo] refresh: hecho {} ya no existe, se invalida", hechoId);
+                        return null;
+                    }
+                    throw new CompletionException(causa);
+                });
+            }
+        };
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize))
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(maxStale.compareTo(ttl) > 0 ? maxStale : ttl.multipliedBy(2))
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(loader);
+        CaffeineCacheMetrics.monitor(registry, cache, "solicitudes.activo");
+    }
+
+    public boolean estaActivo(String hechoId) {
+        return Boolean.TRUE.equals(cache.get(hechoId));
+    }
+
+    /**
+     * Estado de varios hechos con una sola pasada por la cache. Los faltantes se consultan en paralelo;
+     * un 404 los deja en {@code inexistentes} y un fallo de Solicitudes, fuera de los dos (ninguno se cachea).
+     */
+    public EstadoHechos estanActivos(Collection<String> hechoIds) {
+        Map<String, Boolean> activos = new HashMap<>(cache.getAllPresent(hechoIds));
+        Set<String> inexistentes = new HashSet<>();
+        List<String> pendientes = hechoIds.stream().distinct().filter(h -> !activos.containsKey(h)).toList();
+        for (int desde = 0; desde < pendientes.size(); desde += paralelismoLote) {
+            Map<String, CompletableFuture<Boolean>> enCurso = new HashMap<>();
+            for (String hechoId : pendientes.subList(desde, Math.min(desde + paralelismoLote, pendientes.size()))) {
+                enCurso.put(hechoId, remoto.apply(hechoId));
+            }
+            enCurso.forEach((hechoId, futuro) -> {
+                try {
+                    Boolean activo = RetryScheduler.esperar(futuro);
+                    cache.put(hechoId, activo);
+                    activos.put(hechoId, activo);
+                } catch (NoSuchElementException e) {
+                    inexistentes.add(hechoId);
+                } catch (RuntimeException e) {
+                    log.warn("[estaActivo] hecho {} sin verificar: {}", hechoId, e.getMessage());
+                }
+            });
+        }
+        return new EstadoHechos(activos, inexistentes);
+    }
+
+    /** Hook explícito: el próximo pedido de este hecho vuelve a consultar a Solicitudes. */
+    public void invalidar(String hechoId) {
+        cache.invalidate(hechoId);
+    }
+}
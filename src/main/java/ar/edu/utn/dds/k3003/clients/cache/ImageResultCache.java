@@ -0,0 +1,148 @@
+package ar.edu.utn.dds.k3003.clients.cache;
+
+import ar.edu.utn.dds.k3003.clients.RespuestaInvalidaException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Cache acotado (tamaño + TTL, eviction W-TinyLFU de Caffeine) para resultados de APIs remotas
+ * indexados por imageUrl.
+ * - Los éxitos viven {@code ttl}; los fallos definitivos del remoto para esa imagen (4xx salvo 429,
+ *   respuesta inválida) se cachean {@code negativeTtl} (mucho más corto) y se relanzan tal cual.
+ *   Timeouts, 5xx, circuito abierto o bulkhead lleno no se cachean: son del momento, no de la imagen,
+ *   y los decide el retry/breaker de cada llamada.
+ * - Los misses concurrentes de la misma imageUrl comparten una sola llamada remota ({@link SingleFlight}).
+ * - Expone hits/misses/evictions en el MeterRegistry como {@code cache.*{cache=<nombre>}}.
+ */
+@Slf4j
+public class ImageResultCache<T> {
+
+    private record Entrada<T>(T valor, RuntimeException error) {
+        boolean fallida() { return error != null; }
+    }
+
+    private final String nombre;
+    private final Cache<String, Entrada<T>> cache;
+    private final SingleFlight<T> singleFlight;
+
+    public ImageResultCache(String nombre, long maxSize, Duration ttl, Duration negativeTtl,
+                            MeterRegistry registry) {
+        this.nombre = nombre;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize))
+                .expireAfter(new Expiry<String, Entrada<T>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entrada<T> value, long currentTime) {
+                        return (value.fallida() ? negativeTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entrada<T> value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entrada<T> value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, nombre);
+        this.singleFlight = new SingleFlight<>(nombre, registry);
+    }
+
+    /**
+     * Devuelve el resultado cacheado para {@code imageUrl} o lo calcula con {@code loader}.
+     * Si el último intento falló y el fallo sigue vigente, se relanza sin llamar al remoto.
+     */
+    public T get(String imageUrl, Function<String, T> loader) {
+        if (imageUrl == null || imageUrl.isBlank()) return loader.apply(imageUrl);
+        String key = imageUrl.trim();
+
+        Entrada<T> cacheada = cache.getIfPresent(key);
+        if (cacheada != null) return desempaquetar(key, cacheada);
+
+        // El remoto se llama fuera de la cache: no retenemos locks de Caffeine durante el I/O
+        return singleFlight.execute(key, () -> {
+            // otro líder pudo haber terminado entre el miss y la toma del vuelo
+            Entrada<T> reciente = cache.policy().getIfPresentQuietly(key);
+            if (reciente != null) return desempaquetar(key, reciente);
+
+            try {
+                T valor = loader.apply(key);
+                cache.put(key, new Entrada<>(valor, null));
+                return valor;
+            } catch (RuntimeException e) {
+                if (fallaDefinitiva(e)) cache.put(key, new Entrada<>(null, e));
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Como {@link #get} para loaders asíncronos: un hit (o un fallo cacheado) vuelve ya completo,
+     * un miss comparte el future del vuelo en curso. El resultado se cachea antes de completar el future.
+     */
+    public CompletableFuture<T> getAsync(String imageUrl, Function<String, CompletableFuture<T>> loader) {
+        if (imageUrl == null || imageUrl.isBlank()) return loader.apply(imageUrl);
+        String key = imageUrl.trim();
+
+        Entrada<T> cacheada = cache.getIfPresent(key);
+        if (cacheada != null) return desempaquetarAsync(key, cacheada);
+
+        return singleFlight.executeAsync(key, () -> {
+            Entrada<T> reciente = cache.policy().getIfPresentQuietly(key);
+            if (reciente != null) return desempaquetarAsync(key, reciente);
+
+            return loader.apply(key).whenComplete((valor, error) -> {
+                if (error == null) {
+                    cache.put(key, new Entrada<>(valor, null));
+                    return;
+                }
+                Throwable causa = (error instanceof CompletionException && error.getCause() != null)
+                        ? error.getCause() : error;
+                if (fallaDefinitiva(causa)) cache.put(key, new Entrada<>(null, (RuntimeException) causa));
+            });
+        });
+    }
+
+    private CompletableFuture<T> desempaquetarAsync(String key, Entrada<T> cacheada) {
+        try {
+            return CompletableFuture.completedFuture(desempaquetar(key, cacheada));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Fallos que el proveedor dio por definitivos para esta imagen; el resto no se recuerda. */
+    static boolean fallaDefinitiva(Throwable e) {
+        if (e instanceof HttpClientErrorException h) return h.getStatusCode().value() != 429;
+        return e instanceof RespuestaInvalidaException;
+    }
+
+    // El fallo cacheado se relanza con su tipo original: el retry y el breaker lo clasifican igual que al vivo
+    private T desempaquetar(String key, Entrada<T> cacheada) {
+        if (cacheada.fallida()) {
+            log.debug("[{}] fallo cacheado para {}", nombre, key);
+            throw cacheada.error();
+        }
+        return cacheada.valor();
+    }
+
+    public void invalidate(String imageUrl) {
+        if (imageUrl != null) cache.invalidate(imageUrl.trim());
+    }
+}
@@ -0,0 +1,90 @@
+package ar.edu.utn.dds.k3003.clients.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalescing de llamadas concurrentes por clave ("single-flight").
+ * Si varios threads piden la misma clave a la vez, sólo el primero ejecuta la llamada remota;
+ * el resto espera y comparte su resultado o su error.
+ * {@link #executeAsync} hace lo mismo sin bloquear: los que llegan después reciben el future del vuelo en curso.
+ * Cuenta las llamadas ahorradas en {@code clients.singleflight.coalesced{client=<nombre>}}.
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentMap<String, CompletableFuture<T>> enVuelo = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SingleFlight(String nombre, MeterRegistry registry) {
+        this.coalesced = Counter.builder("clients.singleflight.coalesced")
+                .description("Llamadas remotas evitadas por compartir una llamada en curso")
+                .tag("client", nombre)
+                .register(registry);
+    }
+
+    public T execute(String key, Supplier<T> call) {
+        CompletableFuture<T> propia = new CompletableFuture<>();
+        CompletableFuture<T> existente = enVuelo.putIfAbsent(key, propia);
+
+        if (existente != null) {
+            coalesced.increment();
+            return await(existente);
+        }
+
+        try {
+            T valor = call.get();
+            propia.complete(valor);
+            return valor;
+        } catch (Throwable e) {
+            // también un Error: si no, los que esperan este vuelo quedan bloqueados para siempre
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enVuelo.remove(key, propia);
+        }
+    }
+
+    /** Como {@link #execute} para llamadas que ya devuelven un future; nadie espera bloqueado. */
+    public CompletableFuture<T> executeAsync(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> propia = new CompletableFuture<>();
+        CompletableFuture<T> existente = enVuelo.putIfAbsent(key, propia);
+
+        if (existente != null) {
+            coalesced.increment();
+            return existente.copy();   // un cancel de este llamador no afecta a los demás
+        }
+
+        CompletableFuture<T> llamada;
+        try {
+            llamada = call.get();
+        } catch (Throwable e) {
+            llamada = CompletableFuture.failedFuture(e);
+        }
+        llamada.whenComplete((valor, error) -> {
+            enVuelo.remove(key, propia);
+            if (error == null) propia.complete(valor);
+            else propia.completeExceptionally(error);
+        });
+        return propia.copy();
+    }
+
+    public int inFlight() {
+        return enVuelo.size();
+    }
+
+    private static <T> T await(CompletableFuture<T> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
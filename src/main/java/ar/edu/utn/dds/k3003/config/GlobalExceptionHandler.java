@@ -13,6 +13,8 @@ import java.util.NoSuchElementException;
 // Excepciones de tu dominio/infra:
 import ar.edu.utn.dds.k3003.exceptions.domain.pdi.HechoInactivoException;
 import ar.edu.utn.dds.k3003.exceptions.domain.pdi.HechoInexistenteException;
+import ar.edu.utn.dds.k3003.exceptions.domain.pdi.PdIDuplicadoException;
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.resilience.DependenciaNoDisponibleException;
 import ar.edu.utn.dds.k3003.exceptions.infrastructure.solicitudes.SolicitudesCommunicationException;
 
 // Micrometer (para exportar a Datadog)
@@ -52,12 +54,24 @@ public class GlobalExceptionHandler {
                 "Hecho Inexistente", e.getMessage());
     }
 
+    @ExceptionHandler(PdIDuplicadoException.class)
+    public ResponseEntity<Map<String, String>> handlePdIDuplicado(PdIDuplicadoException e) {
+        return buildAndCount(HttpStatus.CONFLICT, "PdIDuplicadoException",
+                "PdI Duplicado", e.getMessage());
+    }
+
     @ExceptionHandler(SolicitudesCommunicationException.class)
     public ResponseEntity<Map<String, String>> handleSolicitudesCommunication(SolicitudesCommunicationException e) {
         return buildAndCount(HttpStatus.BAD_GATEWAY, "SolicitudesCommunicationException",
                 "Solicitudes Communication Error", e.getMessage());
     }
 
+    @ExceptionHandler(DependenciaNoDisponibleException.class)
+    public ResponseEntity<Map<String, String>> handleDependenciaNoDisponible(DependenciaNoDisponibleException e) {
+        return buildAndCount(HttpStatus.SERVICE_UNAVAILABLE, "DependenciaNoDisponibleException",
+                "Dependencia No Disponible", e.getMessage());
+    }
+
     // =======================================================
 
     @ExceptionHandler(Exception.class)
@@ -1,19 +1,252 @@
 // ar/edu/utn/dds/k3003/config/HttpAndAsyncConfig.java
 package ar.edu.utn.dds.k3003.config;
 
+import ar.edu.utn.dds.k3003.clients.DestinosImagen;
+import ar.edu.utn.dds.k3003.clients.PlazoHttp;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class HttpAndAsyncConfig {
 
+    /**
+     * Pool de conexiones HTTP compartido por los RestTemplate (OCR.space, Apilayer):
+     * keep-alive, tope total y por host, y conexiones ociosas/vencidas que se cierran solas.
+     * Métricas: {@code httpcomponents.httpclient.pool.*{httpclient=rest}} (leased/available/pending).
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        var f = new SimpleClientHttpRequestFactory();
-        f.setConnectTimeout(3000);
-        f.setReadTimeout(10000);
-        return new RestTemplate(f);
+    @Primary
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            @Value("${http.pool.max-total:100}") int maxTotal,
+            @Value("${http.pool.max-per-route:20}") int maxPerRoute,
+            @Value("${http.pool.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${http.pool.ttl-seconds:300}") long ttlSeconds,
+            MeterRegistry registry) {
+        PoolingHttpClientConnectionManager cm = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(Math.max(1, maxTotal))
+                .setMaxConnPerRoute(Math.max(1, maxPerRoute))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setTimeToLive(TimeValue.ofSeconds(ttlSeconds))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(cm, "rest").bindTo(registry);
+        return cm;
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public CloseableHttpClient pooledHttpClient(PoolingHttpClientConnectionManager httpConnectionManager,
+                                               @Value("${http.pool.idle-evict-seconds:30}") long idleEvictSeconds) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictSeconds))
+                .disableAutomaticRetries()   // los reintentos los maneja RetryScheduler
+                .build();
+    }
+
+    /**
+     * Cliente de ImageFetcher, aparte del de OCR.space/Apilayer: las URLs las manda el usuario.
+     * - Resuelve con {@link DestinosImagen}: allowlist y sólo direcciones públicas, controlado al conectar.
+     * - Sin redirecciones automáticas: ImageFetcher sigue cada salto validándolo de nuevo.
+     * Métricas: {@code httpcomponents.httpclient.pool.*{httpclient=imagen}}.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient imagenHttpClient(
+            DestinosImagen destinos,
+            @Value("${image.fetch.pool.max-total:50}") int maxTotal,
+            @Value("${image.fetch.pool.max-per-route:10}") int maxPerRoute,
+            @Value("${http.pool.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${http.pool.idle-evict-seconds:30}") long idleEvictSeconds,
+            MeterRegistry registry) {
+        PoolingHttpClientConnectionManager cm = PoolingHttpClientConnectionManagerBuilder.create()
+                .setDnsResolver(destinos)
+                .setMaxConnTotal(Math.max(1, maxTotal))
+                .setMaxConnPerRoute(Math.max(1, maxPerRoute))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(cm, "imagen").bindTo(registry);
+        return HttpClients.custom()
+                .setConnectionManager(cm)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictSeconds))
+                .disableAutomaticRetries()
+                .disableRedirectHandling()
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(CloseableHttpClient pooledHttpClient,
+                                     @Value("${http.pool.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        return new RestTemplate(requestFactory(pooledHttpClient, 3000, 10000, acquireTimeoutMs));
+    }
+
+    /** Mismo pool que {@link #restTemplate}, con los timeouts de lectura propios de Apilayer. */
+    @Bean
+    public RestTemplate imglblRestTemplate(CloseableHttpClient pooledHttpClient,
+                                           @Value("${imglbl.timeout.connect-ms:3000}") long connectTimeoutMs,
+                                           @Value("${imglbl.timeout.read-ms:10000}") long readTimeoutMs,
+                                           @Value("${http.pool.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        return new RestTemplate(requestFactory(pooledHttpClient, connectTimeoutMs, readTimeoutMs, acquireTimeoutMs));
+    }
+
+    /**
+     * Cliente OkHttp base de los proxies Retrofit (Solicitudes, Fuentes). Cada proxy hace newBuilder()
+     * para sus timeouts/interceptores, así todos comparten pool de conexiones y dispatcher (HTTP/2 vía ALPN).
+     */
+    @Bean
+    public OkHttpClient okHttpClient(
+            @Value("${okhttp.pool.max-idle:10}") int maxIdle,
+            @Value("${okhttp.pool.keep-alive-seconds:300}") long keepAliveSeconds,
+            @Value("${okhttp.dispatcher.max-requests:64}") int maxRequests,
+            @Value("${okhttp.dispatcher.max-requests-per-host:16}") int maxRequestsPerHost,
+            MeterRegistry registry) {
+        ConnectionPool pool = new ConnectionPool(Math.max(1, maxIdle), keepAliveSeconds, TimeUnit.SECONDS);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(1, maxRequests));
+        dispatcher.setMaxRequestsPerHost(Math.max(1, maxRequestsPerHost));
+
+        Gauge.builder("okhttp.pool.conexiones", pool, ConnectionPool::connectionCount)
+                .tag("estado", "total").register(registry);
+        Gauge.builder("okhttp.pool.conexiones", pool, ConnectionPool::idleConnectionCount)
+                .tag("estado", "idle").register(registry);
+        Gauge.builder("okhttp.dispatcher.llamadas", dispatcher, Dispatcher::runningCallsCount)
+                .tag("estado", "running").register(registry);
+        Gauge.builder("okhttp.dispatcher.llamadas", dispatcher, Dispatcher::queuedCallsCount)
+                .tag("estado", "queued").register(registry);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(pool)
+                .dispatcher(dispatcher)
+                .build();
+    }
+
+    private static HttpComponentsClientHttpRequestFactory requestFactory(HttpClient client, long connectTimeoutMs,
+                                                                         long readTimeoutMs, long acquireTimeoutMs) {
+        // Los timeouts van por request: así varios RestTemplate comparten el mismo pool
+        HttpComponentsClientHttpRequestFactory f = new HttpComponentsClientHttpRequestFactory(client) {
+            @Override
+            protected RequestConfig mergeRequestConfig(RequestConfig clientConfig) {
+                return RequestConfig.copy(super.mergeRequestConfig(clientConfig))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build();
+            }
+
+            // Con un plazo en curso (PlazoHttp), cada timeout se recorta a lo que queda de él
+            @Override
+            @SuppressWarnings("deprecation")
+            protected HttpContext createHttpContext(HttpMethod method, URI uri) {
+                Plazo plazo = PlazoHttp.actual();
+                if (plazo.sinLimite()) return super.createHttpContext(method, uri);
+                HttpClientContext contexto = HttpClientContext.create();
+                contexto.setRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(plazo.acotar(acquireTimeoutMs)))
+                        .setConnectTimeout(Timeout.ofMilliseconds(plazo.acotar(connectTimeoutMs)))
+                        .setResponseTimeout(Timeout.ofMilliseconds(plazo.acotar(readTimeoutMs)))
+                        .build());
+                return contexto;
+            }
+        };
+        f.setConnectTimeout((int) connectTimeoutMs);
+        f.setConnectionRequestTimeout((int) acquireTimeoutMs);
+        return f;
+    }
+
+    /**
+     * Refresh en background del cache de estaActivo (stale-while-revalidate).
+     * Pool chico con cola acotada: si se llena, el refresh se descarta y se sigue sirviendo
+     * el valor viejo, nunca se bloquea al thread que atiende el request.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor solicitudesRefreshExecutor(
+            @Value("${solicitudes.cache.refresh-parallelism:2}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("solicitudes-refresh-");
+        executor.setCorePoolSize(Math.max(1, parallelism));
+        executor.setMaxPoolSize(Math.max(1, parallelism));
+        executor.setQueueCapacity(100);
+        return executor;
+    }
+
+    /**
+     * Intentos de los clientes HTTP bloqueantes (OCR.space, Apilayer) lanzados por RetryScheduler.
+     * Las esperas entre reintentos no ocupan threads de acá: las agenda el timer del scheduler.
+     * Pool fijo con cola acotada y sin bloquear a quien encola: lleno, rechaza (RejectedExecutionException)
+     * y el future del intento falla en el acto.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor clientesHttpExecutor(
+            @Value("${http.clients.parallelism:32}") int parallelism,
+            @Value("${http.clients.queue:200}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("http-cliente-");
+        executor.setCorePoolSize(Math.max(1, parallelism));
+        executor.setMaxPoolSize(Math.max(1, parallelism));
+        executor.setQueueCapacity(Math.max(0, capacidadCola));
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /** Envíos del outbox de Fuentes (un lote sale en paralelo hasta este límite). */
+    @Bean
+    public SimpleAsyncTaskExecutor fuentesOutboxExecutor(
+            @Value("${fuentes.outbox.parallelism:4}") int parallelism) {
+        return boundedExecutor("fuentes-outbox-", parallelism, true);
+    }
+
+    /**
+     * Un virtual thread por mensaje en PdiVirtualWorker (worker.mode=virtual); el tope de procesamiento
+     * lo pone su semáforo. El límite acá es el prefetch: nunca hay más mensajes sin ack, así que el
+     * listener no llega a bloquearse al despachar (en JVMs previas a la 21 son threads de plataforma).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "worker.mode", havingValue = "virtual")
+    public SimpleAsyncTaskExecutor pdiVirtualExecutor(
+            @Value("${worker.virtual.max-concurrency:200}") int maxConcurrency,
+            @Value("${worker.virtual.prefetch:250}") int prefetch) {
+        return boundedExecutor("pdi-vt-", Math.max(prefetch, maxConcurrency), true);
+    }
+
+    static SimpleAsyncTaskExecutor boundedExecutor(String prefix, int limit, boolean virtualThreads) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(prefix);
+        executor.setConcurrencyLimit(Math.max(1, limit));
+        executor.setVirtualThreads(virtualThreads && Runtime.version().feature() >= 21);
+        return executor;
     }
 }
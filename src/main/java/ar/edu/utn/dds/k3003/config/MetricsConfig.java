@@ -16,10 +16,17 @@ public class MetricsConfig {
     public DatadogConfig datadogConfig(
             @Value("${management.datadog.metrics.export.apiKey}") String apiKey,
             @Value("${management.datadog.metrics.export.uri:https://api.datadoghq.com}") String uri,
-            @Value("${management.datadog.metrics.export.step:30s}") String step) {
+            @Value("${management.datadog.metrics.export.step:30s}") String step,
+            @Value("${management.datadog.metrics.export.enabled:true}") boolean enabled) {
 
         return new DatadogConfig() {
 
+            @Override
+            public boolean enabled() {
+                // false: las métricas se siguen registrando (actuator), pero no se envían a Datadog
+                return enabled;
+            }
+
             @Override
             public String apiKey() {
                 return apiKey;
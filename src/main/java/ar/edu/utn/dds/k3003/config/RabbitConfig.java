@@ -1,6 +1,11 @@
 package ar.edu.utn.dds.k3003.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,4 +26,56 @@ public class RabbitConfig {
     public Binding pdiBinding(Queue pdiQueue, DirectExchange pdiExchange) {
         return BindingBuilder.bind(pdiQueue).to(pdiExchange).with("pdi.process");
     }
+
+    /**
+     * Contenedor para PdiBatchWorker (worker.mode=batch): entrega listas de hasta batch-size mensajes,
+     * con ack manual. Toma el resto de spring.rabbitmq.listener.simple.* salvo el retry con reintentos
+     * locales, que no aplica a lotes (los fallos se resuelven con nack por mensaje).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "worker.mode", havingValue = "batch")
+    public SimpleRabbitListenerContainerFactory pdiBatchListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${worker.batch.size:20}") int batchSize,
+            @Value("${worker.batch.prefetch:40}") int prefetch,
+            @Value("${worker.batch.receive-timeout-ms:1000}") long receiveTimeoutMs,
+            @Value("${worker.batch.consumers:2}") int consumers) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain();
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(Math.max(1, batchSize));
+        // Con menos prefetch que batch-size el lote nunca se llena y cada entrega espera el receive-timeout
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setConcurrentConsumers(Math.max(1, consumers));
+        factory.setMaxConcurrentConsumers(Math.max(1, consumers));
+        return factory;
+    }
+
+    /**
+     * Contenedor para PdiVirtualWorker (worker.mode=virtual): pocos consumidores que sólo reparten,
+     * el trabajo corre en virtual threads y se confirma (ack manual) cuando termina cada future.
+     * El prefetch tiene que cubrir el tope de concurrencia o nunca se llega a usarlo.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "worker.mode", havingValue = "virtual")
+    public SimpleRabbitListenerContainerFactory pdiVirtualListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${worker.virtual.max-concurrency:200}") int maxConcurrency,
+            @Value("${worker.virtual.prefetch:250}") int prefetch,
+            @Value("${worker.virtual.consumers:1}") int consumers) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain();
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(Math.max(prefetch, maxConcurrency));
+        factory.setConcurrentConsumers(Math.max(1, consumers));
+        factory.setMaxConcurrentConsumers(Math.max(1, consumers));
+        return factory;
+    }
 }
@@ -2,6 +2,8 @@ package ar.edu.utn.dds.k3003.config;
 
 import ar.edu.utn.dds.k3003.clients.FuentesProxy;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -9,7 +11,9 @@ import org.springframework.context.annotation.Configuration;
 public class RestClientsConfig {
 
     @Bean
-    public FuentesProxy fuentesProxy(ObjectMapper mapper) {
-        return new FuentesProxy(mapper);
+    public FuentesProxy fuentesProxy(ObjectMapper mapper, OkHttpClient okHttpClient,
+                                     // variable de entorno URL_FUENTES (o la propiedad del mismo nombre)
+                                     @Value("${URL_FUENTES:https://tp-anual-dds-fuentes.onrender.com/api/}") String baseUrl) {
+        return new FuentesProxy(mapper, okHttpClient, baseUrl);
     }
 }
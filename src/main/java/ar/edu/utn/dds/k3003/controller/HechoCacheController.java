@@ -0,0 +1,23 @@
+package ar.edu.utn.dds.k3003.controller;
+
+import ar.edu.utn.dds.k3003.clients.SolicitudesRetrofitProxy;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/hechos")
+public class HechoCacheController {
+
+    private final SolicitudesRetrofitProxy solicitudes;
+
+    public HechoCacheController(SolicitudesRetrofitProxy solicitudes) {
+        this.solicitudes = solicitudes;
+    }
+
+    // DELETE /api/hechos/{hechoId}/estado → fuerza a reconsultar si el hecho está activo
+    @DeleteMapping("/{hechoId}/estado")
+    public ResponseEntity<Void> invalidarEstado(@PathVariable String hechoId) {
+        solicitudes.invalidar(hechoId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,11 +1,17 @@
 package ar.edu.utn.dds.k3003.controller;
 
+import ar.edu.utn.dds.k3003.controller.dtos.IngestaMasivaResponseDTO;
 import ar.edu.utn.dds.k3003.controller.dtos.ProcesamientoResponseDTO;
 import ar.edu.utn.dds.k3003.controller.dtos.PdIRequestDTO;
 import ar.edu.utn.dds.k3003.controller.dtos.PdIResponseDTO;
+import ar.edu.utn.dds.k3003.controller.dtos.PdIResumenResponseDTO;
+import ar.edu.utn.dds.k3003.exceptions.domain.pdi.PdIDuplicadoException;
 import ar.edu.utn.dds.k3003.facades.FachadaProcesadorPDI;
 import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
 import ar.edu.utn.dds.k3003.model.PdI;
+import ar.edu.utn.dds.k3003.services.ingesta.IngestaMasivaService;
+import ar.edu.utn.dds.k3003.services.ingesta.IngestaMasivaService.ResultadoItem;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,9 +21,19 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -29,34 +45,73 @@ public class PdIController {
     private final ar.edu.utn.dds.k3003.facades.FachadaSolicitudes solicitudes;
     private static final Logger log = LoggerFactory.getLogger(PdIController.class);
     private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final IngestaMasivaService ingestaMasiva;
+
+    static final int LIMITE_MAXIMO = 1000;
+    static final String HEADER_CURSOR = "X-Next-After";
 
     @Autowired
     public PdIController(
             FachadaProcesadorPDI fachadaProcesadorPdI,
             @Qualifier("solicitudesRetrofitProxy")
             ar.edu.utn.dds.k3003.facades.FachadaSolicitudes solicitudes,
-            RabbitTemplate rabbitTemplate) {
+            RabbitTemplate rabbitTemplate,
+            ObjectMapper objectMapper,
+            IngestaMasivaService ingestaMasiva) {
 
         this.fachadaProcesadorPdI = fachadaProcesadorPdI;
         this.solicitudes = solicitudes;
         this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.ingestaMasiva = ingestaMasiva;
     }
 
 
-    // GET /api/pdis?hecho={hechoId}  |  GET /api/pdis
-    @GetMapping
-    public ResponseEntity<List<PdIResponseDTO>> listarPdisPorHecho(
+    // GET /api/pdis?hecho={hechoId}  |  GET /api/pdis  (resumen: sin ocrText; ver /{id} y /{id}/ocr)
+    // Sin paginar → se streamea el array completo leyendo con cursor JDBC (memoria constante).
+    @GetMapping(params = {"!after", "!limit"})
+    public ResponseEntity<StreamingResponseBody> listarPdisPorHecho(
             @RequestParam(name = "hecho", required = false) String hechoId) {
 
         log.info("Hecho recibido → hechoId={}", hechoId);
 
-        List<PdIDTO> lista = (hechoId != null)
-                ? fachadaProcesadorPdI.buscarPorHecho(hechoId)
-                : fachadaProcesadorPdI.pdis();
+        StreamingResponseBody body = out -> escribirStream(hechoId, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // GET /api/pdis?after={id}&limit={n}[&hecho={hechoId}] → página por cursor
+    // Si la página vino llena, el header X-Next-After trae el cursor de la siguiente.
+    @GetMapping
+    public ResponseEntity<List<PdIResumenResponseDTO>> listarPdisPaginado(
+            @RequestParam(name = "hecho", required = false) String hechoId,
+            @RequestParam(name = "after", required = false) Long after,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+
+        int tamanio = Math.min(Math.max(limit != null ? limit : 100, 1), LIMITE_MAXIMO);
+        List<PdIResumenDTO> pagina = fachadaProcesadorPdI.pdisDesde(hechoId, after, tamanio);
 
-        log.info("Resultado consulta PdIs → hechoId={} count={}", hechoId, lista.size());
+        log.info("Resultado consulta PdIs → hechoId={} after={} count={}", hechoId, after, pagina.size());
 
-        return ResponseEntity.ok(lista.stream().map(this::toResponse).toList());
+        ResponseEntity.BodyBuilder resp = ResponseEntity.ok();
+        if (pagina.size() == tamanio) {
+            resp.header(HEADER_CURSOR, String.valueOf(pagina.get(pagina.size() - 1).id()));
+        }
+        return resp.body(pagina.stream().map(this::toResumen).toList());
+    }
+
+    private void escribirStream(String hechoId, OutputStream out) throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartArray();
+            fachadaProcesadorPdI.recorrerPdis(hechoId, dto -> {
+                try {
+                    gen.writeObject(toResumen(dto));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            gen.writeEndArray();
+        }
     }
 
     // GET /api/pdis/{id}
@@ -67,6 +122,14 @@ public class PdIController {
         return ResponseEntity.ok(toResponse(dto));
     }
 
+    // GET /api/pdis/{id}/ocr → sólo el texto OCR (los listados no lo traen)
+    @GetMapping(value = "/{id}/ocr", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> obtenerOcr(@PathVariable String id) {
+        return fachadaProcesadorPdI.ocrTextDe(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
     @PostMapping
     public ResponseEntity<ProcesamientoResponseDTO> procesarNuevoPdi(@RequestBody PdIRequestDTO req) {
         log.info("[ProcesadorPdI] Nuevo request recibido: hechoId={}, descripcion={}, imageUrl={}",
@@ -85,26 +148,7 @@ public class PdIController {
                     ));
         }
 
-        PdI existente = fachadaProcesadorPdI.buscarPorHecho(req.hechoId()).stream()
-                .filter(pdi -> pdi.imageUrl() != null && pdi.imageUrl().equals(req.imageUrl()))
-                .findFirst()
-                .map(pdiDTO -> fachadaProcesadorPdI.buscarPdIPorId(pdiDTO.id()))
-                .map(dto -> new PdI(dto.hechoId(), dto.descripcion(), dto.lugar(),
-                        dto.momento(), dto.contenido(), dto.imageUrl()))
-                .orElse(null);
-
-        if (existente != null) {
-            log.warn("[ProcesadorPdI] ⚠️ PdI duplicado detectado (hechoId={}, imageUrl={})", req.hechoId(), req.imageUrl());
-            return ResponseEntity
-                    .status(HttpStatus.CONFLICT) // 409 Conflict
-                    .body(new ProcesamientoResponseDTO(
-                            null,
-                            PdI.ProcessingState.ERROR,
-                            List.of("Ya existe un PdI registrado para este hecho con la misma imagen.")
-                    ));
-        }
-
-        // 🔹 2️⃣ Crear PdI en estado PENDING y persistirlo
+        // 🔹 2️⃣ Crear PdI en estado PENDING y persistirlo (la base rechaza duplicados hecho + imagen)
         PdI nuevo = new PdI(
                 req.hechoId(),
                 req.descripcion(),
@@ -115,7 +159,20 @@ public class PdIController {
         );
         nuevo.setProcessingState(PdI.ProcessingState.PENDING);
 
-        PdI guardado = fachadaProcesadorPdI.guardarPendiente(nuevo);
+        PdI guardado;
+        try {
+            guardado = fachadaProcesadorPdI.registrarPendiente(nuevo);
+        } catch (PdIDuplicadoException e) {
+            log.warn("[ProcesadorPdI] ⚠️ PdI duplicado detectado (hechoId={}, imageUrl={}, existente={})",
+                    req.hechoId(), req.imageUrl(), e.getExistenteId());
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT) // 409 Conflict
+                    .body(new ProcesamientoResponseDTO(
+                            null,
+                            PdI.ProcessingState.ERROR,
+                            List.of("Ya existe un PdI registrado para este hecho con la misma imagen.")
+                    ));
+        }
         log.info("[ProcesadorPdI] PdI guardado con id={} y estado=PENDING", guardado.getId());
 
         // 🔹 3️⃣ Enviar el PdI completo a la cola (como JSON)
@@ -138,7 +195,11 @@ public class PdIController {
             ObjectMapper mapper = new ObjectMapper();
             mapper.registerModule(new JavaTimeModule());
             String json = mapper.writeValueAsString(dto);
-            rabbitTemplate.convertAndSend("pdi.direct", "pdi.process", json);
+            // El timestamp permite medir en el worker cuánto esperó el mensaje en la cola
+            rabbitTemplate.convertAndSend("pdi.direct", "pdi.process", json, m -> {
+                m.getMessageProperties().setTimestamp(new Date());
+                return m;
+            });
 
             log.info("[ProcesadorPdI] ✅ PdI id={} enviado a la cola 'pdi.process' (JSON)", guardado.getId());
 
@@ -164,6 +225,43 @@ public class PdIController {
         ));
     }
 
+    // POST /api/pdis/bulk → array JSON o NDJSON (application/x-ndjson) de PdIRequestDTO
+    // Se lee en streaming y se procesa de a lotes (ver IngestaMasivaService); responde el resultado de cada ítem.
+    // Si el body se corta o tiene un ítem mal formado, lo anterior queda procesado y se responde 400 con errorLectura.
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<IngestaMasivaResponseDTO> procesarLoteDePdis(InputStream body) throws IOException {
+        int tamanio = ingestaMasiva.tamanioLote();
+        List<ResultadoItem> resultados = new ArrayList<>();
+        List<PdIRequestDTO> lote = new ArrayList<>(tamanio);
+        String errorLectura = null;
+
+        // readValues recorre tanto los elementos de un array como valores sueltos separados por línea
+        try (MappingIterator<PdIRequestDTO> items = objectMapper.readerFor(PdIRequestDTO.class).readValues(body)) {
+            while (errorLectura == null) {
+                try {
+                    if (!items.hasNextValue()) break;
+                    lote.add(items.nextValue());
+                } catch (IOException | RuntimeException e) {
+                    // sólo errores de lectura: los del procesamiento de un lote no se tapan como body inválido
+                    errorLectura = "Ítem " + (resultados.size() + lote.size()) + " ilegible: " + e.getMessage();
+                    log.warn("[ProcesadorPdI] Alta masiva cortada: {}", errorLectura);
+                }
+                if (lote.size() == tamanio) {
+                    resultados.addAll(ingestaMasiva.procesarLote(lote, resultados.size()));
+                    lote.clear();
+                }
+            }
+        }
+        if (!lote.isEmpty()) resultados.addAll(ingestaMasiva.procesarLote(lote, resultados.size()));
+
+        int aceptados = (int) resultados.stream().filter(r -> r.status() == HttpStatus.ACCEPTED.value()).count();
+        log.info("[ProcesadorPdI] Alta masiva: {} ítems, {} aceptados", resultados.size(), aceptados);
+
+        IngestaMasivaResponseDTO respuesta = new IngestaMasivaResponseDTO(
+                aceptados, resultados.size() - aceptados, errorLectura, resultados);
+        return errorLectura == null ? ResponseEntity.ok(respuesta) : ResponseEntity.badRequest().body(respuesta);
+    }
+
     // DELETE /api/pdis/purge
     @DeleteMapping("/purge")
     public ResponseEntity<Void> borrarTodo() {
@@ -171,7 +269,17 @@ public class PdIController {
         return ResponseEntity.noContent().build();
     }
 
-    // ---------- mapper helper ----------
+    // ---------- mapper helpers ----------
+    private PdIResumenResponseDTO toResumen(PdIResumenDTO p) {
+        return new PdIResumenResponseDTO(
+                String.valueOf(p.id()),
+                p.hechoId(),
+                (p.processingState() != null) ? p.processingState().name() : null,
+                p.autoTags(),
+                p.processedAt()
+        );
+    }
+
     private PdIResponseDTO toResponse(PdIDTO p) {
         // Ahora leemos todo directamente del PdIDTO extendido
         return new PdIResponseDTO(
@@ -0,0 +1,12 @@
+package ar.edu.utn.dds.k3003.controller.dtos;
+
+import ar.edu.utn.dds.k3003.services.ingesta.IngestaMasivaService.ResultadoItem;
+
+import java.util.List;
+
+public record IngestaMasivaResponseDTO(
+        int aceptados,
+        int rechazados,
+        String errorLectura,        // el body dejó de poder leerse a partir del ítem siguiente al último informado
+        List<ResultadoItem> items
+) {}
@@ -0,0 +1,20 @@
+package ar.edu.utn.dds.k3003.controller.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record PdIResumenResponseDTO(
+        String id,
+        @JsonProperty("hecho_id") String hechoId,
+
+        @JsonProperty("estado")
+        String processingState,
+
+        @JsonProperty("auto_tags")
+        List<String> autoTags,
+
+        @JsonProperty("processed_at")
+        LocalDateTime processedAt
+) {}
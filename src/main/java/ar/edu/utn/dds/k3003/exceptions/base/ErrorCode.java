@@ -3,5 +3,8 @@ package ar.edu.utn.dds.k3003.exceptions.base;
 public enum ErrorCode {
     HECHO_INACTIVO,
     HECHO_INEXISTENTE,
-    SOLICITUDES_COMUNICACION
+    PDI_DUPLICADO,
+    SOLICITUDES_COMUNICACION,
+    DEPENDENCIA_NO_DISPONIBLE,
+    IMAGEN_RECHAZADA
 }
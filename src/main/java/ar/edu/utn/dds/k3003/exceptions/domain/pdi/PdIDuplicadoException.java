@@ -0,0 +1,17 @@
+package ar.edu.utn.dds.k3003.exceptions.domain.pdi;
+
+import ar.edu.utn.dds.k3003.exceptions.base.AppException;
+import ar.edu.utn.dds.k3003.exceptions.base.ErrorCode;
+import lombok.Getter;
+
+@Getter
+public class PdIDuplicadoException extends AppException {
+    private final String hechoId;
+    private final Long existenteId;
+
+    public PdIDuplicadoException(String hechoId, Long existenteId) {
+        super(ErrorCode.PDI_DUPLICADO, "Ya existe un PdI para el hecho " + hechoId + " con esa imageUrl (id " + existenteId + ")");
+        this.hechoId = hechoId;
+        this.existenteId = existenteId;
+    }
+}
@@ -0,0 +1,33 @@
+package ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen;
+
+import ar.edu.utn.dds.k3003.exceptions.base.AppException;
+import ar.edu.utn.dds.k3003.exceptions.base.ErrorCode;
+import lombok.Getter;
+
+/**
+ * La imagen de un PdI no se pudo usar: URL inválida, destino no permitido, demasiado grande, no es una imagen
+ * o el origen falló. Sólo ORIGEN es transitorio (5xx, timeout, conexión cortada): vale la pena reintentar.
+ */
+@Getter
+public class ImagenRechazadaException extends AppException {
+
+    public enum Motivo {
+        URL_INVALIDA, DESTINO_NO_PERMITIDO, DEMASIADO_GRANDE, NO_ES_IMAGEN, ORIGEN;
+
+        public boolean transitorio() {
+            return this == ORIGEN;
+        }
+    }
+
+    private final Motivo motivo;
+
+    public ImagenRechazadaException(Motivo motivo, String message) {
+        super(ErrorCode.IMAGEN_RECHAZADA, message);
+        this.motivo = motivo;
+    }
+
+    public ImagenRechazadaException(Motivo motivo, String message, Throwable cause) {
+        super(ErrorCode.IMAGEN_RECHAZADA, message, cause);
+        this.motivo = motivo;
+    }
+}
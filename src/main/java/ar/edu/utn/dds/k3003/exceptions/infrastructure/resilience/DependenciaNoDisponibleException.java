@@ -0,0 +1,18 @@
+package ar.edu.utn.dds.k3003.exceptions.infrastructure.resilience;
+
+import ar.edu.utn.dds.k3003.exceptions.base.AppException;
+import ar.edu.utn.dds.k3003.exceptions.base.ErrorCode;
+import lombok.Getter;
+
+/** Llamada rechazada sin salir a la red: circuito abierto o bulkhead lleno. */
+@Getter
+public class DependenciaNoDisponibleException extends AppException {
+    private final String dependencia;
+    private final String motivo;
+
+    public DependenciaNoDisponibleException(String dependencia, String motivo) {
+        super(ErrorCode.DEPENDENCIA_NO_DISPONIBLE, "Dependencia " + dependencia + " no disponible (" + motivo + ")");
+        this.dependencia = dependencia;
+        this.motivo = motivo;
+    }
+}
@@ -1,15 +1,22 @@
 package ar.edu.utn.dds.k3003.facades;
 
 import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
 import ar.edu.utn.dds.k3003.model.PdI;
 
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface FachadaProcesadorPDI {
 
     PdIDTO procesar(PdIDTO pdi) throws IllegalStateException;
 
+    /** Igual que {@link #procesar} sin bloquear: el future termina cuando el PdI quedó persistido. */
+    CompletableFuture<PdIDTO> procesarAsync(PdIDTO pdi);
+
     PdIDTO buscarPdIPorId(String pdiId) throws NoSuchElementException;
 
     List<PdIDTO> buscarPorHecho(String hechoId);
@@ -18,7 +25,19 @@ public interface FachadaProcesadorPDI {
 
     List<PdIDTO> pdis();
 
+    /** Página por cursor: hasta {@code limit} PdIs con id mayor a {@code after} (hechoId opcional). */
+    List<PdIResumenDTO> pdisDesde(String hechoId, Long after, int limit);
+
+    /** Recorre los PdIs (hechoId opcional) de a uno, sin cargarlos todos en memoria. */
+    void recorrerPdis(String hechoId, Consumer<PdIResumenDTO> consumidor);
+
+    /** Texto OCR de un PdI (vacío si no tiene); los listados no lo incluyen. */
+    Optional<String> ocrTextDe(String pdiId) throws NoSuchElementException;
+
     void borrarTodo();
 
     PdI guardarPendiente(PdI pdi);
+
+    /** Inserta un PdI nuevo; si ya hay uno para el mismo hecho e imageUrl lanza PdIDuplicadoException. */
+    PdI registrarPendiente(PdI pdi);
 }
\ No newline at end of file
@@ -1,7 +1,37 @@
 package ar.edu.utn.dds.k3003.facades;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
 public interface FachadaSolicitudes {
 
+    /** Lanza NoSuchElementException si Solicitudes no conoce el hecho. */
     boolean estaActivo(String unHechoId);
 
+    /**
+     * Resultado de {@link #estanActivos}: un hecho que no está en {@code activos} ni en {@code inexistentes}
+     * no se pudo verificar (Solicitudes sin responder).
+     */
+    record EstadoHechos(Map<String, Boolean> activos, Set<String> inexistentes) {
+    }
+
+    /** Estado de varios hechos a la vez (ingesta masiva); separa los inexistentes de los no verificados. */
+    default EstadoHechos estanActivos(Collection<String> hechoIds) {
+        Map<String, Boolean> activos = new HashMap<>();
+        Set<String> inexistentes = new HashSet<>();
+        for (String hechoId : hechoIds) {
+            try {
+                activos.put(hechoId, estaActivo(hechoId));
+            } catch (NoSuchElementException e) {
+                inexistentes.add(hechoId);
+            } catch (RuntimeException e) {
+                // sin verificar: el llamador lo informa por ítem
+            }
+        }
+        return new EstadoHechos(activos, inexistentes);
+    }
 }
@@ -0,0 +1,18 @@
+package ar.edu.utn.dds.k3003.facades.dtos;
+
+import ar.edu.utn.dds.k3003.model.PdI;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Vista liviana de un PdI para los listados: se arma directo desde la consulta
+ * (constructor JPQL), sin hidratar la entidad ni traer ocrText.
+ */
+public record PdIResumenDTO(
+        Long id,
+        String hechoId,
+        PdI.ProcessingState processingState,
+        List<String> autoTags,
+        LocalDateTime processedAt
+) {}
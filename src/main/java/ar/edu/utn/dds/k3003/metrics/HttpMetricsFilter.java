@@ -1,30 +1,103 @@
 package ar.edu.utn.dds.k3003.metrics;
 
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Timer {@code http.requests{method, route, status}} con histograma de percentiles.
+ * - route es el patrón con el que Spring resolvió el handler ({@code /api/pdis/{id}}), no la URI:
+ *   sin regex por request y sin ids en los tags. Sin handler queda NOT_FOUND (404) o UNKNOWN.
+ * - status es la clase (2xx, 4xx...); una excepción que sale de la cadena cuenta como 5xx.
+ * - Tope de rutas distintas ({@code http.metrics.max-routes}); pasado el tope se agrupan en OTHER.
+ * - Requests asincrónicos (StreamingResponseBody) se miden al completarse, no al liberar el thread.
+ */
+@Slf4j
 @Component
 public class HttpMetricsFilter implements Filter {
 
+    private static final Set<String> METODOS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS");
+    private static final String[] CLASES_STATUS = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
     private final MeterRegistry registry;
+    private final int maxRutas;
+    private final Set<String> rutas = ConcurrentHashMap.newKeySet();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private volatile boolean topeAvisado;
 
-    public HttpMetricsFilter(MeterRegistry registry) {
+    public HttpMetricsFilter(MeterRegistry registry,
+                             @Value("${http.metrics.max-routes:100}") int maxRutas) {
         this.registry = registry;
+        this.maxRutas = Math.max(1, maxRutas);
     }
 
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
             throws IOException, ServletException {
         HttpServletRequest r = (HttpServletRequest) req;
+        HttpServletResponse s = (HttpServletResponse) res;
+        long inicio = System.nanoTime();
+        boolean fallo = true;
         try {
             chain.doFilter(req, res);
+            fallo = false;
         } finally {
-            String method = r.getMethod();
-            String path   = r.getRequestURI().replaceAll("/\\d+", "/{id}");
-            registry.counter("http.requests.count", "method", method, "path", path).increment();
+            if (!fallo && r.isAsyncStarted()) {
+                r.getAsyncContext().addListener(new AsyncListener() {
+                    @Override public void onComplete(AsyncEvent e) { registrar(r, s.getStatus(), inicio); }
+                    @Override public void onTimeout(AsyncEvent e) { }
+                    @Override public void onError(AsyncEvent e) { }
+                    @Override public void onStartAsync(AsyncEvent e) { }
+                });
+            } else {
+                registrar(r, fallo ? 500 : s.getStatus(), inicio);
+            }
+        }
+    }
+
+    private void registrar(HttpServletRequest r, int status, long inicio) {
+        String metodo = METODOS.contains(r.getMethod()) ? r.getMethod() : "OTHER";
+        String ruta = ruta(r, status);
+        String clase = status >= 100 && status < 600 ? CLASES_STATUS[status / 100 - 1] : "UNKNOWN";
+
+        timers.computeIfAbsent(metodo + ' ' + ruta + ' ' + clase, k -> Timer.builder("http.requests")
+                        .description("Latencia de requests HTTP por ruta")
+                        .tag("method", metodo)
+                        .tag("route", ruta)
+                        .tag("status", clase)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry))
+                .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    private String ruta(HttpServletRequest r, int status) {
+        Object patron = r.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (patron == null) return status == 404 ? "NOT_FOUND" : "UNKNOWN";
+
+        String ruta = patron.toString();
+        if (rutas.contains(ruta)) return ruta;
+        if (rutas.size() >= maxRutas) {
+            if (!topeAvisado) {
+                topeAvisado = true;
+                log.warn("[HttpMetrics] tope de {} rutas alcanzado; las nuevas se agrupan en OTHER", maxRutas);
+            }
+            return "OTHER";
         }
+        rutas.add(ruta);
+        return ruta;
     }
 }
@@ -0,0 +1,92 @@
+package ar.edu.utn.dds.k3003.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers por etapa del procesamiento de un PdI, todos con histograma de percentiles
+ * (p50/p95/p99 agregables entre instancias) acotado a {@link #MINIMO}..{@link #MAXIMO}.
+ * - {@code pdi.etapa.tiempo{etapa}}: espera en la cola de Rabbit, búsqueda de duplicado, descarga de la imagen,
+ *   notificación a Fuentes.
+ * - {@code pdi.repositorio.save{operacion}}: cada save (alta, alta en lote, actualización, registro en el outbox).
+ * - {@code pdi.tagging.provider{provider, resultado}}: cada TagProvider, ok o error.
+ * Los tags salen de enums o de los nombres de los TagProvider registrados: la cardinalidad es fija.
+ */
+@Component
+public class ProcesamientoMetrics {
+
+    static final Duration MINIMO = Duration.ofMillis(1);
+    static final Duration MAXIMO = Duration.ofMinutes(5);
+
+    public enum Etapa { COLA, DEDUPE, DESCARGA, NOTIFICACION }
+
+    public enum Operacion { ALTA, LOTE, ACTUALIZACION, OUTBOX }
+
+    private final MeterRegistry registry;
+    private final Map<Etapa, Timer> etapas = new EnumMap<>(Etapa.class);
+    private final Map<Operacion, Timer> saves = new EnumMap<>(Operacion.class);
+    private final Map<String, Timer> providers = new ConcurrentHashMap<>();
+
+    public ProcesamientoMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Etapa e : Etapa.values()) {
+            etapas.put(e, histograma("pdi.etapa.tiempo")
+                    .description("Tiempo de cada etapa del procesamiento de un PdI")
+                    .tag("etapa", tag(e))
+                    .register(registry));
+        }
+        for (Operacion o : Operacion.values()) {
+            saves.put(o, histograma("pdi.repositorio.save")
+                    .description("Tiempo de cada save del procesamiento de un PdI")
+                    .tag("operacion", tag(o))
+                    .register(registry));
+        }
+    }
+
+    /** Builder de Timer con el histograma de percentiles que usan todos los timers del procesamiento. */
+    public static Timer.Builder histograma(String nombre) {
+        return Timer.builder(nombre)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MINIMO)
+                .maximumExpectedValue(MAXIMO);
+    }
+
+    public Timer etapa(Etapa etapa) {
+        return etapas.get(etapa);
+    }
+
+    public Timer save(Operacion operacion) {
+        return saves.get(operacion);
+    }
+
+    public void provider(String provider, boolean ok, long nanos) {
+        String resultado = ok ? "ok" : "error";
+        providers.computeIfAbsent(provider + '|' + resultado, k -> histograma("pdi.tagging.provider")
+                        .description("Tiempo de cada TagProvider")
+                        .tag("provider", provider)
+                        .tag("resultado", resultado)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Tiempo en la cola de Rabbit desde el timestamp que puso el publicador; sin timestamp no se registra. */
+    public void esperaEnCola(Date publicado) {
+        if (publicado == null) return;
+        long ms = System.currentTimeMillis() - publicado.getTime();
+        // relojes desfasados entre instancias: una espera negativa se toma como cero
+        etapas.get(Etapa.COLA).record(Math.max(0, ms), TimeUnit.MILLISECONDS);
+    }
+
+    private static String tag(Enum<?> valor) {
+        return valor.name().toLowerCase(Locale.ROOT);
+    }
+}
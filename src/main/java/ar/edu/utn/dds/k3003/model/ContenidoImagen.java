@@ -0,0 +1,66 @@
+package ar.edu.utn.dds.k3003.model;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultados de OCR y tags indexados por el SHA-256 de los bytes de la imagen (no de la URL):
+ * la misma foto servida desde otra URL (variantes de CDN, query strings) reutiliza lo ya calculado.
+ */
+@Entity
+@Table(name = "contenido_imagen")
+@Getter
+@NoArgsConstructor
+public class ContenidoImagen implements Persistable<String> {
+
+    // SHA-256 (hex) del contenido
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "content_type", length = 32)
+    private String contentType;
+
+    private int bytes;
+
+    @Column(columnDefinition = "TEXT")
+    private String ocrText;
+
+    @Convert(converter = TagsJsonConverter.class)
+    @Column(columnDefinition = "TEXT")
+    private List<String> tags = new ArrayList<>();
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+
+    // La clave la asignamos nosotros: sin esto save() haría un SELECT previo (merge) en cada alta
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean nuevo;
+
+    public ContenidoImagen(String sha256, String contentType, int bytes, String ocrText, List<String> tags) {
+        this.sha256 = sha256;
+        this.contentType = contentType;
+        this.bytes = bytes;
+        this.ocrText = ocrText;
+        this.tags = tags == null ? new ArrayList<>() : new ArrayList<>(tags);
+        this.creadoEn = LocalDateTime.now();
+        this.nuevo = true;
+    }
+
+    @Override
+    public String getId() {
+        return sha256;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nuevo;
+    }
+}
@@ -0,0 +1,59 @@
+package ar.edu.utn.dds.k3003.model;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila del outbox de notificaciones al módulo Fuentes.
+ * Se escribe en la misma transacción que el PdI y la drena {@code FuentesOutboxDispatcher}.
+ */
+@Entity
+@Table(name = "fuentes_outbox",
+        indexes = @Index(name = "idx_fuentes_outbox_pendientes", columnList = "estado, proximo_intento_en"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class NotificacionFuentes {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "hecho_id", nullable = false)
+    private String hechoId;
+
+    @Column(name = "pdi_id")
+    private String pdiId;
+
+    // ProcesamientoFuentesDTO serializado (JSON)
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Estado estado = Estado.PENDIENTE;
+
+    private int intentos;
+
+    @Column(name = "proximo_intento_en", nullable = false)
+    private LocalDateTime proximoIntentoEn;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+
+    @Column(columnDefinition = "TEXT")
+    private String ultimoError;
+
+    public enum Estado { PENDIENTE, FALLIDA }
+
+    public NotificacionFuentes(String hechoId, String pdiId, String payload) {
+        this.hechoId = hechoId;
+        this.pdiId = pdiId;
+        this.payload = payload;
+        this.creadoEn = LocalDateTime.now();
+        this.proximoIntentoEn = this.creadoEn;
+    }
+}
@@ -6,19 +6,31 @@ import jakarta.persistence.*;
 
 import lombok.*;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_pdi_hecho_imagen", columnNames = {"hecho_id", "image_url_hash"}))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class PdI {
 
+    public static final String SECUENCIA_IDS = "pdi_seq";
+    public static final int ASIGNACION_IDS = 50;
+
+    // Secuencia con bloques de ASIGNACION_IDS (optimizador pooled): los inserts se pueden agrupar en batches JDBC,
+    // cosa que IDENTITY impide. PdISecuenciaAlineador la adelanta sobre los ids de la época de IDENTITY.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pdi_seq")
+    @SequenceGenerator(name = "pdi_seq", sequenceName = SECUENCIA_IDS, allocationSize = ASIGNACION_IDS)
     private Long id;
 
     @Column(name = "hecho_id")
@@ -32,15 +44,20 @@ public class PdI {
     @Column(name = "image_url", length = 2048)
     private String imageUrl;
 
+    // SHA-256 (hex) de imageUrl: clave de tamaño fijo para el índice único (hecho_id, image_url_hash)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "image_url_hash", length = 64)
+    private String imageUrlHash;
+
     private String contenido;
 
     // 🔽 Resultados del procesamiento de imagen
     @Lob
     private String ocrText;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "pdi_auto_tags")
-    @Column(name = "tag")
+    // Array JSON en la propia fila: listar PdIs no dispara una consulta extra por cada uno
+    @Convert(converter = TagsJsonConverter.class)
+    @Column(name = "auto_tags", columnDefinition = "TEXT")
     private List<String> autoTags = new ArrayList<>();
 
     @Enumerated(EnumType.STRING)
@@ -59,11 +76,33 @@ public class PdI {
         this.lugar = lugar;
         this.momento = momento;
         this.contenido = contenido;
+        setImageUrl(imageUrl);
+    }
+
+    public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
+        this.imageUrlHash = hashImageUrl(imageUrl);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void sincronizarHash() {
+        this.imageUrlHash = hashImageUrl(imageUrl);
+    }
+
+    public static String hashImageUrl(String imageUrl) {
+        if (imageUrl == null || imageUrl.isBlank()) return null;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(imageUrl.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 
     public void setAutoTags(List<String> tags) {
-        this.autoTags.clear();
-        if (tags != null) this.autoTags.addAll(tags);
+        // Se reemplaza la lista entera (una sola columna) en vez de mutarla en el lugar
+        this.autoTags = tags == null ? new ArrayList<>() : new ArrayList<>(tags);
     }
 }
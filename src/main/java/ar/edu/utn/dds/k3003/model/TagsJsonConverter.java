@@ -0,0 +1,41 @@
+package ar.edu.utn.dds.k3003.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guarda la lista de tags como un array JSON en una sola columna TEXT
+ * (vale igual en Postgres y en H2): se lee con la fila y se escribe con un único UPDATE.
+ */
+@Converter
+public class TagsJsonConverter implements AttributeConverter<List<String>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<String>> TIPO = new TypeReference<>() {};
+
+    @Override
+    public String convertToDatabaseColumn(List<String> tags) {
+        if (tags == null || tags.isEmpty()) return "[]";
+        try {
+            return MAPPER.writeValueAsString(tags);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudieron serializar los tags", e);
+        }
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(String json) {
+        if (json == null || json.isBlank()) return new ArrayList<>();
+        try {
+            return new ArrayList<>(MAPPER.readValue(json, TIPO));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Columna auto_tags con JSON inválido: " + json, e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ar.edu.utn.dds.k3003.repository;
+
+import ar.edu.utn.dds.k3003.model.ContenidoImagen;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ContenidoImagenRepository extends JpaRepository<ContenidoImagen, String> {
+}
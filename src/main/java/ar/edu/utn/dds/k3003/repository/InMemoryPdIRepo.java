@@ -1,45 +1,191 @@
 package ar.edu.utn.dds.k3003.repository;
 
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
 import ar.edu.utn.dds.k3003.model.PdI;
 
 import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
+/**
+ * Repositorio en memoria, seguro para varios listeners concurrentes.
+ * - IDs asignados sin locks (AtomicLong) al guardar un PdI sin id.
+ * - Índice primario por id y secundarios por hechoId y por (hechoId, hash de imageUrl).
+ * - save() es upsert: actualizar un PdI reubica sus índices en vez de duplicarlo.
+ * - (hechoId, imageUrl) es único, igual que en la base: un duplicado lanza DataIntegrityViolationException.
+ * Pensado como reemplazo rápido del repositorio JPA para tests y corridas de carga locales.
+ */
 @Repository
 @Profile("test")
 public class InMemoryPdIRepo implements PdIRepository {
-    private final Map<Long, PdI> diccionarioPdI = new HashMap<>();
-    private final Map<String, List<PdI>> diccionarioHechos = new HashMap<>();
 
+    // Claves con las que quedó indexado cada PdI (el llamador puede mutar la entidad después)
+    private record Registro(PdI pdi, String hechoId, ClaveImagen imagen) {}
+
+    private record ClaveImagen(String hechoId, String imageUrlHash) {
+        static ClaveImagen de(String hechoId, String imageUrlHash) {
+            return (hechoId == null || imageUrlHash == null) ? null : new ClaveImagen(hechoId, imageUrlHash);
+        }
+    }
+
+    private final AtomicLong generadorID = new AtomicLong(0);
+    private final ConcurrentMap<Long, Registro> porId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long, PdI>> porHecho = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ClaveImagen, Long> porImagen = new ConcurrentHashMap<>();
+
+    @Override
     public PdI save(PdI pdi) {
-        diccionarioPdI.put(pdi.getId(), pdi);
-        diccionarioHechos.computeIfAbsent(pdi.getHechoId(), k -> new ArrayList<>()).add(pdi);
+        Objects.requireNonNull(pdi, "pdi no puede ser null");
+        if (pdi.getId() == null) {
+            pdi.setId(generadorID.incrementAndGet());
+        } else {
+            generadorID.accumulateAndGet(pdi.getId(), Math::max);
+        }
+
+        // compute serializa las escrituras sobre el mismo id; ids distintos no se bloquean entre sí
+        porId.compute(pdi.getId(), (id, anterior) -> {
+            Registro nuevo = new Registro(pdi, pdi.getHechoId(),
+                    ClaveImagen.de(pdi.getHechoId(), PdI.hashImageUrl(pdi.getImageUrl())));
+            reservarImagen(id, nuevo);          // primero la restricción única: si falla no se toca nada
+            if (anterior != null) desindexar(id, anterior, nuevo);
+            indexar(id, nuevo);
+            return nuevo;
+        });
         return pdi;
     }
 
+    @Override
+    public <S extends PdI> List<S> saveAll(Iterable<S> pdis) {
+        List<S> guardados = new ArrayList<>();
+        for (S pdi : pdis) {
+            save(pdi);
+            guardados.add(pdi);
+        }
+        return guardados;
+    }
+
+    @Override
     public Optional<PdI> findById(Long id) {
-        return Optional.ofNullable(diccionarioPdI.get(id));
+        if (id == null) return Optional.empty();
+        Registro r = porId.get(id);
+        return Optional.ofNullable(r != null ? r.pdi() : null);
     }
 
+    @Override
     public List<PdI> findByHechoId(String hechoId) {
-        return diccionarioHechos.getOrDefault(hechoId, new ArrayList<>());
+        ConcurrentNavigableMap<Long, PdI> pdis = (hechoId != null) ? porHecho.get(hechoId) : null;
+        return (pdis == null) ? new ArrayList<>() : new ArrayList<>(pdis.values());
     }
 
     @Override
     public List<PdI> findAll() {
-        return new ArrayList<>(diccionarioPdI.values());
+        return ordenados().toList();
     }
 
     @Override
     public void deleteAll() {
-        diccionarioPdI.clear();
-        diccionarioHechos.clear();
+        porId.clear();
+        porHecho.clear();
+        porImagen.clear();
+    }
+
+    @Override
+    public PdI findByHechoIdAndImageUrlHash(String hechoId, String imageUrlHash) {
+        ClaveImagen clave = ClaveImagen.de(hechoId, imageUrlHash);
+        Long id = (clave != null) ? porImagen.get(clave) : null;
+        return (id != null) ? findById(id).orElse(null) : null;
+    }
+
+    @Override
+    public List<PdI> findByHechoIdInAndImageUrlHashIn(Collection<String> hechoIds, Collection<String> imageUrlHashes) {
+        List<PdI> encontrados = new ArrayList<>();
+        for (String hechoId : hechoIds) {
+            for (String hash : imageUrlHashes) {
+                PdI pdi = findByHechoIdAndImageUrlHash(hechoId, hash);
+                if (pdi != null) encontrados.add(pdi);
+            }
+        }
+        return encontrados;
+    }
+
+    @Override
+    public List<PdIResumenDTO> findResumenesDesde(Long afterId, Limit limit) {
+        return pagina(ordenados(), afterId, limit);
+    }
+
+    @Override
+    public List<PdIResumenDTO> findResumenesPorHechoDesde(String hechoId, Long afterId, Limit limit) {
+        ConcurrentNavigableMap<Long, PdI> pdis = (hechoId != null) ? porHecho.get(hechoId) : null;
+        if (pdis == null) return new ArrayList<>();
+        return pagina(pdis.tailMap(afterId, false).values().stream(), Long.MIN_VALUE, limit);
+    }
+
+    @Override
+    public Stream<PdIResumenDTO> streamResumenes() {
+        return ordenados().map(InMemoryPdIRepo::resumen);
     }
 
     @Override
-    public PdI findByHechoIdAndImageUrl(String hechoId, String imageUrl) {
-        return null;
+    public Stream<PdIResumenDTO> streamResumenesPorHecho(String hechoId) {
+        return findByHechoId(hechoId).stream().map(InMemoryPdIRepo::resumen);
+    }
+
+    @Override
+    public Optional<String> findOcrTextById(Long id) {
+        return findById(id).map(PdI::getOcrText);
+    }
+
+    private Stream<PdI> ordenados() {
+        return porId.values().stream()
+                .map(Registro::pdi)
+                .sorted(Comparator.comparing(PdI::getId));
+    }
+
+    private static PdIResumenDTO resumen(PdI p) {
+        return new PdIResumenDTO(p.getId(), p.getHechoId(), p.getProcessingState(),
+                p.getAutoTags(), p.getProcessedAt());
+    }
+
+    // ---------- índices ----------
+
+    private void reservarImagen(Long id, Registro r) {
+        if (r.imagen() == null) return;
+        Long previo = porImagen.putIfAbsent(r.imagen(), id);
+        if (previo != null && !previo.equals(id)) {
+            throw new DataIntegrityViolationException(
+                    "Ya existe el PdI " + previo + " para hecho " + r.hechoId() + " con la misma imageUrl");
+        }
+    }
+
+    private void indexar(Long id, Registro r) {
+        if (r.hechoId() != null) {
+            porHecho.computeIfAbsent(r.hechoId(), k -> new ConcurrentSkipListMap<>()).put(id, r.pdi());
+        }
+    }
+
+    private void desindexar(Long id, Registro anterior, Registro nuevo) {
+        if (anterior.hechoId() != null && !anterior.hechoId().equals(nuevo.hechoId())) {
+            ConcurrentNavigableMap<Long, PdI> pdis = porHecho.get(anterior.hechoId());
+            if (pdis != null) pdis.remove(id);
+        }
+        if (anterior.imagen() != null && !anterior.imagen().equals(nuevo.imagen())) {
+            porImagen.remove(anterior.imagen(), id);
+        }
+    }
+
+    private static List<PdIResumenDTO> pagina(Stream<PdI> pdis, Long afterId, Limit limit) {
+        return pdis.filter(p -> p.getId() > afterId)
+                .limit(limit.isLimited() ? limit.max() : Long.MAX_VALUE)
+                .map(InMemoryPdIRepo::resumen)
+                .toList();
     }
 }
@@ -1,16 +1,51 @@
 package ar.edu.utn.dds.k3003.repository;
 
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
 import ar.edu.utn.dds.k3003.model.PdI;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 @Profile("!test")
 public interface JpaPdIRepository extends JpaRepository<PdI, Long>, PdIRepository {
 
     List<PdI> findByHechoId(String hechoId);
+
+    String RESUMEN = "select new ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO("
+            + "p.id, p.hechoId, p.processingState, p.autoTags, p.processedAt) from PdI p ";
+
+    @Override
+    @Query(RESUMEN + "where p.id > :afterId order by p.id")
+    List<PdIResumenDTO> findResumenesDesde(@Param("afterId") Long afterId, Limit limit);
+
+    @Override
+    @Query(RESUMEN + "where p.hechoId = :hechoId and p.id > :afterId order by p.id")
+    List<PdIResumenDTO> findResumenesPorHechoDesde(@Param("hechoId") String hechoId,
+                                                   @Param("afterId") Long afterId, Limit limit);
+
+    @Override
+    @Query(RESUMEN + "order by p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<PdIResumenDTO> streamResumenes();
+
+    @Override
+    @Query(RESUMEN + "where p.hechoId = :hechoId order by p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<PdIResumenDTO> streamResumenesPorHecho(@Param("hechoId") String hechoId);
+
+    @Override
+    @Query("select p.ocrText from PdI p where p.id = :id")
+    Optional<String> findOcrTextById(@Param("id") Long id);
 }
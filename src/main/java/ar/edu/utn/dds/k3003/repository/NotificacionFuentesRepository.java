@@ -0,0 +1,71 @@
+package ar.edu.utn.dds.k3003.repository;
+
+import ar.edu.utn.dds.k3003.model.NotificacionFuentes;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificacionFuentesRepository extends JpaRepository<NotificacionFuentes, Long> {
+
+    /**
+     * Toma un lote de notificaciones vencidas bloqueándolas (SKIP LOCKED donde el motor lo soporta),
+     * así varios nodos pueden drenar el outbox sin pisarse.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select n from NotificacionFuentes n "
+            + "where n.estado = :estado and n.proximoIntentoEn <= :ahora order by n.proximoIntentoEn, n.id")
+    List<NotificacionFuentes> tomarPorEstado(@Param("estado") NotificacionFuentes.Estado estado,
+                                             @Param("ahora") LocalDateTime ahora,
+                                             Pageable pageable);
+
+    default List<NotificacionFuentes> tomarPendientes(LocalDateTime ahora, Pageable pageable) {
+        return tomarPorEstado(NotificacionFuentes.Estado.PENDIENTE, ahora, pageable);
+    }
+
+    /**
+     * Id más nuevo pendiente por (hechoId, pdiId) entre TODAS las pendientes de esos hechos,
+     * incluidas las que todavía están en backoff o dentro de la ventana de coalescing.
+     * Filas [hechoId, pdiId, maxId].
+     */
+    @Query("select n.hechoId, n.pdiId, max(n.id) from NotificacionFuentes n "
+            + "where n.estado = :estado and n.hechoId in :hechoIds group by n.hechoId, n.pdiId")
+    List<Object[]> ultimasPorPdi(@Param("estado") NotificacionFuentes.Estado estado,
+                                 @Param("hechoIds") Collection<String> hechoIds);
+
+    /** Borra las pendientes del mismo hecho y PdI anteriores a {@code id} (superadas por esa). */
+    @Modifying
+    @Query("delete from NotificacionFuentes n where n.estado = :estado and n.hechoId = :hechoId "
+            + "and (n.pdiId = :pdiId or (n.pdiId is null and :pdiId is null)) and n.id < :id")
+    int borrarAnteriores(@Param("estado") NotificacionFuentes.Estado estado,
+                         @Param("hechoId") String hechoId,
+                         @Param("pdiId") String pdiId,
+                         @Param("id") Long id);
+
+    /**
+     * Guarda el resultado de un envío fallido sólo si la fila sigue existiendo: un merge de la entidad
+     * desacoplada la volvería a insertar (con otro id) si el coalescing ya la borró por una más nueva.
+     * Devuelve las filas actualizadas (0 = ya no estaba).
+     */
+    @Modifying
+    @Query("update NotificacionFuentes n set n.estado = :estado, n.intentos = :intentos, "
+            + "n.proximoIntentoEn = :proximoIntentoEn, n.ultimoError = :ultimoError where n.id = :id")
+    int reprogramar(@Param("id") Long id,
+                    @Param("estado") NotificacionFuentes.Estado estado,
+                    @Param("intentos") int intentos,
+                    @Param("proximoIntentoEn") LocalDateTime proximoIntentoEn,
+                    @Param("ultimoError") String ultimoError);
+}
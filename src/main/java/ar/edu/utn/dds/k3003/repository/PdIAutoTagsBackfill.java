@@ -0,0 +1,54 @@
+package ar.edu.utn.dds.k3003.repository;
+
+import ar.edu.utn.dds.k3003.model.TagsJsonConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Migra los tags de la vieja tabla pdi_auto_tags (ElementCollection) a la columna pdi.auto_tags.
+ * Sólo toca filas con auto_tags null; si la tabla vieja no existe no hace nada.
+ * La tabla vieja no se borra: queda de respaldo hasta limpiarla a mano.
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class PdIAutoTagsBackfill implements ApplicationRunner {
+
+    private final JdbcTemplate jdbc;
+    private final TagsJsonConverter converter = new TagsJsonConverter();
+
+    public PdIAutoTagsBackfill(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<Long, List<String>> tagsPorPdi = new LinkedHashMap<>();
+        try {
+            jdbc.query("select t.pdi_id, t.tag from pdi_auto_tags t join pdi p on p.id = t.pdi_id"
+                            + " where p.auto_tags is null order by t.pdi_id",
+                    rs -> {
+                        tagsPorPdi.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2));
+                    });
+        } catch (DataAccessException e) {
+            log.debug("[ProcesadorPdI] Sin tabla pdi_auto_tags para migrar: {}", e.getMessage());
+            return;
+        }
+        if (tagsPorPdi.isEmpty()) return;
+
+        List<Object[]> updates = new ArrayList<>(tagsPorPdi.size());
+        tagsPorPdi.forEach((id, tags) -> updates.add(new Object[]{converter.convertToDatabaseColumn(tags), id}));
+        jdbc.batchUpdate("update pdi set auto_tags = ? where id = ? and auto_tags is null", updates);
+        log.info("[ProcesadorPdI] Migrados los tags de {} PdIs a pdi.auto_tags", updates.size());
+    }
+}
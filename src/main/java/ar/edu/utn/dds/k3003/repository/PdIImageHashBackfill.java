@@ -0,0 +1,62 @@
+package ar.edu.utn.dds.k3003.repository;
+
+import ar.edu.utn.dds.k3003.model.PdI;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Completa image_url_hash en las filas creadas antes de que existiera la columna,
+ * para que queden cubiertas por la restricción única (hecho_id, image_url_hash).
+ * Si dos filas viejas colisionan, la segunda queda con hash null (no participa del índice) y se loguea.
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class PdIImageHashBackfill implements ApplicationRunner {
+
+    private final JdbcTemplate jdbc;
+    private final int lote;
+
+    public PdIImageHashBackfill(JdbcTemplate jdbc,
+                                @Value("${pdi.hash-backfill.batch-size:500}") int lote) {
+        this.jdbc = jdbc;
+        this.lote = Math.max(1, lote);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long ultimoId = 0;
+        int actualizadas = 0;
+        int enConflicto = 0;
+        while (true) {
+            List<Map<String, Object>> filas = jdbc.queryForList(
+                    "select id, image_url from pdi where image_url_hash is null and image_url is not null"
+                            + " and id > ? order by id fetch first " + lote + " rows only", ultimoId);
+            if (filas.isEmpty()) break;
+            for (Map<String, Object> fila : filas) {
+                long id = ((Number) fila.get("id")).longValue();
+                ultimoId = id;
+                try {
+                    jdbc.update("update pdi set image_url_hash = ? where id = ?",
+                            PdI.hashImageUrl((String) fila.get("image_url")), id);
+                    actualizadas++;
+                } catch (DataIntegrityViolationException e) {
+                    enConflicto++;
+                    log.warn("[ProcesadorPdI] PdI {} duplica hecho + imageUrl de otro existente; queda sin hash", id);
+                }
+            }
+        }
+        if (actualizadas > 0 || enConflicto > 0) {
+            log.info("[ProcesadorPdI] Backfill image_url_hash: {} actualizadas, {} en conflicto", actualizadas, enConflicto);
+        }
+    }
+}
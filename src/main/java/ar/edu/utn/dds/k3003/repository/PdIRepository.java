@@ -1,13 +1,21 @@
 package ar.edu.utn.dds.k3003.repository;
 
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
 import ar.edu.utn.dds.k3003.model.PdI;
 
+import org.springframework.data.domain.Limit;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PdIRepository {
     PdI save(PdI pdi);
 
+    // Alta en lote: con la secuencia de PdI.id y hibernate.jdbc.batch_size los inserts salen agrupados
+    <S extends PdI> List<S> saveAll(Iterable<S> pdis);
+
     Optional<PdI> findById(Long id);
 
     List<PdI> findByHechoId(String hechoId);
@@ -16,5 +24,29 @@ public interface PdIRepository {
 
     void deleteAll();
 
-    PdI findByHechoIdAndImageUrl(String hechoId, String imageUrl);
+    // Búsqueda de duplicados: un solo probe sobre el índice único (hecho_id, image_url_hash)
+    PdI findByHechoIdAndImageUrlHash(String hechoId, String imageUrlHash);
+
+    // Duplicados de un lote en una sola consulta: candidatos a filtrar por par (hecho, hash) del lado del llamador
+    List<PdI> findByHechoIdInAndImageUrlHashIn(Collection<String> hechoIds, Collection<String> imageUrlHashes);
+
+    default PdI findByHechoIdAndImageUrl(String hechoId, String imageUrl) {
+        String hash = PdI.hashImageUrl(imageUrl);
+        return (hechoId == null || hash == null) ? null : findByHechoIdAndImageUrlHash(hechoId, hash);
+    }
+
+    // Listados: proyección PdIResumenDTO (sin ocrText ni el resto de la entidad)
+
+    // Paginado por cursor (keyset): los PdIs con id > afterId, ordenados por id
+    List<PdIResumenDTO> findResumenesDesde(Long afterId, Limit limit);
+
+    List<PdIResumenDTO> findResumenesPorHechoDesde(String hechoId, Long afterId, Limit limit);
+
+    // Lectura incremental (cursor JDBC); hay que consumirlos dentro de una transacción y cerrarlos
+    Stream<PdIResumenDTO> streamResumenes();
+
+    Stream<PdIResumenDTO> streamResumenesPorHecho(String hechoId);
+
+    // Texto OCR de un único PdI, para servirlo aparte de los listados
+    Optional<String> findOcrTextById(Long id);
 }
@@ -0,0 +1,51 @@
+package ar.edu.utn.dds.k3003.repository;
+
+import ar.edu.utn.dds.k3003.model.PdI;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deja la secuencia de PdI.id por delante de los ids existentes.
+ * Las bases creadas cuando el id era IDENTITY tienen filas con ids que la secuencia (recién creada por
+ * ddl-auto, desde 1) volvería a entregar. Corre al levantar el contexto, después de que Hibernate
+ * actualizó el esquema y antes de que se acepten requests.
+ * - Consume un valor para ver por dónde va (se pierde un bloque de ids, no importa).
+ * - Sólo reinicia si ese bloque se pisa con el máximo id: con la secuencia ya adelantada no toca nada,
+ *   así otra instancia que arranca no le reinicia la secuencia a las que ya están asignando.
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class PdISecuenciaAlineador {
+
+    private final JdbcTemplate jdbc;
+    private final Dialect dialect;
+
+    // Depende del EntityManagerFactory: el esquema (y la secuencia) ya existe cuando corre
+    public PdISecuenciaAlineador(JdbcTemplate jdbc, EntityManagerFactory emf) {
+        this.jdbc = jdbc;
+        this.dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @PostConstruct
+    void alinear() {
+        Long siguiente = jdbc.queryForObject(
+                dialect.getSequenceSupport().getSequenceNextValString(PdI.SECUENCIA_IDS), Long.class);
+        Long maximo = jdbc.queryForObject("select coalesce(max(id), 0) from pdi", Long.class);
+        if (siguiente == null || maximo == null) return;
+
+        // El optimizador pooled usa los ids (valor - ASIGNACION_IDS, valor]
+        if (maximo > 0 && siguiente - PdI.ASIGNACION_IDS < maximo) {
+            long reinicio = maximo + PdI.ASIGNACION_IDS;
+            jdbc.execute("alter sequence " + PdI.SECUENCIA_IDS + " restart with " + reinicio);
+            log.info("[ProcesadorPdI] Secuencia {} adelantada a {} (máximo id existente {})",
+                    PdI.SECUENCIA_IDS, reinicio, maximo);
+        }
+    }
+}
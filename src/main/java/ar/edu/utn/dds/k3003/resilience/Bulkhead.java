@@ -0,0 +1,34 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Tope de llamadas concurrentes a una dependencia. No espera: si no hay lugar se rechaza en el acto,
+ * así una dependencia lenta no acapara los threads que necesitan las demás.
+ */
+public class Bulkhead {
+
+    private final int maximo;
+    private final Semaphore permisos;
+
+    public Bulkhead(int maximo) {
+        this.maximo = Math.max(1, maximo);
+        this.permisos = new Semaphore(this.maximo);
+    }
+
+    public boolean tomar() {
+        return permisos.tryAcquire();
+    }
+
+    public void liberar() {
+        permisos.release();
+    }
+
+    public int enUso() {
+        return maximo - permisos.availablePermits();
+    }
+
+    public int disponibles() {
+        return permisos.availablePermits();
+    }
+}
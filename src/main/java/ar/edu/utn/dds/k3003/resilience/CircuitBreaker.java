@@ -0,0 +1,166 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker por conteo: mira las últimas {@code ventana} llamadas.
+ * - CERRADO: abre si, con al menos {@code minLlamadas}, la tasa de fallas o de llamadas lentas supera su umbral.
+ * - ABIERTO: rechaza todo durante {@code esperaAbierto}; después pasa a SEMI_ABIERTO.
+ * - SEMI_ABIERTO: deja pasar {@code llamadasPrueba} llamadas; si vuelven a superar el umbral reabre, si no cierra.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMI_ABIERTO }
+
+    public record Config(int ventana, int minLlamadas, double umbralFallas,
+                         Duration llamadaLenta, double umbralLentas,
+                         Duration esperaAbierto, int llamadasPrueba) {
+        public Config {
+            ventana = Math.max(1, ventana);
+            minLlamadas = Math.max(1, Math.min(minLlamadas, ventana));
+            llamadasPrueba = Math.max(1, llamadasPrueba);
+        }
+    }
+
+    private static final byte OK = 0, FALLA = 1, LENTA = 2;
+
+    private final String nombre;
+    private final Config config;
+    private final Consumer<Estado> alCambiar;
+
+    // ventana circular de resultados (bit 0 = falla, bit 1 = lenta)
+    private final byte[] resultados;
+    private int proximo;
+    private int registradas;
+    private int fallas;
+    private int lentas;
+
+    private Estado estado = Estado.CERRADO;
+    private long abiertoHastaNanos;
+    private int pruebasEnCurso;
+    private int pruebasTerminadas;
+    private int pruebasMalas;
+
+    public CircuitBreaker(String nombre, Config config, Consumer<Estado> alCambiar) {
+        this.nombre = nombre;
+        this.config = config;
+        this.alCambiar = alCambiar;
+        this.resultados = new byte[config.ventana()];
+    }
+
+    /** Reserva el permiso para una llamada (en SEMI_ABIERTO consume un lugar de prueba). */
+    public synchronized boolean permitir() {
+        actualizarSiVencio();
+        return switch (estado) {
+            case CERRADO -> true;
+            case ABIERTO -> false;
+            case SEMI_ABIERTO -> {
+                if (pruebasEnCurso + pruebasTerminadas >= config.llamadasPrueba()) yield false;
+                pruebasEnCurso++;
+                yield true;
+            }
+        };
+    }
+
+    /** Si una llamada pasaría ahora, sin reservar nada (para saltear trabajo sin pagar el timeout). */
+    public synchronized boolean disponible() {
+        actualizarSiVencio();
+        return estado == Estado.CERRADO
+                || (estado == Estado.SEMI_ABIERTO
+                    && pruebasEnCurso + pruebasTerminadas < config.llamadasPrueba());
+    }
+
+    /** Devuelve un permiso reservado que al final no se usó (p.ej. lo rechazó el bulkhead). */
+    public synchronized void cancelar() {
+        if (estado == Estado.SEMI_ABIERTO) pruebasEnCurso = Math.max(0, pruebasEnCurso - 1);
+    }
+
+    public synchronized void registrar(boolean fallo, long duracionNanos) {
+        boolean lenta = duracionNanos >= config.llamadaLenta().toNanos();
+        switch (estado) {
+            case CERRADO -> {
+                agregar((byte) ((fallo ? FALLA : OK) | (lenta ? LENTA : OK)));
+                if (registradas >= config.minLlamadas() && superaUmbral(fallas, lentas, registradas)) {
+                    abrir();
+                }
+            }
+            case SEMI_ABIERTO -> {
+                pruebasEnCurso = Math.max(0, pruebasEnCurso - 1);
+                pruebasTerminadas++;
+                if (fallo || lenta) pruebasMalas++;
+                if (pruebasTerminadas >= config.llamadasPrueba()) {
+                    if (superaUmbral(pruebasMalas, pruebasMalas, pruebasTerminadas)) abrir();
+                    else cerrar();
+                }
+            }
+            case ABIERTO -> { /* resultado de una llamada que empezó antes de abrir: se ignora */ }
+        }
+    }
+
+    public synchronized Estado estado() {
+        actualizarSiVencio();
+        return estado;
+    }
+
+    /** Tasa de fallas (0..100) de la ventana actual. */
+    public synchronized double tasaFallas() {
+        return registradas == 0 ? 0.0 : 100.0 * fallas / registradas;
+    }
+
+    // ---------- internos ----------
+
+    private boolean superaUmbral(int malas, int malasLentas, int total) {
+        return 100.0 * malas / total >= config.umbralFallas()
+                || 100.0 * malasLentas / total >= config.umbralLentas();
+    }
+
+    private void agregar(byte r) {
+        if (registradas == resultados.length) {
+            byte viejo = resultados[proximo];
+            if ((viejo & FALLA) != 0) fallas--;
+            if ((viejo & LENTA) != 0) lentas--;
+        } else {
+            registradas++;
+        }
+        resultados[proximo] = r;
+        if ((r & FALLA) != 0) fallas++;
+        if ((r & LENTA) != 0) lentas++;
+        proximo = (proximo + 1) % resultados.length;
+    }
+
+    private void actualizarSiVencio() {
+        if (estado == Estado.ABIERTO && System.nanoTime() - abiertoHastaNanos >= 0) {
+            cambiar(Estado.SEMI_ABIERTO);
+            pruebasEnCurso = 0;
+            pruebasTerminadas = 0;
+            pruebasMalas = 0;
+        }
+    }
+
+    private void abrir() {
+        abiertoHastaNanos = System.nanoTime() + config.esperaAbierto().toNanos();
+        log.warn("[circuit:{}] ABIERTO por {} ms (fallas={}%, lentas={}%)", nombre,
+                config.esperaAbierto().toMillis(), Math.round(tasaFallas()),
+                registradas == 0 ? 0 : Math.round(100.0 * lentas / registradas));
+        cambiar(Estado.ABIERTO);
+    }
+
+    private void cerrar() {
+        registradas = 0;
+        proximo = 0;
+        fallas = 0;
+        lentas = 0;
+        log.info("[circuit:{}] CERRADO", nombre);
+        cambiar(Estado.CERRADO);
+    }
+
+    private void cambiar(Estado nuevo) {
+        if (estado == nuevo) return;
+        estado = nuevo;
+        alCambiar.accept(nuevo);
+    }
+}
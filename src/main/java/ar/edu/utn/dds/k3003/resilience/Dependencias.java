@@ -0,0 +1,84 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Registro de protecciones (circuit breaker + bulkhead) por dependencia externa: ocr, imglbl, solicitudes, fuentes.
+ * Cada una se configura con {@code resilience.<nombre>.*}; lo que no esté definido cae en {@code resilience.default.*}.
+ * Gauges: {@code circuit.estado} (0 cerrado, 1 abierto, 2 semi-abierto), {@code circuit.tasa_fallas},
+ * {@code bulkhead.en_uso} y {@code bulkhead.disponibles}, todos con tag {@code dependencia}.
+ */
+@Component
+public class Dependencias {
+
+    private final Environment env;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, ProteccionDependencia> protecciones = new ConcurrentHashMap<>();
+
+    public Dependencias(Environment env, MeterRegistry registry) {
+        this.env = env;
+        this.registry = registry;
+    }
+
+    public ProteccionDependencia obtener(String nombre) {
+        return protecciones.computeIfAbsent(nombre, this::crear);
+    }
+
+    /**
+     * Igual que {@link #obtener(String)}, fijando qué errores cuentan para abrir el circuito
+     * (p.ej. un 404 de negocio no debería). Lo llama el cliente dueño de la dependencia, una sola vez:
+     * un clasificador distinto para una dependencia ya clasificada falla con IllegalStateException.
+     */
+    public ProteccionDependencia obtener(String nombre, Predicate<Throwable> esFalla) {
+        ProteccionDependencia proteccion = obtener(nombre);
+        proteccion.clasificarFallas(esFalla);
+        return proteccion;
+    }
+
+    private ProteccionDependencia crear(String nombre) {
+        CircuitBreaker.Config config = new CircuitBreaker.Config(
+                entero(nombre, "window-size", 20),
+                entero(nombre, "min-calls", 10),
+                decimal(nombre, "failure-rate-threshold", 50),
+                Duration.ofMillis(entero(nombre, "slow-call-ms", 5000)),
+                decimal(nombre, "slow-call-rate-threshold", 80),
+                Duration.ofMillis(entero(nombre, "open-ms", 30000)),
+                entero(nombre, "half-open-calls", 3));
+
+        CircuitBreaker breaker = new CircuitBreaker(nombre, config,
+                estado -> registry.counter("circuit.transiciones", "dependencia", nombre,
+                        "estado", estado.name().toLowerCase()).increment());
+        Bulkhead bulkhead = new Bulkhead(entero(nombre, "max-concurrent", 10));
+
+        Gauge.builder("circuit.estado", breaker, b -> b.estado().ordinal())
+                .tag("dependencia", nombre).register(registry);
+        Gauge.builder("circuit.tasa_fallas", breaker, CircuitBreaker::tasaFallas)
+                .tag("dependencia", nombre).register(registry);
+        Gauge.builder("bulkhead.en_uso", bulkhead, Bulkhead::enUso)
+                .tag("dependencia", nombre).register(registry);
+        Gauge.builder("bulkhead.disponibles", bulkhead, Bulkhead::disponibles)
+                .tag("dependencia", nombre).register(registry);
+
+        return new ProteccionDependencia(nombre, breaker, bulkhead,
+                registry.counter("circuit.rechazadas", "dependencia", nombre),
+                registry.counter("bulkhead.rechazadas", "dependencia", nombre));
+    }
+
+    private int entero(String nombre, String clave, int porDefecto) {
+        return env.getProperty("resilience." + nombre + "." + clave, Integer.class,
+                env.getProperty("resilience.default." + clave, Integer.class, porDefecto));
+    }
+
+    private double decimal(String nombre, String clave, double porDefecto) {
+        return env.getProperty("resilience." + nombre + "." + clave, Double.class,
+                env.getProperty("resilience.default." + clave, Double.class, porDefecto));
+    }
+}
@@ -0,0 +1,54 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline absoluto de una operación (sobre System.nanoTime).
+ * Viaja hasta el cliente HTTP, que acota con lo que queda los timeouts de cada request: al vencer,
+ * la llamada se corta de verdad y devuelve conexión y thread, en vez de seguir corriendo detrás de un
+ * future que ya se dio por vencido.
+ */
+public final class Plazo {
+
+    /** Sin deadline: los timeouts por request quedan como estén configurados. */
+    public static final Plazo SIN_LIMITE = new Plazo(0L, false);
+
+    private final long limiteNanos;
+    private final boolean acotado;
+
+    private Plazo(long limiteNanos, boolean acotado) {
+        this.limiteNanos = limiteNanos;
+        this.acotado = acotado;
+    }
+
+    /** Vence dentro de {@code ms} milisegundos. */
+    public static Plazo en(long ms) {
+        return new Plazo(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, ms)), true);
+    }
+
+    public boolean sinLimite() {
+        return !acotado;
+    }
+
+    public boolean vencido() {
+        return acotado && limiteNanos - System.nanoTime() <= 0;
+    }
+
+    /** Milisegundos que quedan (0 si venció, Long.MAX_VALUE sin límite). */
+    public long restanteMs() {
+        if (!acotado) return Long.MAX_VALUE;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(limiteNanos - System.nanoTime()));
+    }
+
+    /** {@code timeoutMs} recortado a lo que queda del plazo; nunca 0 (para HttpClient 0 es "sin timeout"). */
+    public long acotar(long timeoutMs) {
+        return Math.max(1, Math.min(timeoutMs, restanteMs()));
+    }
+
+    /** El que vence primero de los dos. */
+    public Plazo antes(Plazo otro) {
+        if (!acotado) return otro;
+        if (!otro.acotado) return this;
+        return limiteNanos - otro.limiteNanos <= 0 ? this : otro;
+    }
+}
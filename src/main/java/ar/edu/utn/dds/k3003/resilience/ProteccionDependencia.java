@@ -0,0 +1,134 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.resilience.DependenciaNoDisponibleException;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker + bulkhead de una dependencia externa. Se obtiene de {@link Dependencias}.
+ * Las llamadas rechazadas fallan con {@link DependenciaNoDisponibleException} sin tocar la red.
+ * Qué errores cuentan como falla lo fija una sola vez el cliente dueño (hasta entonces cuenta todo).
+ */
+public class ProteccionDependencia {
+
+    private final String nombre;
+    private final CircuitBreaker breaker;
+    private final Bulkhead bulkhead;
+    private final AtomicReference<Predicate<Throwable>> clasificador = new AtomicReference<>();
+    private final Counter rechazadasCircuito;
+    private final Counter rechazadasBulkhead;
+
+    ProteccionDependencia(String nombre, CircuitBreaker breaker, Bulkhead bulkhead,
+                          Counter rechazadasCircuito, Counter rechazadasBulkhead) {
+        this.nombre = nombre;
+        this.breaker = breaker;
+        this.bulkhead = bulkhead;
+        this.rechazadasCircuito = rechazadasCircuito;
+        this.rechazadasBulkhead = rechazadasBulkhead;
+    }
+
+    /** Se fija una vez; otro clasificador para la misma dependencia es un error de configuración. */
+    void clasificarFallas(Predicate<Throwable> esFalla) {
+        if (!clasificador.compareAndSet(null, esFalla) && clasificador.get() != esFalla) {
+            throw new IllegalStateException("La dependencia " + nombre
+                    + " ya tiene un clasificador de fallas: lo fija un solo cliente");
+        }
+    }
+
+    private boolean esFalla(Throwable e) {
+        Predicate<Throwable> c = clasificador.get();
+        return c == null || c.test(e);
+    }
+
+    public String nombre() {
+        return nombre;
+    }
+
+    /** false si el circuito está abierto: conviene saltear la llamada en vez de esperar el rechazo. */
+    public boolean disponible() {
+        return breaker.disponible();
+    }
+
+    public CircuitBreaker.Estado estado() {
+        return breaker.estado();
+    }
+
+    /** Llamada sincrónica en el thread actual. */
+    public <T> T ejecutar(Supplier<T> llamada) {
+        entrar();
+        long t0 = System.nanoTime();
+        try {
+            T valor = llamada.get();
+            breaker.registrar(false, System.nanoTime() - t0);
+            return valor;
+        } catch (RuntimeException e) {
+            breaker.registrar(esFalla(e), System.nanoTime() - t0);
+            throw e;
+        } finally {
+            bulkhead.liberar();
+        }
+    }
+
+    /** Llamada ya asíncrona: el permiso del bulkhead se devuelve cuando termina el future. */
+    public <T> CompletableFuture<T> ejecutarAsync(Supplier<CompletableFuture<T>> llamada) {
+        try {
+            entrar();
+        } catch (DependenciaNoDisponibleException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long t0 = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = llamada.get();
+        } catch (RejectedExecutionException e) {
+            // Saturación local, no de la dependencia: no cuenta para el circuito
+            bulkhead.liberar();
+            breaker.cancelar();
+            return CompletableFuture.failedFuture(new DependenciaNoDisponibleException(nombre, "executor saturado"));
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((valor, error) -> {
+            bulkhead.liberar();
+            Throwable causa = (error instanceof CompletionException && error.getCause() != null)
+                    ? error.getCause() : error;
+            breaker.registrar(causa != null && esFalla(causa), System.nanoTime() - t0);
+        });
+    }
+
+    /**
+     * Llamada bloqueante que se corre en {@code executor}; el bulkhead acota cuántas ocupan ese executor.
+     * El executor tiene que rechazar cuando está lleno (no bloquear a quien encola): el rechazo falla el future.
+     */
+    public <T> CompletableFuture<T> ejecutarEn(Callable<T> llamada, Executor executor) {
+        return ejecutarAsync(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return llamada.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor));
+    }
+
+    private void entrar() {
+        if (!breaker.permitir()) {
+            rechazadasCircuito.increment();
+            throw new DependenciaNoDisponibleException(nombre, "circuito abierto");
+        }
+        if (!bulkhead.tomar()) {
+            breaker.cancelar();
+            rechazadasBulkhead.increment();
+            throw new DependenciaNoDisponibleException(nombre, "bulkhead lleno");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+/**
+ * Presupuesto de reintentos por dependencia (token bucket).
+ * - Cada primer intento deposita {@code ratio} tokens; cada reintento consume uno.
+ * - Además se recargan {@code minPorSegundo} tokens por segundo para que con poco tráfico se pueda reintentar.
+ * Así, cuando la dependencia está caída, los reintentos quedan acotados a ~ratio del tráfico
+ * en vez de multiplicarlo por maxIntentos.
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final double minPorSegundo;
+    private final double maximo;
+
+    private double tokens;
+    private long ultimaRecarga = System.nanoTime();
+
+    RetryBudget(double ratio, double minPorSegundo) {
+        this.ratio = Math.max(0.0, ratio);
+        this.minPorSegundo = Math.max(0.0, minPorSegundo);
+        this.maximo = Math.max(10.0, this.minPorSegundo * 10);
+        this.tokens = this.maximo;
+    }
+
+    synchronized void registrarIntento() {
+        recargar();
+        tokens = Math.min(maximo, tokens + ratio);
+    }
+
+    synchronized boolean tomarReintento() {
+        recargar();
+        if (tokens < 1.0) return false;
+        tokens -= 1.0;
+        return true;
+    }
+
+    private void recargar() {
+        long ahora = System.nanoTime();
+        tokens = Math.min(maximo, tokens + (ahora - ultimaRecarga) / 1e9 * minPorSegundo);
+        ultimaRecarga = ahora;
+    }
+}
@@ -0,0 +1,29 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parámetros de reintento de un cliente: backoff exponencial acotado con jitter.
+ * {@code jitter} es la fracción del delay que se randomiza (0 = fijo, 1 = "full jitter").
+ */
+public record RetryPolicy(int maxIntentos,
+                          Duration backoffInicial,
+                          Duration backoffMaximo,
+                          double multiplicador,
+                          double jitter) {
+
+    public RetryPolicy {
+        maxIntentos = Math.max(1, maxIntentos);
+        multiplicador = Math.max(1.0, multiplicador);
+        jitter = Math.min(1.0, Math.max(0.0, jitter));
+    }
+
+    /** Delay antes del intento {@code siguiente} (2, 3, ...). */
+    long delayMs(int siguiente) {
+        double base = backoffInicial.toMillis() * Math.pow(multiplicador, siguiente - 2);
+        double acotado = Math.min(base, backoffMaximo.toMillis());
+        double conJitter = acotado * (1.0 - jitter * ThreadLocalRandom.current().nextDouble());
+        return Math.max(0L, Math.round(conJitter));
+    }
+}
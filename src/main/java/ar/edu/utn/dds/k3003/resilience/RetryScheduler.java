@@ -0,0 +1,192 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.resilience.DependenciaNoDisponibleException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Reintentos sin Thread.sleep para los clientes salientes.
+ * - Cada intento devuelve un CompletableFuture; si falla con un error reintentable,
+ *   el siguiente se agenda en un timer compartido: mientras tanto ningún thread queda esperando.
+ * - El timer sólo dispara: cada reintento arranca en un thread propio (sin tope, virtual en JDK 21), así un
+ *   intento que bloquea al encolarse (etapa del pipeline llena) no frena a los demás reintentos agendados.
+ * - Un executor lleno (RejectedExecutionException) corta sin reintentar, igual que un circuito abierto.
+ * - Backoff exponencial con jitter según {@link RetryPolicy}.
+ * - Presupuesto de reintentos por cliente ({@link RetryBudget}) para no amplificar una caída.
+ * - Métricas: {@code retry.intentos}, {@code retry.reintentos} y {@code retry.agotados{motivo}} por cliente.
+ */
+@Slf4j
+@Component
+public class RetryScheduler {
+
+    private final ScheduledExecutorService timer;
+    private final SimpleAsyncTaskExecutor despachador;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, RetryBudget> presupuestos = new ConcurrentHashMap<>();
+
+    private final Duration backoffMaximo;
+    private final double jitter;
+    private final double budgetRatio;
+    private final double budgetMinPorSegundo;
+
+    public RetryScheduler(MeterRegistry registry,
+                          @Value("${retry.max-backoff-ms:5000}") long maxBackoffMs,
+                          @Value("${retry.jitter:0.5}") double jitter,
+                          @Value("${retry.budget.ratio:0.2}") double budgetRatio,
+                          @Value("${retry.budget.min-per-second:2}") double budgetMinPorSegundo) {
+        this.registry = registry;
+        this.backoffMaximo = Duration.ofMillis(Math.max(1, maxBackoffMs));
+        this.jitter = jitter;
+        this.budgetRatio = budgetRatio;
+        this.budgetMinPorSegundo = budgetMinPorSegundo;
+        // Un solo thread alcanza: sólo dispara los reintentos, nunca corre un intento
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "retry-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.despachador = new SimpleAsyncTaskExecutor("retry-");
+        this.despachador.setDaemon(true);
+        this.despachador.setVirtualThreads(Runtime.version().feature() >= 21);
+    }
+
+    /** Política con backoff exponencial x2 y los topes globales de retry.*. */
+    public RetryPolicy politica(int maxIntentos, long backoffInicialMs) {
+        return new RetryPolicy(maxIntentos, Duration.ofMillis(Math.max(1, backoffInicialMs)),
+                backoffMaximo, 2.0, jitter);
+    }
+
+    /** Para clientes bloqueantes (RestTemplate): cada intento corre en {@code executor}. */
+    public <T> CompletableFuture<T> ejecutar(String cliente, RetryPolicy politica,
+                                             Predicate<Throwable> reintentable,
+                                             Callable<T> llamada, Executor executor) {
+        return ejecutar(cliente, politica, reintentable, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return llamada.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor));
+    }
+
+    /** Para clientes ya asíncronos (p.ej. Retrofit enqueue): {@code intento} no debe bloquear. */
+    public <T> CompletableFuture<T> ejecutar(String cliente, RetryPolicy politica,
+                                             Predicate<Throwable> reintentable,
+                                             Supplier<CompletableFuture<T>> intento) {
+        RetryBudget presupuesto = presupuestos.computeIfAbsent(cliente,
+                k -> new RetryBudget(budgetRatio, budgetMinPorSegundo));
+        presupuesto.registrarIntento();
+
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        intentar(cliente, politica, reintentable, intento, presupuesto, 1, resultado);
+        return resultado;
+    }
+
+    private <T> void intentar(String cliente, RetryPolicy politica, Predicate<Throwable> reintentable,
+                              Supplier<CompletableFuture<T>> intento, RetryBudget presupuesto,
+                              int numero, CompletableFuture<T> resultado) {
+        registry.counter("retry.intentos", "cliente", cliente).increment();
+        CompletableFuture<T> actual;
+        try {
+            actual = intento.get();
+        } catch (RuntimeException e) {
+            actual = CompletableFuture.failedFuture(e);
+        }
+
+        actual.whenComplete((valor, error) -> {
+            if (error == null) {
+                resultado.complete(valor);
+                return;
+            }
+            Throwable causa = causa(error);
+            // Circuito abierto / bulkhead o executor lleno: reintentar sólo suma carga, se falla rápido
+            if (numero >= politica.maxIntentos() || causa instanceof DependenciaNoDisponibleException
+                    || causa instanceof RejectedExecutionException || !reintentable.test(causa)) {
+                if (numero > 1) registry.counter("retry.agotados", "cliente", cliente, "motivo", "intentos").increment();
+                resultado.completeExceptionally(causa);
+                return;
+            }
+            if (!presupuesto.tomarReintento()) {
+                log.warn("[retry:{}] presupuesto de reintentos agotado, se corta en intento={}", cliente, numero);
+                registry.counter("retry.agotados", "cliente", cliente, "motivo", "presupuesto").increment();
+                resultado.completeExceptionally(causa);
+                return;
+            }
+
+            long delay = politica.delayMs(numero + 1);
+            log.warn("[retry:{}] intento={} falló ({}), reintento en {}ms", cliente, numero, mensaje(causa), delay);
+            registry.counter("retry.reintentos", "cliente", cliente).increment();
+            try {
+                timer.schedule(() -> despachar(() -> intentar(cliente, politica, reintentable, intento,
+                        presupuesto, numero + 1, resultado), resultado), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                resultado.completeExceptionally(causa);   // apagando
+            }
+        });
+    }
+
+    private void despachar(Runnable reintento, CompletableFuture<?> resultado) {
+        try {
+            despachador.execute(reintento);
+        } catch (RuntimeException e) {
+            resultado.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Espera el resultado desde código sincrónico, relanzando la excepción original
+     * (no la CompletionException que la envuelve).
+     */
+    public static <T> T esperar(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Espera interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = causa(e);
+            if (causa instanceof RuntimeException re) throw re;
+            if (causa instanceof Error err) throw err;
+            throw new IllegalStateException(mensaje(causa), causa);
+        }
+    }
+
+    private static Throwable causa(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static String mensaje(Throwable e) {
+        String m = e.getMessage();
+        return (m == null) ? e.getClass().getSimpleName() : m.split("\\R", 2)[0];
+    }
+
+    @PreDestroy
+    void cerrar() {
+        timer.shutdownNow();
+    }
+}
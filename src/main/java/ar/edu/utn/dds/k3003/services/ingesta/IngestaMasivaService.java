@@ -0,0 +1,304 @@
+package ar.edu.utn.dds.k3003.services.ingesta;
+
+import ar.edu.utn.dds.k3003.controller.dtos.PdIRequestDTO;
+import ar.edu.utn.dds.k3003.exceptions.domain.pdi.PdIDuplicadoException;
+import ar.edu.utn.dds.k3003.facades.FachadaProcesadorPDI;
+import ar.edu.utn.dds.k3003.facades.FachadaSolicitudes;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics.Operacion;
+import ar.edu.utn.dds.k3003.model.PdI;
+import ar.edu.utn.dds.k3003.repository.PdIRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alta masiva de PdIs (POST /api/pdis/bulk), de a lotes de {@code pdi.bulk.batch-size}.
+ * Por lote, en vez de un request por PdI:
+ * - Los hechos distintos se verifican juntos contra Solicitudes (cache + consultas en paralelo):
+ *   un hecho inexistente es 404 y uno que no se pudo verificar, 503.
+ * - Los duplicados (contra la base y dentro del mismo lote) salen de una sola consulta.
+ * - Los nuevos se insertan en una transacción con batching JDBC (ids de secuencia, ver PdI).
+ *   Si la base rechaza el lote (otro request insertó el mismo hecho + imagen en el medio, un ítem inválido),
+ *   se reintenta de a uno y cada ítem informa lo suyo (409, 400 o 500) sin perder el resto del request.
+ * - Se publican a pdi.direct por un mismo canal y se espera un solo round de confirms para todo el lote;
+ *   los que el broker no confirma quedan en ERROR, igual que en el alta individual.
+ * Cada ítem informa su resultado con el status que tendría en POST /api/pdis.
+ */
+@Slf4j
+@Service
+public class IngestaMasivaService {
+
+    /** Resultado de un ítem; {@code indice} es su posición en el request. */
+    public record ResultadoItem(int indice, int status, String pdiId, PdI.ProcessingState estado, String error) {
+
+        static ResultadoItem rechazado(int indice, int status, String error) {
+            return new ResultadoItem(indice, status, null, PdI.ProcessingState.ERROR, error);
+        }
+    }
+
+    // Mismo formato de mensaje que el alta individual (camelCase, no el snake_case de la API)
+    private static final ObjectMapper MENSAJES = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final FachadaSolicitudes solicitudes;
+    private final FachadaProcesadorPDI fachada;
+    private final PdIRepository repository;
+    private final TransactionTemplate tx;
+    private final RabbitTemplate rabbitTemplate;
+    private final ProcesamientoMetrics metricas;
+    private final int tamanioLote;
+    private final long confirmTimeoutMs;
+
+    private final Counter aceptados;
+    private final Counter rechazados;
+    private final Timer publicacion;
+
+    public IngestaMasivaService(@Qualifier("solicitudesRetrofitProxy") FachadaSolicitudes solicitudes,
+                                FachadaProcesadorPDI fachada,
+                                PdIRepository repository,
+                                TransactionTemplate tx,
+                                RabbitTemplate rabbitTemplate,
+                                ProcesamientoMetrics metricas,
+                                MeterRegistry registry,
+                                @Value("${pdi.bulk.batch-size:500}") int tamanioLote,
+                                @Value("${pdi.bulk.confirm-timeout-ms:10000}") long confirmTimeoutMs) {
+        this.solicitudes = solicitudes;
+        this.fachada = fachada;
+        this.repository = repository;
+        this.tx = tx;
+        this.rabbitTemplate = rabbitTemplate;
+        this.metricas = metricas;
+        this.tamanioLote = Math.max(1, tamanioLote);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.aceptados = registry.counter("pdi.bulk.items", "resultado", "aceptado");
+        this.rechazados = registry.counter("pdi.bulk.items", "resultado", "rechazado");
+        this.publicacion = ProcesamientoMetrics.histograma("pdi.bulk.publicacion")
+                .description("Publicación de un lote a pdi.direct hasta recibir todos los confirms")
+                .register(registry);
+    }
+
+    public int tamanioLote() {
+        return tamanioLote;
+    }
+
+    /** Procesa un lote ya leído; {@code indiceBase} es la posición del primero en el request. */
+    public List<ResultadoItem> procesarLote(List<PdIRequestDTO> lote, int indiceBase) {
+        ResultadoItem[] resultados = new ResultadoItem[lote.size()];
+
+        // 1) hechos: una consulta por hecho distinto, no por ítem
+        Set<String> hechos = new HashSet<>();
+        for (PdIRequestDTO req : lote) {
+            if (req != null && req.hechoId() != null && !req.hechoId().isBlank()) hechos.add(req.hechoId());
+        }
+        FachadaSolicitudes.EstadoHechos estado = hechos.isEmpty()
+                ? new FachadaSolicitudes.EstadoHechos(Map.of(), Set.of())
+                : solicitudes.estanActivos(hechos);
+
+        Map<Integer, PdI> candidatos = new LinkedHashMap<>();
+        for (int i = 0; i < lote.size(); i++) {
+            PdIRequestDTO req = lote.get(i);
+            int indice = indiceBase + i;
+            if (req == null || req.hechoId() == null || req.hechoId().isBlank()) {
+                resultados[i] = ResultadoItem.rechazado(indice, 400, "hecho_id es obligatorio.");
+                continue;
+            }
+            Boolean activo = estado.activos().get(req.hechoId());
+            if (estado.inexistentes().contains(req.hechoId())) {
+                resultados[i] = ResultadoItem.rechazado(indice, 404, "No existe el hecho " + req.hechoId());
+            } else if (activo == null) {
+                resultados[i] = ResultadoItem.rechazado(indice, 503,
+                        "El hecho " + req.hechoId() + " no se pudo verificar en Solicitudes.");
+            } else if (!activo) {
+                resultados[i] = ResultadoItem.rechazado(indice, 400,
+                        "El hecho " + req.hechoId() + " está inactivo y no puede procesarse.");
+            } else {
+                PdI nuevo = new PdI(req.hechoId(), req.descripcion(), req.lugar(),
+                        req.momento(), req.contenido(), req.imageUrl());
+                nuevo.setProcessingState(PdI.ProcessingState.PENDING);
+                candidatos.put(i, nuevo);
+            }
+        }
+
+        // 2) duplicados: contra la base en una consulta, y dentro del mismo lote
+        Map<String, Long> existentes = existentes(candidatos.values());
+        Set<String> vistas = new HashSet<>();
+        for (Iterator<Map.Entry<Integer, PdI>> it = candidatos.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, PdI> e = it.next();
+            String clave = clave(e.getValue());
+            if (clave == null) continue;
+            if (existentes.containsKey(clave) || !vistas.add(clave)) {
+                resultados[e.getKey()] = ResultadoItem.rechazado(indiceBase + e.getKey(), 409,
+                        "Ya existe un PdI registrado para este hecho con la misma imagen.");
+                it.remove();
+            }
+        }
+
+        // 3) alta en lote (y publicación de lo que quedó guardado)
+        Map<Integer, PdI> guardados = insertar(candidatos, resultados, indiceBase);
+        publicar(guardados, resultados, indiceBase);
+
+        for (ResultadoItem r : resultados) (r.status() == 202 ? aceptados : rechazados).increment();
+        return Arrays.asList(resultados);
+    }
+
+    private Map<String, Long> existentes(Collection<PdI> pdis) {
+        Set<String> hechos = new HashSet<>();
+        Set<String> hashes = new HashSet<>();
+        for (PdI p : pdis) {
+            if (p.getImageUrlHash() == null) continue;
+            hechos.add(p.getHechoId());
+            hashes.add(p.getImageUrlHash());
+        }
+        Map<String, Long> existentes = new HashMap<>();
+        if (hashes.isEmpty()) return existentes;
+        // trae el producto hechos x hashes: se filtra por par
+        for (PdI p : repository.findByHechoIdInAndImageUrlHashIn(hechos, hashes)) {
+            existentes.put(clave(p), p.getId());
+        }
+        return existentes;
+    }
+
+    private static String clave(PdI p) {
+        return p.getImageUrlHash() == null ? null : p.getHechoId() + '|' + p.getImageUrlHash();
+    }
+
+    private Map<Integer, PdI> insertar(Map<Integer, PdI> candidatos, ResultadoItem[] resultados, int indiceBase) {
+        if (candidatos.isEmpty()) return candidatos;
+        try {
+            metricas.save(Operacion.LOTE).record(() -> tx.executeWithoutResult(
+                    status -> repository.saveAll(candidatos.values())));
+            return candidatos;
+        } catch (DataIntegrityViolationException e) {
+            // otro alta del mismo hecho + imagen entre la consulta y el insert, o un ítem que la base rechaza:
+            // se resuelve de a uno para no perder los demás
+            log.warn("[ProcesadorPdI] Lote rechazado por la base, se registra de a uno: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("[ProcesadorPdI] ❌ Falló el alta del lote, se registra de a uno: {}", e.getMessage(), e);
+        }
+
+        Map<Integer, PdI> guardados = new LinkedHashMap<>();
+        candidatos.forEach((i, pdi) -> {
+            pdi.setId(null); // el id que le asignó el lote fallido no llegó a la base
+            try {
+                guardados.put(i, fachada.registrarPendiente(pdi));
+            } catch (PdIDuplicadoException e) {
+                resultados[i] = ResultadoItem.rechazado(indiceBase + i, 409,
+                        "Ya existe un PdI registrado para este hecho con la misma imagen.");
+            } catch (DataIntegrityViolationException e) {
+                // el ítem viola otra restricción (p.ej. un campo más largo que la columna)
+                log.warn("[ProcesadorPdI] Ítem {} rechazado por la base: {}",
+                        indiceBase + i, e.getMostSpecificCause().getMessage());
+                resultados[i] = ResultadoItem.rechazado(indiceBase + i, 400,
+                        "Datos inválidos: el PdI no cumple las restricciones de la base (p.ej. largo de los campos).");
+            } catch (RuntimeException e) {
+                log.error("[ProcesadorPdI] ❌ Error registrando el ítem {}: {}", indiceBase + i, e.getMessage(), e);
+                resultados[i] = ResultadoItem.rechazado(indiceBase + i, 500, "Error registrando el PdI.");
+            }
+        });
+        return guardados;
+    }
+
+    private void publicar(Map<Integer, PdI> guardados, ResultadoItem[] resultados, int indiceBase) {
+        if (guardados.isEmpty()) return;
+        long inicio = System.nanoTime();
+        Map<Integer, CorrelationData> confirmaciones = new LinkedHashMap<>();
+        Map<Integer, String> fallos = new HashMap<>();
+
+        // un solo canal para todo el lote; los confirms llegan asincrónicos (publisher-confirm-type=correlated)
+        MessagePostProcessor conTimestamp = m -> {
+            m.getMessageProperties().setTimestamp(new Date());
+            return m;
+        };
+        try {
+            rabbitTemplate.invoke(ops -> {
+                guardados.forEach((i, pdi) -> {
+                    try {
+                        CorrelationData cd = new CorrelationData(String.valueOf(pdi.getId()));
+                        ops.convertAndSend("pdi.direct", "pdi.process", mensaje(pdi), conTimestamp, cd);
+                        confirmaciones.put(i, cd);
+                    } catch (Exception e) {
+                        fallos.put(i, e.getMessage());
+                    }
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            guardados.keySet().forEach(i -> fallos.putIfAbsent(i, e.getMessage()));
+            confirmaciones.clear();
+        }
+
+        if (rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+            confirmaciones.forEach((i, cd) -> {
+                try {
+                    long restante = Math.max(0, limite - System.nanoTime());
+                    CorrelationData.Confirm confirm = cd.getFuture().get(restante, TimeUnit.NANOSECONDS);
+                    if (!confirm.isAck()) fallos.put(i, "nack del broker: " + confirm.getReason());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fallos.put(i, "espera de confirm interrumpida");
+                } catch (Exception e) {
+                    fallos.put(i, "sin confirm del broker en " + confirmTimeoutMs + "ms");
+                }
+            });
+        }
+        publicacion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        List<PdI> conError = new ArrayList<>();
+        guardados.forEach((i, pdi) -> {
+            String fallo = fallos.get(i);
+            if (fallo == null) {
+                resultados[i] = new ResultadoItem(indiceBase + i, 202, String.valueOf(pdi.getId()),
+                        PdI.ProcessingState.PENDING, null);
+                return;
+            }
+            pdi.setProcessingState(PdI.ProcessingState.ERROR);
+            pdi.setLastError("Error enviando mensaje a RabbitMQ: " + fallo);
+            conError.add(pdi);
+            resultados[i] = new ResultadoItem(indiceBase + i, 500, String.valueOf(pdi.getId()),
+                    PdI.ProcessingState.ERROR, "Error en comunicación con la cola de procesamiento");
+        });
+        if (!conError.isEmpty()) {
+            log.error("[ProcesadorPdI] ❌ {} PdIs del lote sin publicar en RabbitMQ (p.ej. id={}: {})",
+                    conError.size(), conError.get(0).getId(), conError.get(0).getLastError());
+            try {
+                tx.executeWithoutResult(status -> repository.saveAll(conError));
+            } catch (RuntimeException e) {
+                // los ítems ya se informan con 500; quedan PENDING en la base hasta que se reintenten
+                log.error("[ProcesadorPdI] ❌ No se pudo marcar en ERROR los PdIs sin publicar: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static String mensaje(PdI pdi) throws Exception {
+        return MENSAJES.writeValueAsString(new PdIDTO(
+                String.valueOf(pdi.getId()),
+                pdi.getHechoId(),
+                pdi.getDescripcion(),
+                pdi.getLugar(),
+                pdi.getMomento(),
+                pdi.getContenido(),
+                pdi.getImageUrl(),
+                List.of(),
+                null,
+                PdI.ProcessingState.PENDING,
+                null,
+                null
+        ));
+    }
+}
@@ -0,0 +1,59 @@
+package ar.edu.utn.dds.k3003.services.outbox;
+
+import ar.edu.utn.dds.k3003.clients.dtos.ProcesamientoFuentesDTO;
+import ar.edu.utn.dds.k3003.model.NotificacionFuentes;
+import ar.edu.utn.dds.k3003.repository.NotificacionFuentesRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Lado de escritura del outbox: encola la notificación a Fuentes dentro de la transacción
+ * del llamador, de modo que se persiste (o se descarta) junto con el PdI.
+ * La notificación recién queda disponible pasada la ventana de coalescing, para que el
+ * dispatcher pueda quedarse sólo con la última actualización de cada PdI.
+ */
+@Slf4j
+@Service
+public class FuentesOutbox {
+
+    private final NotificacionFuentesRepository repository;
+    private final ObjectMapper mapper;
+    private final long coalescingWindowMs;
+
+    public FuentesOutbox(NotificacionFuentesRepository repository,
+                         ObjectMapper mapper,
+                         @Value("${fuentes.outbox.coalescing-window-ms:2000}") long coalescingWindowMs) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.coalescingWindowMs = Math.max(0, coalescingWindowMs);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String hechoId, ProcesamientoFuentesDTO procesamiento) {
+        NotificacionFuentes n = new NotificacionFuentes(hechoId, procesamiento.pdiId(), serializar(procesamiento));
+        n.setProximoIntentoEn(n.getCreadoEn().plusNanos(coalescingWindowMs * 1_000_000));
+        repository.save(n);
+        log.debug("[Outbox] notificación encolada hechoId={} pdiId={}", hechoId, procesamiento.pdiId());
+    }
+
+    ProcesamientoFuentesDTO leer(NotificacionFuentes n) {
+        try {
+            return mapper.readValue(n.getPayload(), ProcesamientoFuentesDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Payload de outbox ilegible id=" + n.getId(), e);
+        }
+    }
+
+    private String serializar(ProcesamientoFuentesDTO procesamiento) {
+        try {
+            return mapper.writeValueAsString(procesamiento);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el procesamiento para Fuentes", e);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ar.edu.utn.dds.k3003.services.outbox;
+
+import ar.edu.utn.dds.k3003.clients.FuentesProxy;
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.resilience.DependenciaNoDisponibleException;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics.Etapa;
+import ar.edu.utn.dds.k3003.model.NotificacionFuentes;
+import ar.edu.utn.dds.k3003.repository.NotificacionFuentesRepository;
+import ar.edu.utn.dds.k3003.resilience.Dependencias;
+import ar.edu.utn.dds.k3003.resilience.ProteccionDependencia;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drena el outbox de Fuentes en lotes.
+ * - Cada lote se "reserva" corriendo su próximo intento {@code lease-ms} hacia adelante: si el nodo
+ *   muere a mitad de camino, las filas vuelven a quedar disponibles solas.
+ * - Los envíos del lote salen en paralelo por un pool acotado.
+ * - Coalescing por (hechoId, pdiId): cada PdI de un hecho es una notificación propia y nunca se
+ *   descarta por otra de otro PdI. De un mismo PdI se manda sólo la más nueva entre TODAS las pendientes
+ *   (también las que están en backoff o en la ventana de coalescing): si la más nueva no vino en el lote,
+ *   la tomada se borra y se espera a esa; si vino, se borran las anteriores aunque no estén vencidas,
+ *   así ninguna vieja sale después.
+ * - Si el payload es idéntico al último que Fuentes ya confirmó para ese PdI, no se reenvía.
+ * - Un fallo reprograma la fila con backoff exponencial + jitter; al agotar los intentos queda FALLIDA.
+ *   La reprogramación es un update condicional: si otro lote borró la fila por una más nueva, no revive.
+ * - Con el circuito de Fuentes abierto no se toma trabajo; lo rechazado por el bulkhead se
+ *   reprograma sin gastar un intento.
+ * - Cada envío a Fuentes se mide en {@code pdi.etapa.tiempo{etapa=notificacion}}.
+ */
+@Slf4j
+@Component
+public class FuentesOutboxDispatcher {
+
+    private final NotificacionFuentesRepository repository;
+    private final FuentesOutbox outbox;
+    private final FuentesProxy fuentesProxy;
+    private final ProteccionDependencia fuentes;
+    private final AsyncTaskExecutor executor;
+    private final TransactionTemplate tx;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final long leaseMs;
+
+    private final Counter enviadas;
+    private final Counter reintentos;
+    private final Counter fallidas;
+    private final Counter coalescidas;
+    private final Counter omitidas;
+    private final Timer notificacion;
+
+    // último payload que Fuentes confirmó por hecho + PdI (para no reenviar lo mismo)
+    private final Cache<Clave, String> ultimoConfirmado = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    public FuentesOutboxDispatcher(NotificacionFuentesRepository repository,
+                                   FuentesOutbox outbox,
+                                   FuentesProxy fuentesProxy,
+                                   Dependencias dependencias,
+                                   @Qualifier("fuentesOutboxExecutor") AsyncTaskExecutor executor,
+                                   TransactionTemplate tx,
+                                   MeterRegistry registry,
+                                   ProcesamientoMetrics metricas,
+                                   @Value("${fuentes.outbox.batch-size:50}") int batchSize,
+                                   @Value("${fuentes.outbox.max-attempts:10}") int maxAttempts,
+                                   @Value("${fuentes.outbox.base-backoff-ms:1000}") long baseBackoffMs,
+                                   @Value("${fuentes.outbox.max-backoff-ms:300000}") long maxBackoffMs,
+                                   @Value("${fuentes.outbox.lease-ms:120000}") long leaseMs) {
+        this.repository = repository;
+        this.outbox = outbox;
+        this.fuentesProxy = fuentesProxy;
+        this.fuentes = dependencias.obtener("fuentes");
+        this.executor = executor;
+        this.tx = tx;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMs = Math.max(100, baseBackoffMs);
+        this.maxBackoffMs = Math.max(this.baseBackoffMs, maxBackoffMs);
+        this.leaseMs = Math.max(1000, leaseMs);
+
+        this.enviadas = registry.counter("fuentes.outbox.enviadas");
+        this.reintentos = registry.counter("fuentes.outbox.reintentos");
+        this.fallidas = registry.counter("fuentes.outbox.fallidas");
+        this.coalescidas = registry.counter("fuentes.outbox.coalescidas");
+        this.omitidas = registry.counter("fuentes.outbox.omitidas");
+        this.notificacion = metricas.etapa(Etapa.NOTIFICACION);
+    }
+
+    @Scheduled(fixedDelayString = "${fuentes.outbox.poll-ms:1000}")
+    public void drenar() {
+        Lote lote;
+        do {
+            if (!fuentes.disponible()) {
+                log.debug("[Outbox] circuito de Fuentes abierto, se posterga el drenado");
+                return;
+            }
+            lote = reservarLote();
+            if (lote.aEnviar().isEmpty()) return;
+
+            List<CompletableFuture<Void>> envios = new ArrayList<>(lote.aEnviar().size());
+            for (NotificacionFuentes n : lote.aEnviar()) {
+                envios.add(CompletableFuture.runAsync(() -> enviar(n), executor));
+            }
+            CompletableFuture.allOf(envios.toArray(CompletableFuture[]::new)).join();
+        } while (lote.tomadas() == batchSize);
+    }
+
+    private record Lote(int tomadas, List<NotificacionFuentes> aEnviar) {}
+
+    /** Clave de coalescing: las notificaciones de PdIs distintos del mismo hecho no se pisan. */
+    record Clave(String hechoId, String pdiId) {
+        static Clave de(NotificacionFuentes n) {
+            return new Clave(n.getHechoId(), n.getPdiId());
+        }
+    }
+
+    record Coalescing(List<NotificacionFuentes> aEnviar, List<NotificacionFuentes> superadas) {}
+
+    /**
+     * Separa lo tomado en lo que se envía y lo superado. {@code ultimas} es el id pendiente más nuevo por clave
+     * entre todas las pendientes (no sólo las del lote); una clave que no figura se toma como sin otras pendientes.
+     */
+    static Coalescing coalescer(List<NotificacionFuentes> tomadas, Map<Clave, Long> ultimas) {
+        Map<Clave, NotificacionFuentes> masNuevas = new LinkedHashMap<>();
+        for (NotificacionFuentes n : tomadas) {
+            masNuevas.merge(Clave.de(n), n, (a, b) -> a.getId() >= b.getId() ? a : b);
+        }
+        List<NotificacionFuentes> aEnviar = new ArrayList<>();
+        List<NotificacionFuentes> superadas = new ArrayList<>();
+        for (NotificacionFuentes n : tomadas) {
+            Long ultima = ultimas.get(Clave.de(n));
+            boolean hayOtraMasNueva = masNuevas.get(Clave.de(n)) != n || (ultima != null && ultima > n.getId());
+            (hayOtraMasNueva ? superadas : aEnviar).add(n);
+        }
+        return new Coalescing(aEnviar, superadas);
+    }
+
+    private Lote reservarLote() {
+        return tx.execute(status -> {
+            LocalDateTime ahora = LocalDateTime.now();
+            List<NotificacionFuentes> tomadas = repository.tomarPendientes(ahora, PageRequest.of(0, batchSize));
+            if (tomadas.isEmpty()) return new Lote(0, List.of());
+
+            Set<String> hechos = new HashSet<>();
+            tomadas.forEach(n -> hechos.add(n.getHechoId()));
+            Map<Clave, Long> ultimas = new HashMap<>();
+            for (Object[] fila : repository.ultimasPorPdi(NotificacionFuentes.Estado.PENDIENTE, hechos)) {
+                ultimas.put(new Clave((String) fila[0], (String) fila[1]), ((Number) fila[2]).longValue());
+            }
+
+            Coalescing coalescing = coalescer(tomadas, ultimas);
+            int superadas = coalescing.superadas().size();
+            if (superadas > 0) repository.deleteAllInBatch(coalescing.superadas());
+            // las anteriores del mismo PdI que siguen en backoff tampoco deben salir después de esta
+            for (NotificacionFuentes n : coalescing.aEnviar()) {
+                superadas += repository.borrarAnteriores(NotificacionFuentes.Estado.PENDIENTE,
+                        n.getHechoId(), n.getPdiId(), n.getId());
+            }
+            if (superadas > 0) {
+                coalescidas.increment(superadas);
+                log.debug("[Outbox] {} notificación(es) superadas por una más nueva del mismo PdI", superadas);
+            }
+
+            coalescing.aEnviar().forEach(n -> n.setProximoIntentoEn(ahora.plusNanos(leaseMs * 1_000_000)));
+            return new Lote(tomadas.size(), coalescing.aEnviar());
+        });
+    }
+
+    private void enviar(NotificacionFuentes n) {
+        try {
+            if (Objects.equals(ultimoConfirmado.getIfPresent(Clave.de(n)), n.getPayload())) {
+                repository.deleteById(n.getId());
+                omitidas.increment();
+                log.debug("[Outbox] hechoId={} pdiId={} sin cambios respecto del último envío, se omite",
+                        n.getHechoId(), n.getPdiId());
+                return;
+            }
+            notificacion.record(() -> fuentes.ejecutar(
+                    () -> fuentesProxy.enviarProcesamientoAHecho(n.getHechoId(), outbox.leer(n))));
+            ultimoConfirmado.put(Clave.de(n), n.getPayload());
+            repository.deleteById(n.getId());
+            enviadas.increment();
+        } catch (DependenciaNoDisponibleException e) {
+            // no llegó a salir: vuelve a estar disponible enseguida y no cuenta como intento
+            n.setProximoIntentoEn(LocalDateTime.now().plusNanos(baseBackoffMs * 1_000_000));
+            reprogramar(n);
+        } catch (Exception e) {
+            registrarFallo(n, e);
+        }
+    }
+
+    private void registrarFallo(NotificacionFuentes n, Exception e) {
+        int intentos = n.getIntentos() + 1;
+        n.setIntentos(intentos);
+        n.setUltimoError(e.getMessage());
+
+        if (intentos >= maxAttempts) {
+            n.setEstado(NotificacionFuentes.Estado.FALLIDA);
+            fallidas.increment();
+            log.error("[Outbox] notificación id={} hechoId={} descartada tras {} intentos: {}",
+                    n.getId(), n.getHechoId(), intentos, e.getMessage());
+        } else {
+            long espera = backoff(intentos);
+            n.setProximoIntentoEn(LocalDateTime.now().plusNanos(espera * 1_000_000));
+            reintentos.increment();
+            log.warn("[Outbox] notificación id={} hechoId={} falló (intento {}), reintento en {} ms: {}",
+                    n.getId(), n.getHechoId(), intentos, espera, e.getMessage());
+        }
+        reprogramar(n);
+    }
+
+    /**
+     * La fila está desacoplada y mientras se enviaba otro lote pudo borrarla por una notificación más nueva
+     * del mismo PdI: un save() la reinsertaría con un id mayor y el payload viejo saldría después del nuevo.
+     * Se actualiza sólo si sigue existiendo; si no, quedó superada y se descarta.
+     */
+    private void reprogramar(NotificacionFuentes n) {
+        Integer actualizadas = tx.execute(status -> repository.reprogramar(n.getId(), n.getEstado(),
+                n.getIntentos(), n.getProximoIntentoEn(), n.getUltimoError()));
+        if (actualizadas == null || actualizadas == 0) {
+            coalescidas.increment();
+            log.debug("[Outbox] notificación id={} hechoId={} superada mientras se enviaba, se descarta",
+                    n.getId(), n.getHechoId());
+        }
+    }
+
+    private long backoff(int intentos) {
+        long exp = baseBackoffMs << Math.min(intentos - 1, 20);
+        long tope = Math.min(maxBackoffMs, exp);
+        // full jitter sobre la mitad superior para no sincronizar reintentos
+        return tope / 2 + ThreadLocalRandom.current().nextLong(tope / 2 + 1);
+    }
+}
@@ -0,0 +1,94 @@
+package ar.edu.utn.dds.k3003.services.pipeline;
+
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Una etapa del pipeline de PdIs: pool fijo de threads con cola acotada.
+ * - Con la cola llena, quien encola espera a que haya lugar: la etapa lenta frena a la anterior
+ *   (y en última instancia al listener de Rabbit) en vez de acumular trabajo sin límite.
+ * - Métricas con tag {@code etapa}: {@code pdi.pipeline.cola} y {@code pdi.pipeline.activos} (gauges),
+ *   {@code pdi.pipeline.espera} (tiempo en cola) y {@code pdi.pipeline.ejecucion} (tiempo de la tarea),
+ *   estos dos con histograma de percentiles.
+ */
+class EtapaPipeline {
+
+    private static final long ESPERA_LUGAR_MS = 100;
+
+    private final String nombre;
+    private final ThreadPoolTaskExecutor executor;
+    private final Timer espera;
+    private final Timer ejecucion;
+
+    EtapaPipeline(String nombre, int hilos, int capacidadCola, MeterRegistry registry) {
+        this.nombre = nombre;
+
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix("pipeline-" + nombre + "-");
+        ex.setCorePoolSize(Math.max(1, hilos));
+        ex.setMaxPoolSize(Math.max(1, hilos));
+        ex.setQueueCapacity(Math.max(1, capacidadCola));
+        ex.setRejectedExecutionHandler((tarea, pool) -> encolarEsperando(tarea, pool, nombre));
+        ex.setWaitForTasksToCompleteOnShutdown(true);
+        ex.setAwaitTerminationSeconds(30);
+        ex.initialize();
+        this.executor = ex;
+
+        Gauge.builder("pdi.pipeline.cola", ex, e -> e.getThreadPoolExecutor().getQueue().size())
+                .tag("etapa", nombre).register(registry);
+        Gauge.builder("pdi.pipeline.activos", ex, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("etapa", nombre).register(registry);
+        this.espera = ProcesamientoMetrics.histograma("pdi.pipeline.espera").tag("etapa", nombre).register(registry);
+        this.ejecucion = ProcesamientoMetrics.histograma("pdi.pipeline.ejecucion").tag("etapa", nombre).register(registry);
+    }
+
+    /** Corre la tarea en esta etapa; si la cola está llena, el thread que llama espera. */
+    <T> CompletableFuture<T> ejecutar(Supplier<T> tarea) {
+        long encolado = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            long inicio = System.nanoTime();
+            espera.record(inicio - encolado, TimeUnit.NANOSECONDS);
+            try {
+                return tarea.get();
+            } finally {
+                ejecucion.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        }, executor);
+    }
+
+    /**
+     * Backpressure: espera lugar en la cola de a intervalos, revisando entre uno y otro si la etapa se detuvo.
+     * Si se detuvo justo después de encolar, la tarea se saca de la cola (si ningún thread la tomó):
+     * con el pool ya vaciado nadie la correría y su future no terminaría nunca.
+     */
+    private static void encolarEsperando(Runnable tarea, ThreadPoolExecutor pool, String nombre) {
+        try {
+            boolean encolada = false;
+            while (!encolada) {
+                if (pool.isShutdown()) {
+                    throw new RejectedExecutionException("Etapa " + nombre + " detenida");
+                }
+                encolada = pool.getQueue().offer(tarea, ESPERA_LUGAR_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrumpido esperando lugar en la etapa " + nombre, e);
+        }
+        if (pool.isShutdown() && pool.remove(tarea)) {
+            throw new RejectedExecutionException("Etapa " + nombre + " detenida");
+        }
+    }
+
+    void detener() {
+        executor.shutdown();
+    }
+}
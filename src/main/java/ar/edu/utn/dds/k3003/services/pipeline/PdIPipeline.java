@@ -0,0 +1,223 @@
+package ar.edu.utn.dds.k3003.services.pipeline;
+
+import ar.edu.utn.dds.k3003.clients.ImageFetcher;
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
+import ar.edu.utn.dds.k3003.clients.dtos.ProcesamientoFuentesDTO;
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen.ImagenRechazadaException;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics.Etapa;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics.Operacion;
+import ar.edu.utn.dds.k3003.model.PdI;
+import ar.edu.utn.dds.k3003.repository.PdIRepository;
+import ar.edu.utn.dds.k3003.resilience.RetryPolicy;
+import ar.edu.utn.dds.k3003.resilience.RetryScheduler;
+import ar.edu.utn.dds.k3003.services.outbox.FuentesOutbox;
+import ar.edu.utn.dds.k3003.services.tagging.TagAggregatorService;
+import ar.edu.utn.dds.k3003.services.tagging.TagAggregatorService.ResultadoTags;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Procesamiento de un PdI en etapas explícitas, cada una en su propio pool acotado:
+ * - carga: busca el PdI por (hechoId, imageUrl) y corta si ya fue procesado; si no existe lo inserta.
+ * - descarga: baja la imagen una sola vez (ImageFetcher) y la rechaza temprano si no sirve.
+ *   Si el origen falla (Motivo.ORIGEN: 5xx, timeout) se reintenta con backoff (image.fetch.retry.*); agotados
+ *   los intentos el PdI queda en ERROR, sin tags ni notificación, para que un reenvío lo vuelva a procesar.
+ * - tagging: corre los TagProvider (OCR, Apilayer) sobre esos bytes, sin transacción ni conexión a la base tomada.
+ * - persistencia: guarda tags/estado (y el motivo si la imagen se rechazó de forma definitiva) y encola la notificación a Fuentes en la misma transacción;
+ *   el envío lo hace FuentesOutboxDispatcher (etapa de notificación, con su propio pool).
+ * Las etapas se encadenan con CompletableFuture; una cola llena frena a la etapa anterior.
+ * Dentro de cada etapa se miden la búsqueda de duplicado y cada save (ver ProcesamientoMetrics).
+ */
+@Slf4j
+@Service
+public class PdIPipeline {
+
+    /** PdI al final del pipeline; {@code procesado} es false si ya estaba procesado y no se tocó. */
+    public record Resultado(PdI pdi, boolean procesado) {}
+
+    /** Salida de la etapa de descarga: la imagen, o por qué no se pudo usar (ambas null si el PdI no tiene imagen). */
+    private record Descarga(@Nullable ImagenDescargada imagen, @Nullable ImagenRechazadaException rechazo) {
+
+        @Nullable String error() {
+            return rechazo == null ? null : rechazo.getMessage();
+        }
+
+        boolean transitoria() {
+            return rechazo != null && rechazo.getMotivo().transitorio();
+        }
+    }
+
+    private final PdIRepository pdiRepository;
+    private final @Nullable TagAggregatorService tagService;
+    private final ImageFetcher imageFetcher;
+    private final FuentesOutbox fuentesOutbox;
+    private final TransactionTemplate tx;
+    private final ProcesamientoMetrics metricas;
+    private final RetryScheduler retry;
+    private final RetryPolicy politicaDescarga;
+
+    private final EtapaPipeline carga;
+    private final EtapaPipeline descarga;
+    private final EtapaPipeline tagging;
+    private final EtapaPipeline persistencia;
+
+    public PdIPipeline(PdIRepository pdiRepository,
+                       @Nullable TagAggregatorService tagAggregatorService,
+                       ImageFetcher imageFetcher,
+                       FuentesOutbox fuentesOutbox,
+                       TransactionTemplate tx,
+                       MeterRegistry registry,
+                       ProcesamientoMetrics metricas,
+                       RetryScheduler retry,
+                       @Value("${image.fetch.retry.max-attempts:3}") int descargaIntentos,
+                       @Value("${image.fetch.retry.base-backoff-ms:500}") long descargaBackoffMs,
+                       @Value("${pipeline.carga.threads:4}") int cargaThreads,
+                       @Value("${pipeline.carga.queue:100}") int cargaQueue,
+                       @Value("${pipeline.descarga.threads:8}") int descargaThreads,
+                       @Value("${pipeline.descarga.queue:200}") int descargaQueue,
+                       @Value("${pipeline.tagging.threads:16}") int taggingThreads,
+                       @Value("${pipeline.tagging.queue:200}") int taggingQueue,
+                       @Value("${pipeline.persistencia.threads:4}") int persistenciaThreads,
+                       @Value("${pipeline.persistencia.queue:100}") int persistenciaQueue) {
+        this.pdiRepository = pdiRepository;
+        this.tagService = tagAggregatorService;
+        this.imageFetcher = imageFetcher;
+        this.fuentesOutbox = fuentesOutbox;
+        this.tx = tx;
+        this.metricas = metricas;
+        this.retry = retry;
+        this.politicaDescarga = retry.politica(descargaIntentos, descargaBackoffMs);
+        this.carga = new EtapaPipeline("carga", cargaThreads, cargaQueue, registry);
+        this.descarga = new EtapaPipeline("descarga", descargaThreads, descargaQueue, registry);
+        this.tagging = new EtapaPipeline("tagging", taggingThreads, taggingQueue, registry);
+        this.persistencia = new EtapaPipeline("persistencia", persistenciaThreads, persistenciaQueue, registry);
+    }
+
+    public CompletableFuture<Resultado> procesar(PdIDTO entrada) {
+        return carga.ejecutar(() -> cargar(entrada))
+                .thenCompose(pdi -> {
+                    if (yaProcesado(pdi)) {
+                        return CompletableFuture.completedFuture(new Resultado(pdi, false));
+                    }
+                    return descargar(pdi)
+                            .thenCompose(d -> d.transitoria()
+                                    ? persistencia.ejecutar(() -> marcarError(pdi.getId(), d.error()))
+                                    : tagging.ejecutar(() -> etiquetar(pdi, d))
+                                            .thenCompose(tags -> persistencia.ejecutar(() -> persistir(pdi.getId(), tags, d.error()))))
+                            .thenApply(procesado -> new Resultado(procesado, true));
+                });
+    }
+
+    @PreDestroy
+    void detener() {
+        carga.detener();
+        descarga.detener();
+        tagging.detener();
+        persistencia.detener();
+    }
+
+    /* ===================== Etapas ===================== */
+
+    private PdI cargar(PdIDTO entrada) {
+        PdI existente = metricas.etapa(Etapa.DEDUPE).record(
+                () -> pdiRepository.findByHechoIdAndImageUrl(entrada.hechoId(), entrada.imageUrl()));
+        if (existente != null) return existente;
+
+        PdI nuevo = new PdI(entrada.hechoId(), entrada.descripcion(), entrada.lugar(),
+                entrada.momento(), entrada.contenido(), entrada.imageUrl());
+        try {
+            return metricas.save(Operacion.ALTA).record(() -> pdiRepository.save(nuevo));
+        } catch (DataIntegrityViolationException e) {
+            // Otro consumidor insertó el mismo (hechoId, imageUrl) entre la búsqueda y el insert
+            PdI ganador = pdiRepository.findByHechoIdAndImageUrl(entrada.hechoId(), entrada.imageUrl());
+            if (ganador == null) throw e;
+            log.debug("PdI de hecho {} insertado en paralelo (id={}), se reutiliza", entrada.hechoId(), ganador.getId());
+            return ganador;
+        }
+    }
+
+    private CompletableFuture<Descarga> descargar(PdI pdi) {
+        if (tagService == null || pdi.getImageUrl() == null || pdi.getImageUrl().isBlank()) {
+            return CompletableFuture.completedFuture(new Descarga(null, null));
+        }
+        // Cada intento vuelve a pasar por la cola de la etapa; entre intentos no se ocupa ningún thread
+        return retry.ejecutar("imagen", politicaDescarga, PdIPipeline::origenCaido,
+                        () -> descarga.ejecutar(() -> imageFetcher.descargar(pdi.getImageUrl())))
+                .handle((imagen, error) -> {
+                    if (error == null) return new Descarga(imagen, null);
+                    Throwable causa = (error instanceof CompletionException && error.getCause() != null)
+                            ? error.getCause() : error;
+                    if (!(causa instanceof ImagenRechazadaException e)) throw new CompletionException(causa);
+                    log.warn("Imagen del PdI {} rechazada ({}): {}", pdi.getId(), e.getMotivo(), e.getMessage());
+                    return new Descarga(null, e);
+                });
+    }
+
+    private static boolean origenCaido(Throwable e) {
+        return e instanceof ImagenRechazadaException r && r.getMotivo().transitorio();
+    }
+
+    private ResultadoTags etiquetar(PdI pdi, Descarga descarga) {
+        // Imagen rechazada: ningún provider podría hacer nada útil con ella
+        if (tagService == null || descarga.error() != null) return new ResultadoTags(List.of(), null, false);
+        try {
+            return tagService.extraerTags(pdi, descarga.imagen());
+        } finally {
+            if (descarga.imagen() != null) descarga.imagen().liberar();
+        }
+    }
+
+    private PdI persistir(Long pdiId, ResultadoTags tags, @Nullable String error) {
+        return tx.execute(status -> {
+            PdI pdi = pdiRepository.findById(pdiId)
+                    .orElseThrow(() -> new NoSuchElementException("No existe PdI con id=" + pdiId));
+            if (tags.ocrText() != null) pdi.setOcrText(tags.ocrText());
+            pdi.setAutoTags(tags.tags());
+            pdi.setLastError(error);
+            pdi.setProcessedAt(LocalDateTime.now());
+            pdi.setProcessingState(PdI.ProcessingState.PROCESSED);
+            PdI guardado = metricas.save(Operacion.ACTUALIZACION).record(() -> pdiRepository.save(pdi));
+
+            // Se confirma junto con el PdI; el envío real no ocupa este thread
+            metricas.save(Operacion.OUTBOX).record(() -> fuentesOutbox.registrar(guardado.getHechoId(),
+                    new ProcesamientoFuentesDTO(
+                            String.valueOf(guardado.getId()),
+                            guardado.getProcessingState().name(),
+                            guardado.getAutoTags())));
+
+            log.debug("PdI {} procesado con {} tag(s)", pdiId, guardado.getAutoTags().size());
+            return guardado;
+        });
+    }
+
+    /** El origen de la imagen sigue caído: sin tags ni notificación, el PdI queda para reprocesar. */
+    private PdI marcarError(Long pdiId, @Nullable String error) {
+        return tx.execute(status -> {
+            PdI pdi = pdiRepository.findById(pdiId)
+                    .orElseThrow(() -> new NoSuchElementException("No existe PdI con id=" + pdiId));
+            pdi.setLastError(error);
+            pdi.setProcessingState(PdI.ProcessingState.ERROR);
+            log.warn("PdI {} queda en ERROR: el origen de la imagen no respondió", pdiId);
+            return metricas.save(Operacion.ACTUALIZACION).record(() -> pdiRepository.save(pdi));
+        });
+    }
+
+    private static boolean yaProcesado(PdI pdi) {
+        return pdi.getProcessingState() == PdI.ProcessingState.PROCESSED
+                || pdi.getProcessingState() == PdI.ProcessingState.PROCESSING;
+    }
+}
@@ -1,17 +1,30 @@
 package ar.edu.utn.dds.k3003.services.tagging;
 
 import ar.edu.utn.dds.k3003.clients.ImageLabelClient;
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
 import ar.edu.utn.dds.k3003.model.PdI;
+import ar.edu.utn.dds.k3003.resilience.Dependencias;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
+@Order(2)
 @RequiredArgsConstructor
 public class ImageLabelProvider implements TagProvider {
 
     private final ImageLabelClient client;
+    private final Dependencias dependencias;
+
+    @Override
+    public boolean disponible() {
+        return dependencias.obtener("imglbl").disponible();
+    }
 
     @Override
     public boolean supports(PdI pdi) {
@@ -24,4 +37,22 @@ public class ImageLabelProvider implements TagProvider {
         pdi.setAutoTags(labels);
         return labels;
     }
+
+    @Override
+    public List<String> extractTags(PdI pdi, ImagenDescargada imagen) {
+        List<String> labels = client.extractLabels(imagen);
+        pdi.setAutoTags(labels);
+        return labels;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> extractTagsAsync(PdI pdi, @Nullable ImagenDescargada imagen, Plazo plazo) {
+        CompletableFuture<List<String>> labels = (imagen != null)
+                ? client.extractLabelsAsync(imagen, plazo)
+                : client.extractLabelsAsync(pdi.getImageUrl(), plazo);
+        return labels.thenApply(l -> {
+            pdi.setAutoTags(l);
+            return l;
+        });
+    }
 }
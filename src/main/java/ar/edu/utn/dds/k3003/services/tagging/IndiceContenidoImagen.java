@@ -0,0 +1,72 @@
+package ar.edu.utn.dds.k3003.services.tagging;
+
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
+import ar.edu.utn.dds.k3003.model.ContenidoImagen;
+import ar.edu.utn.dds.k3003.repository.ContenidoImagenRepository;
+import ar.edu.utn.dds.k3003.services.tagging.TagAggregatorService.ResultadoTags;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Índice por contenido (SHA-256 de los bytes) de los resultados de OCR y tags.
+ * - Antes de llamar a los providers se busca el digest: un hit copia OCR y tags sin salir a OCR.space/Apilayer.
+ * - Sólo se registran resultados completos (todos los providers respondieron): un fallo parcial
+ *   no queda fijado para siempre en el índice.
+ * - Dos PdIs con la misma imagen a la vez: los dos calculan y el segundo insert choca con la PK y se ignora.
+ * Métricas: {@code imagen.indice{resultado=hit|miss}} y {@code imagen.indice.altas}.
+ */
+@Slf4j
+@Service
+public class IndiceContenidoImagen {
+
+    private final ContenidoImagenRepository repository;
+    private final TransactionTemplate nuevaTx;
+    private final boolean habilitado;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter altas;
+
+    public IndiceContenidoImagen(ContenidoImagenRepository repository,
+                                 PlatformTransactionManager txManager,
+                                 @Value("${image.index.enabled:true}") boolean habilitado,
+                                 MeterRegistry registry) {
+        this.repository = repository;
+        this.nuevaTx = new TransactionTemplate(txManager);
+        this.nuevaTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.habilitado = habilitado;
+        this.hits = registry.counter("imagen.indice", "resultado", "hit");
+        this.misses = registry.counter("imagen.indice", "resultado", "miss");
+        this.altas = registry.counter("imagen.indice.altas");
+    }
+
+    public Optional<ResultadoTags> buscar(ImagenDescargada imagen) {
+        if (!habilitado) return Optional.empty();
+        Optional<ResultadoTags> previo = repository.findById(imagen.sha256())
+                .map(c -> new ResultadoTags(List.copyOf(c.getTags()), c.getOcrText(), true));
+        (previo.isPresent() ? hits : misses).increment();
+        return previo;
+    }
+
+    /** En una transacción propia: un choque de PK no deja marcada para rollback la del llamador. */
+    public void registrar(ImagenDescargada imagen, ResultadoTags resultado) {
+        if (!habilitado || !resultado.completo()) return;
+        ContenidoImagen contenido = new ContenidoImagen(imagen.sha256(), imagen.contentType(), imagen.largo(),
+                resultado.ocrText(), resultado.tags());
+        try {
+            nuevaTx.executeWithoutResult(status -> repository.saveAndFlush(contenido));
+            altas.increment();
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Contenido {} ya indexado por otro PdI", imagen.sha256());
+        }
+    }
+}
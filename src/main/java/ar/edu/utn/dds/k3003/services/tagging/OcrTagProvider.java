@@ -1,18 +1,31 @@
 package ar.edu.utn.dds.k3003.services.tagging;
 
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
 import ar.edu.utn.dds.k3003.clients.OcrClient;
 import ar.edu.utn.dds.k3003.model.PdI;
+import ar.edu.utn.dds.k3003.resilience.Dependencias;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
+@Order(1)
 @RequiredArgsConstructor
 public class OcrTagProvider implements TagProvider {
 
     private final OcrClient ocrClient;
+    private final Dependencias dependencias;
+    private final OcrTokenizer tokenizer;
+
+    @Override
+    public boolean disponible() {
+        return dependencias.obtener("ocr").disponible();
+    }
 
     @Override
     public boolean supports(PdI pdi) {
@@ -21,23 +34,25 @@ public class OcrTagProvider implements TagProvider {
 
     @Override
     public List<String> extractTags(PdI pdi) throws Exception {
-        String parsed = ocrClient.extractText(pdi.getImageUrl());
+        return tokenizar(pdi, ocrClient.extractText(pdi.getImageUrl()));
+    }
+
+    @Override
+    public List<String> extractTags(PdI pdi, ImagenDescargada imagen) {
+        return tokenizar(pdi, ocrClient.extractText(imagen));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> extractTagsAsync(PdI pdi, @Nullable ImagenDescargada imagen, Plazo plazo) {
+        CompletableFuture<String> texto = (imagen != null)
+                ? ocrClient.extractTextAsync(imagen, plazo)
+                : ocrClient.extractTextAsync(pdi.getImageUrl(), plazo);
+        return texto.thenApply(parsed -> tokenizar(pdi, parsed));
+    }
+
+    private List<String> tokenizar(PdI pdi, String parsed) {
         pdi.setOcrText(parsed);
 
-        // Tokenizado muy simple (top-10)
-        Set<String> stop = Set.of("el","la","los","las","de","del","y","o","a","en","the","of","and");
-        Pattern token = Pattern.compile("[\\p{L}\\p{N}]{3,}");
-        Map<String,Integer> freq = new HashMap<>();
-
-        token.matcher(parsed.toLowerCase(Locale.ROOT)).results()
-                .map(r -> r.group())
-                .filter(t -> !stop.contains(t))
-                .forEach(t -> freq.merge(t, 1, Integer::sum));
-
-        return freq.entrySet().stream()
-                .sorted(Map.Entry.<String,Integer>comparingByValue().reversed())
-                .limit(10)
-                .map(Map.Entry::getKey)
-                .toList();
+        return tokenizer.topTokens(parsed);
     }
 }
@@ -0,0 +1,275 @@
+package ar.edu.utn.dds.k3003.services.tagging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tokeniza el texto de OCR y devuelve los K términos más frecuentes.
+ * - Una sola pasada sobre el texto: minúsculas y plegado de acentos carácter a carácter,
+ *   sin toLowerCase() del texto entero ni regex.
+ * - Conteo en una tabla de direccionamiento abierto con contadores int; las claves se copian
+ *   a un único buffer de chars, así que sólo se crean Strings para los K términos devueltos.
+ * - Top-K con un min-heap acotado en vez de ordenar todo el mapa de frecuencias.
+ * - Stop-words configurables ({@code ocr.tags.stop-words}), normalizadas igual que los tokens.
+ * Es inmutable después de construido: la usan varios threads de tagging a la vez.
+ */
+@Component
+public class OcrTokenizer {
+
+    // Plegado de acentos para Latin-1 y Latin Extended-A (á→a, ñ→n, ç→c...); 0 = sin cambio
+    private static final int FOLD_DESDE = 0x00C0;
+    private static final char[] FOLD = new char[0x0180 - FOLD_DESDE];
+
+    static {
+        for (int i = 0; i < FOLD.length; i++) {
+            String nfd = Normalizer.normalize(String.valueOf((char) (FOLD_DESDE + i)), Normalizer.Form.NFD);
+            char base = nfd.charAt(0);
+            if (nfd.length() > 1 && base < 0x80 && Character.isLetter(base)) FOLD[i] = base;
+        }
+    }
+
+    private final Tabla stopWords;
+    private final int minLength;
+    private final int topK;
+    private final boolean foldAccents;
+
+    public OcrTokenizer(@Value("${ocr.tags.stop-words:el,la,los,las,de,del,y,o,a,en,the,of,and}") List<String> stopWords,
+                        @Value("${ocr.tags.min-length:3}") int minLength,
+                        @Value("${ocr.tags.top-k:10}") int topK,
+                        @Value("${ocr.tags.fold-accents:true}") boolean foldAccents) {
+        this.minLength = Math.max(1, minLength);
+        this.topK = Math.max(1, topK);
+        this.foldAccents = foldAccents;
+
+        this.stopWords = new Tabla(Math.max(8, stopWords.size() * 2), 16);
+        for (String palabra : stopWords) {
+            String p = palabra.strip();
+            if (p.isEmpty()) continue;
+            char[] buf = new char[p.length() * 2];
+            int len = 0;
+            int hash = 0;
+            for (int i = 0; i < p.length(); ) {
+                int cp = p.codePointAt(i);
+                i += Character.charCount(cp);
+                cp = normalizar(cp);
+                len += Character.toChars(cp, buf, len);
+            }
+            for (int i = 0; i < len; i++) hash = 31 * hash + buf[i];
+            this.stopWords.sumar(buf, len, hash);
+        }
+    }
+
+    /** Los {@code top-k} tokens más frecuentes (desempate: el que apareció primero). */
+    public List<String> topTokens(CharSequence texto) {
+        if (texto == null || texto.isEmpty()) return List.of();
+
+        Tabla frecuencias = new Tabla(Math.max(16, texto.length() / 8), texto.length() / 4);
+        char[] token = new char[32];
+        int len = 0;
+        int codePoints = 0;
+        int hash = 0;
+
+        int n = texto.length();
+        for (int i = 0; i <= n; ) {
+            int cp = -1;
+            if (i < n) {
+                char c = texto.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                    cp = Character.toCodePoint(c, texto.charAt(i + 1));
+                    i += 2;
+                } else {
+                    cp = c;
+                    i++;
+                }
+            } else {
+                i++;
+            }
+
+            if (cp >= 0 && Character.isLetterOrDigit(cp)) {
+                cp = normalizar(cp);
+                if (len + 2 > token.length) token = Arrays.copyOf(token, token.length * 2);
+                if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    token[len++] = (char) cp;
+                    hash = 31 * hash + cp;
+                } else {
+                    token[len++] = Character.highSurrogate(cp);
+                    token[len++] = Character.lowSurrogate(cp);
+                    hash = 31 * (31 * hash + token[len - 2]) + token[len - 1];
+                }
+                codePoints++;
+                continue;
+            }
+
+            // fin de token
+            if (codePoints >= minLength && stopWords.buscar(token, len, hash) < 0) {
+                frecuencias.sumar(token, len, hash);
+            }
+            len = 0;
+            codePoints = 0;
+            hash = 0;
+        }
+
+        return frecuencias.top(topK);
+    }
+
+    private int normalizar(int cp) {
+        int lower = Character.toLowerCase(cp);
+        if (foldAccents && lower >= FOLD_DESDE && lower < FOLD_DESDE + FOLD.length) {
+            char base = FOLD[lower - FOLD_DESDE];
+            if (base != 0) return Character.toLowerCase(base);
+        }
+        return lower;
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto (sondeo lineal) de secuencias de chars a contadores int.
+     * Las claves viven en un único buffer {@code chars}; cada slot guarda offset, largo, hash y orden de alta.
+     */
+    private static final class Tabla {
+        private int[] slots;          // índice de entrada + 1; 0 = vacío
+        private int mascara;
+
+        private char[] chars;
+        private int usados;
+
+        private int[] offsets;
+        private int[] largos;
+        private int[] hashes;
+        private int[] cuentas;
+        private int tamanio;
+
+        Tabla(int capacidadEsperada, int charsEsperados) {
+            int cap = Integer.highestOneBit(Math.max(8, capacidadEsperada * 2 - 1)) << 1;
+            this.slots = new int[cap];
+            this.mascara = cap - 1;
+            this.chars = new char[Math.max(16, charsEsperados)];
+            int entradas = Math.max(8, capacidadEsperada);
+            this.offsets = new int[entradas];
+            this.largos = new int[entradas];
+            this.hashes = new int[entradas];
+            this.cuentas = new int[entradas];
+        }
+
+        int buscar(char[] buf, int len, int hash) {
+            for (int s = mezclar(hash) & mascara; ; s = (s + 1) & mascara) {
+                int e = slots[s] - 1;
+                if (e < 0) return -1;
+                if (hashes[e] == hash && iguales(e, buf, len)) return e;
+            }
+        }
+
+        void sumar(char[] buf, int len, int hash) {
+            int s = mezclar(hash) & mascara;
+            for (; ; s = (s + 1) & mascara) {
+                int e = slots[s] - 1;
+                if (e < 0) break;
+                if (hashes[e] == hash && iguales(e, buf, len)) {
+                    cuentas[e]++;
+                    return;
+                }
+            }
+
+            if (tamanio == offsets.length) crecerEntradas();
+            if (usados + len > chars.length) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, usados + len));
+            System.arraycopy(buf, 0, chars, usados, len);
+
+            int e = tamanio++;
+            offsets[e] = usados;
+            largos[e] = len;
+            hashes[e] = hash;
+            cuentas[e] = 1;
+            usados += len;
+            slots[s] = e + 1;
+
+            if (tamanio * 2 > slots.length) rehash();
+        }
+
+        /** Los k de mayor cuenta, de mayor a menor; el orden de alta desempata (gana el primero). */
+        List<String> top(int k) {
+            int tope = Math.min(k, tamanio);
+            if (tope == 0) return List.of();
+
+            // min-heap por (cuenta asc, orden de alta desc): en la raíz queda el peor de los k
+            int[] heap = new int[tope];
+            int enHeap = 0;
+            for (int e = 0; e < tamanio; e++) {
+                if (enHeap < tope) {
+                    heap[enHeap] = e;
+                    subir(heap, enHeap++);
+                } else if (mejor(e, heap[0])) {
+                    heap[0] = e;
+                    bajar(heap, enHeap);
+                }
+            }
+
+            String[] resultado = new String[enHeap];
+            for (int i = enHeap - 1; i >= 0; i--) {
+                int e = heap[0];
+                resultado[i] = new String(chars, offsets[e], largos[e]);
+                heap[0] = heap[i];
+                bajar(heap, i);
+            }
+            return new ArrayList<>(Arrays.asList(resultado));
+        }
+
+        private boolean mejor(int a, int b) {
+            return cuentas[a] != cuentas[b] ? cuentas[a] > cuentas[b] : a < b;
+        }
+
+        private void subir(int[] heap, int i) {
+            while (i > 0) {
+                int padre = (i - 1) >>> 1;
+                if (!mejor(heap[padre], heap[i])) break;
+                int t = heap[padre]; heap[padre] = heap[i]; heap[i] = t;
+                i = padre;
+            }
+        }
+
+        private void bajar(int[] heap, int n) {
+            int i = 0;
+            while (true) {
+                int izq = 2 * i + 1;
+                if (izq >= n) break;
+                int peor = izq;
+                int der = izq + 1;
+                if (der < n && mejor(heap[izq], heap[der])) peor = der;
+                if (!mejor(heap[i], heap[peor])) break;
+                int t = heap[peor]; heap[peor] = heap[i]; heap[i] = t;
+                i = peor;
+            }
+        }
+
+        private boolean iguales(int e, char[] buf, int len) {
+            return largos[e] == len
+                    && Arrays.equals(chars, offsets[e], offsets[e] + len, buf, 0, len);
+        }
+
+        private void crecerEntradas() {
+            int cap = offsets.length * 2;
+            offsets = Arrays.copyOf(offsets, cap);
+            largos = Arrays.copyOf(largos, cap);
+            hashes = Arrays.copyOf(hashes, cap);
+            cuentas = Arrays.copyOf(cuentas, cap);
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            mascara = slots.length - 1;
+            for (int e = 0; e < tamanio; e++) {
+                int s = mezclar(hashes[e]) & mascara;
+                while (slots[s] != 0) s = (s + 1) & mascara;
+                slots[s] = e + 1;
+            }
+        }
+
+        private static int mezclar(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package ar.edu.utn.dds.k3003.services.tagging;
 
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
 import ar.edu.utn.dds.k3003.model.PdI;
-import ar.edu.utn.dds.k3003.repository.PdIRepository;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,31 +22,66 @@ import java.util.stream.Collectors;
 public class TagAggregatorService {
 
     private final List<TagProvider> providers;
-    private final PdIRepository pdiRepository; // <-- ajustá el nombre si tu repo difiere
-
-    public TagAggregatorService(List<TagProvider> providers, PdIRepository pdiRepository) {
+    private final long providerTimeoutMs;
+    private final long overallTimeoutMs;
+    private final ProcesamientoMetrics metricas;
+    private final IndiceContenidoImagen indice;
+
+    public TagAggregatorService(List<TagProvider> providers,
+                                ProcesamientoMetrics metricas,
+                                IndiceContenidoImagen indice,
+                                @Value("${tagging.provider-timeout-ms:12000}") long providerTimeoutMs,
+                                @Value("${tagging.overall-timeout-ms:15000}") long overallTimeoutMs) {
         List<TagProvider> copy = new ArrayList<>(providers != null ? providers : List.of());
         AnnotationAwareOrderComparator.sort(copy);        // respeta @Order/Ordered
         this.providers = Collections.unmodifiableList(copy);
-        this.pdiRepository = Objects.requireNonNull(pdiRepository, "PdIRepository no puede ser null");
+        // Un deadline global menor al de cada provider cortaría providers sanos: se rechaza en vez de corregirlo
+        if (providerTimeoutMs <= 0 || overallTimeoutMs < providerTimeoutMs) {
+            throw new IllegalStateException("Configuración de tagging inválida: tagging.provider-timeout-ms="
+                    + providerTimeoutMs + " tiene que ser > 0 y <= tagging.overall-timeout-ms=" + overallTimeoutMs);
+        }
+        this.providerTimeoutMs = providerTimeoutMs;
+        this.overallTimeoutMs = overallTimeoutMs;
+        this.metricas = metricas;
+        this.indice = indice;
     }
 
     /**
-     * Busca el PdI, ejecuta todos los TagProvider soportados y persiste el PdI con las nuevas tags.
-     * - Evita duplicados (conserva orden de llegada).
-     * - Loguea errores por provider pero no corta la ejecución.
-     * - Devuelve el PdI actualizado.
+     * Resultado del tagging de un PdI: tags en orden de @Order y el texto OCR si algún provider lo obtuvo.
+     * {@code completo} es false si algún provider se omitió o falló (no se guarda en el índice por contenido).
      */
-    @Transactional
-    public PdI processImageTags(Long pdiId) {
-        Objects.requireNonNull(pdiId, "pdiId no puede ser null");
-
-        PdI pdi = pdiRepository.findById(pdiId)
-                .orElseThrow(() -> new NoSuchElementException("No existe PdI con id=" + pdiId));
+    public record ResultadoTags(List<String> tags, String ocrText, boolean completo) {}
 
-        // conjunto ordenado: evita duplicados y preserva orden
-        List<String> aggregated = new ArrayList<>();
+    /**
+     * Ejecuta todos los TagProvider soportados en paralelo, sin tocar el PdI recibido.
+     * Cada provider devuelve un future (extractTagsAsync): las llamadas remotas corren en los clientes HTTP
+     * y este thread sólo espera el conjunto, sin un thread bloqueado por provider.
+     * - Con {@code imagen} se consulta primero el índice por contenido (IndiceContenidoImagen): si esos bytes
+     *   ya se procesaron se devuelve lo guardado sin llamar a ningún provider.
+     * - Si no, los providers trabajan sobre esos bytes (cada cliente la retiene mientras dura su llamada);
+     *   el llamador sigue siendo dueño de la suya y la libera al volver.
+     * - Cada provider tiene su propio deadline (el menor entre el suyo y el global), que llega como {@link Plazo}
+     *   hasta el cliente HTTP: los timeouts de cada request y los reintentos se recortan a lo que queda, así una
+     *   llamada vencida se corta y libera conexión y thread. Uno lento no bloquea a los demás.
+     * - Lo que llegó antes del deadline global se conserva, en el orden declarado por @Order.
+     * - Loguea errores por provider pero no corta la ejecución.
+     * - Cada llamada se mide en pdi.tagging.provider{provider, resultado}, aunque termine después del deadline.
+     */
+    public ResultadoTags extraerTags(PdI pdi, @Nullable ImagenDescargada imagen) {
+        Long pdiId = pdi.getId();
+
+        if (imagen != null) {
+            Optional<ResultadoTags> previo = indice.buscar(imagen);
+            if (previo.isPresent()) {
+                log.debug("Imagen del PdI {} ya procesada (sha256={}), se reutilizan OCR y tags.", pdiId, imagen.sha256());
+                return previo.get();
+            }
+        }
+        boolean completo = true;
+        Plazo global = Plazo.en(overallTimeoutMs);
 
+        // Los providers trabajan sobre una copia: el PdI original no se toca fuera de este thread
+        List<Ejecucion> ejecuciones = new ArrayList<>();
         for (TagProvider provider : providers) {
             String pname = safeName(provider);
 
@@ -48,45 +90,122 @@ public class TagAggregatorService {
                 continue;
             }
 
-            try {
-                List<String> tags = Optional.ofNullable(provider.extractTags(pdi)).orElse(List.of())
-                        .stream()
-                        .filter(Objects::nonNull)
-                        .map(String::trim)
-                        .filter(s -> !s.isEmpty())
-                        .collect(Collectors.toList());
-
-                if (!tags.isEmpty()) {
-                    log.debug("Provider {} devolvió {} tag(s) para PdI {}.", pname, tags.size(), pdiId);
-                    aggregated.addAll(tags);
-                } else {
-                    log.debug("Provider {} no devolvió tags para PdI {}.", pname, pdiId);
-                }
-            } catch (Exception ex) {
-                log.warn("Fallo en provider {} para PdI {}: {} - {}",
-                        pname, pdiId, ex.getClass().getSimpleName(), ex.getMessage());
-                // seguimos con los demás providers
+            if (!safeDisponible(provider)) {
+                log.warn("Provider {} con circuito abierto, se omite para PdI id={}.", pname, pdiId);
+                completo = false;
+                continue;
             }
+
+            PdI copia = copiaDeTrabajo(pdi);
+            Plazo plazo = Plazo.en(providerTimeoutMs).antes(global);
+            ejecuciones.add(new Ejecucion(provider, pname, copia, invocar(provider, pname, copia, imagen, plazo)));
         }
 
-        // ==== Actualización del PdI ====
-        // Opción A (si existe un método acumulativo):
-        try {
-            pdi.setAutoTags(aggregated); // <-- usa tu método real (addTags/addAll/etc.)
-        } catch (NoSuchMethodError | UnsupportedOperationException e) {
-            // Opción B (si solo hay setter):
-            // pdi.setTags(new ArrayList<>(aggregated));
-            throw e; // Dejá la opción que corresponda a tu modelo y eliminá la otra.
+        esperar(ejecuciones, global, pdiId);
+
+        // conjunto ordenado: evita duplicados y preserva orden
+        List<String> aggregated = new ArrayList<>();
+        String ocrText = null;
+
+        for (Ejecucion e : ejecuciones) {
+            List<String> tags = resultado(e, pdiId);
+            if (tags == null) {
+                completo = false;
+                continue;
+            }
+
+            if (e.copia().getOcrText() != null) {
+                ocrText = e.copia().getOcrText();
+            }
+
+            if (!tags.isEmpty()) {
+                log.debug("Provider {} devolvió {} tag(s) para PdI {}.", e.nombre(), tags.size(), pdiId);
+                aggregated.addAll(tags);
+            } else {
+                log.debug("Provider {} no devolvió tags para PdI {}.", e.nombre(), pdiId);
+            }
         }
 
-        // persistimos y devolvemos el PdI actualizado
-        PdI actualizado = pdiRepository.save(pdi);
-        log.debug("PdI {} actualizado con {} tag(s).", pdiId, aggregated.size());
-        return actualizado;
+        ResultadoTags resultado = new ResultadoTags(aggregated, ocrText, completo);
+        if (imagen != null) indice.registrar(imagen, resultado);
+        return resultado;
     }
 
     /* ===================== Helpers ===================== */
 
+    private record Ejecucion(TagProvider provider, String nombre, PdI copia,
+                             CompletableFuture<List<String>> future) {}
+
+    private CompletableFuture<List<String>> invocar(TagProvider provider, String nombre, PdI copia,
+                                                    @Nullable ImagenDescargada imagen, Plazo plazo) {
+        long inicio = System.nanoTime();
+        CompletableFuture<List<String>> crudas;
+        try {
+            crudas = provider.extractTagsAsync(copia, imagen, plazo);
+        } catch (RuntimeException e) {
+            crudas = CompletableFuture.failedFuture(e);
+        }
+        return crudas.thenApply(TagAggregatorService::limpiar)
+                .whenComplete((tags, error) -> metricas.provider(nombre, error == null, System.nanoTime() - inicio))
+                .orTimeout(plazo.restanteMs(), TimeUnit.MILLISECONDS);   // la llamada en sí la corta su Plazo
+    }
+
+    private static List<String> limpiar(@Nullable List<String> crudas) {
+        return Optional.ofNullable(crudas).orElse(List.of())
+                .stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /** Espera a todos los providers hasta el deadline global; los que no terminaron se descartan. */
+    private void esperar(List<Ejecucion> ejecuciones, Plazo global, Long pdiId) {
+        if (ejecuciones.isEmpty()) return;
+        CompletableFuture<?>[] futures = ejecuciones.stream()
+                .map(Ejecucion::future)
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).get(global.restanteMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Deadline global de {} ms vencido para PdI {}; se conservan los resultados ya recibidos.",
+                    overallTimeoutMs, pdiId);
+        } catch (ExecutionException e) {
+            // algún provider falló: se informa individualmente más abajo
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<String> resultado(Ejecucion e, Long pdiId) {
+        CompletableFuture<List<String>> f = e.future();
+        if (!f.isDone()) {
+            // No se cancela: la llamada termina sola al vencer su Plazo (timeouts HTTP recortados)
+            log.warn("Provider {} no respondió a tiempo para PdI {}, se omite.", e.nombre(), pdiId);
+            return null;
+        }
+        try {
+            return f.join();
+        } catch (Exception ex) {
+            Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+            if (cause instanceof TimeoutException) {
+                log.warn("Provider {} superó su deadline de {} ms para PdI {}.", e.nombre(), providerTimeoutMs, pdiId);
+            } else {
+                log.warn("Fallo en provider {} para PdI {}: {} - {}",
+                        e.nombre(), pdiId, cause.getClass().getSimpleName(), cause.getMessage());
+            }
+            // seguimos con los demás providers
+            return null;
+        }
+    }
+
+    private static PdI copiaDeTrabajo(PdI pdi) {
+        PdI copia = new PdI(pdi.getHechoId(), pdi.getDescripcion(), pdi.getLugar(),
+                pdi.getMomento(), pdi.getContenido(), pdi.getImageUrl());
+        copia.setId(pdi.getId());
+        return copia;
+    }
+
     private boolean safeSupports(TagProvider p, PdI pdi) {
         try {
             return p.supports(pdi);
@@ -96,6 +215,14 @@ public class TagAggregatorService {
         }
     }
 
+    private boolean safeDisponible(TagProvider p) {
+        try {
+            return p.disponible();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
     private String safeName(TagProvider p) {
         try {
             String n = p.name();
@@ -1,10 +1,31 @@
 package ar.edu.utn.dds.k3003.services.tagging;
 
+import ar.edu.utn.dds.k3003.clients.ImagenDescargada;
 import ar.edu.utn.dds.k3003.model.PdI;
+import ar.edu.utn.dds.k3003.resilience.Plazo;
+import org.springframework.lang.Nullable;
+
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface TagProvider {
     boolean supports(PdI pdi);
     List<String> extractTags(PdI pdi) throws Exception;
+    /** Con la imagen ya descargada por ImageFetcher; los providers que pueden subir los bytes lo sobreescriben. */
+    default List<String> extractTags(PdI pdi, ImagenDescargada imagen) throws Exception { return extractTags(pdi); }
+    /**
+     * Versión asíncrona, con la imagen ya descargada si la hay; {@code plazo} es el deadline de las llamadas
+     * remotas. Por defecto resuelve con la sincrónica en el thread que llama (sin plazo); los providers con
+     * cliente asíncrono la sobreescriben para no ocupar threads.
+     */
+    default CompletableFuture<List<String>> extractTagsAsync(PdI pdi, @Nullable ImagenDescargada imagen, Plazo plazo) {
+        try {
+            return CompletableFuture.completedFuture(imagen != null ? extractTags(pdi, imagen) : extractTags(pdi));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
     default String name() { return getClass().getSimpleName(); }
+    /** false cuando la dependencia remota del provider tiene el circuito abierto: conviene no llamarlo. */
+    default boolean disponible() { return true; }
 }
@@ -0,0 +1,145 @@
+package ar.edu.utn.dds.k3003.workers;
+
+import ar.edu.utn.dds.k3003.facades.FachadaProcesadorPDI;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consumidor por lotes (worker.mode=batch).
+ * - El contenedor entrega hasta worker.batch.size mensajes juntos (ver RabbitConfig.pdiBatchListenerFactory).
+ * - Los PdIs del lote entran juntos al pipeline con procesarAsync(); su paralelismo lo ponen las etapas.
+ * - Los acks se hacen al final, en el thread del listener (el Channel no es thread-safe):
+ *   si todo salió bien, un único basicAck multiple; si no, ack/nack mensaje por mensaje.
+ * - Un mensaje que falla se reencola una vez; si vuelve a fallar (redelivered) o no se puede leer, se descarta.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "worker.mode", havingValue = "batch")
+public class PdiBatchWorker {
+
+    private final FachadaProcesadorPDI fachadaProcesadorPdI;
+    private final ObjectMapper mapper;
+    private final ProcesamientoMetrics metricas;
+
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    private final Counter procesados;
+    private final Counter fallidos;
+    private final Counter descartados;
+    private final DistributionSummary tamanioLote;
+    private final Timer tiempoLote;
+
+    public PdiBatchWorker(FachadaProcesadorPDI fachadaProcesadorPdI,
+                          ProcesamientoMetrics metricas,
+                          MeterRegistry registry) {
+        this.fachadaProcesadorPdI = fachadaProcesadorPdI;
+        this.metricas = metricas;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+
+        registry.gauge("pdi.worker.inflight", enVuelo);
+        this.procesados = registry.counter("pdi.worker.mensajes", "resultado", "ok");
+        this.fallidos = registry.counter("pdi.worker.mensajes", "resultado", "error");
+        this.descartados = registry.counter("pdi.worker.descartados");
+        this.tamanioLote = registry.summary("pdi.worker.lote.tamanio");
+        this.tiempoLote = registry.timer("pdi.worker.lote");
+    }
+
+    @RabbitListener(queues = "${queue.name}", containerFactory = "pdiBatchListenerFactory")
+    public void handleBatch(List<Message> mensajes, Channel channel) throws IOException {
+        if (mensajes.isEmpty()) return;
+        tamanioLote.record(mensajes.size());
+        mensajes.forEach(m -> metricas.esperaEnCola(m.getMessageProperties().getTimestamp()));
+        Timer.Sample sample = Timer.start();
+
+        try {
+            List<CompletableFuture<Resultado>> resultados = new ArrayList<>(mensajes.size());
+            for (Message m : mensajes) {
+                resultados.add(procesar(m));
+            }
+            // El lote se confirma en este thread (el Channel no es thread-safe): acá sí hay que esperar.
+            // Cada future termina con un Resultado aunque el PdI falle, así que el join no lanza.
+            CompletableFuture.allOf(resultados.toArray(CompletableFuture[]::new)).join();
+
+            confirmar(mensajes, resultados, channel);
+        } finally {
+            sample.stop(tiempoLote);
+        }
+    }
+
+    private enum Resultado { OK, FALLO, ILEGIBLE }
+
+    private CompletableFuture<Resultado> procesar(Message m) {
+        long tag = m.getMessageProperties().getDeliveryTag();
+        enVuelo.incrementAndGet();
+        CompletableFuture<PdIDTO> procesamiento;
+        try {
+            PdIDTO entrada;
+            try {
+                entrada = mapper.readValue(m.getBody(), PdIDTO.class);
+            } catch (IOException e) {
+                log.error("❌ [BatchWorker] Mensaje {} ilegible, se descarta: {}", tag, e.getMessage());
+                fallidos.increment();
+                enVuelo.decrementAndGet();
+                return CompletableFuture.completedFuture(Resultado.ILEGIBLE);
+            }
+            procesamiento = fachadaProcesadorPdI.procesarAsync(entrada);
+        } catch (Throwable e) {
+            // cualquier cosa (también un Error) tiene que terminar en FALLO: si no, el mensaje nunca se confirma
+            procesamiento = CompletableFuture.failedFuture(e);
+        }
+        return procesamiento.handle((resultado, error) -> {
+            enVuelo.decrementAndGet();
+            if (error != null) {
+                Throwable causa = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                log.error("❌ [BatchWorker] Error procesando mensaje {}: {}", tag, causa.getMessage(), causa);
+                fallidos.increment();
+                return Resultado.FALLO;
+            }
+            log.debug("✅ [BatchWorker] PdI procesado → id={}, estado={}", resultado.id(), resultado.processingState());
+            procesados.increment();
+            return Resultado.OK;
+        }).exceptionally(e -> Resultado.FALLO);   // ni un error del propio handle deja el future sin Resultado
+    }
+
+    private void confirmar(List<Message> mensajes, List<CompletableFuture<Resultado>> resultados,
+                           Channel channel) throws IOException {
+        boolean todosOk = resultados.stream().allMatch(r -> r.join() == Resultado.OK);
+        if (todosOk) {
+            // Un solo ack cubre todo el lote: los delivery tags del canal son crecientes
+            long ultimo = mensajes.get(mensajes.size() - 1).getMessageProperties().getDeliveryTag();
+            channel.basicAck(ultimo, true);
+            return;
+        }
+        for (int i = 0; i < mensajes.size(); i++) {
+            var props = mensajes.get(i).getMessageProperties();
+            Resultado r = resultados.get(i).join();
+            if (r == Resultado.OK) {
+                channel.basicAck(props.getDeliveryTag(), false);
+            } else {
+                boolean reencolar = r == Resultado.FALLO && !Boolean.TRUE.equals(props.getRedelivered());
+                if (!reencolar) descartados.increment();
+                channel.basicNack(props.getDeliveryTag(), false, reencolar);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ar.edu.utn.dds.k3003.workers;
+
+import ar.edu.utn.dds.k3003.facades.FachadaProcesadorPDI;
+import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Consumidor con virtual threads (worker.mode=virtual).
+ * - El thread del contenedor sólo toma el mensaje y lo despacha a un virtual thread (pdiVirtualExecutor);
+ *   nunca se bloquea.
+ * - El virtual thread reserva un permiso del semáforo (worker.virtual.max-concurrency) y procesa el PdI
+ *   de forma bloqueante; esperar ahí no ocupa un thread de plataforma. El permiso se libera al terminar.
+ * - Los mensajes que esperan permiso los acota el prefetch: sin acks pendientes RabbitMQ deja de entregar.
+ * - El listener devuelve un CompletableFuture: el contenedor hace el ack (o el nack) cuando termina.
+ * - Un fallo se reencola una vez; en la segunda entrega o si el JSON no se puede leer se confirma y descarta.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "worker.mode", havingValue = "virtual")
+public class PdiVirtualWorker {
+
+    private final FachadaProcesadorPDI fachadaProcesadorPdI;
+    private final AsyncTaskExecutor executor;
+    private final ObjectMapper mapper;
+    private final ProcesamientoMetrics metricas;
+    private final Semaphore permisos;
+
+    private final Counter procesados;
+    private final Counter fallidos;
+    private final Counter descartados;
+    private final Timer tiempo;
+
+    public PdiVirtualWorker(FachadaProcesadorPDI fachadaProcesadorPdI,
+                            @Qualifier("pdiVirtualExecutor") AsyncTaskExecutor executor,
+                            @Value("${worker.virtual.max-concurrency:200}") int maxConcurrency,
+                            ProcesamientoMetrics metricas,
+                            MeterRegistry registry) {
+        this.fachadaProcesadorPdI = fachadaProcesadorPdI;
+        this.executor = executor;
+        this.metricas = metricas;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+        int tope = Math.max(1, maxConcurrency);
+        this.permisos = new Semaphore(tope);
+
+        Gauge.builder("pdi.worker.virtual.activos", permisos, p -> tope - p.availablePermits())
+                .description("PdIs procesándose en virtual threads")
+                .register(registry);
+        Gauge.builder("pdi.worker.virtual.esperando", permisos, Semaphore::getQueueLength)
+                .description("Mensajes esperando un permiso en su virtual thread")
+                .register(registry);
+        this.procesados = registry.counter("pdi.worker.mensajes", "resultado", "ok");
+        this.fallidos = registry.counter("pdi.worker.mensajes", "resultado", "error");
+        this.descartados = registry.counter("pdi.worker.descartados");
+        this.tiempo = registry.timer("pdi.worker.virtual.procesamiento");
+    }
+
+    @RabbitListener(queues = "${queue.name}", containerFactory = "pdiVirtualListenerFactory")
+    public CompletableFuture<Void> handleMessage(Message mensaje) {
+        metricas.esperaEnCola(mensaje.getMessageProperties().getTimestamp());
+        return CompletableFuture.runAsync(() -> conPermiso(mensaje), executor);
+    }
+
+    private void conPermiso(Message mensaje) {
+        try {
+            permisos.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando permiso", e);
+        }
+        try {
+            procesar(mensaje);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private void procesar(Message mensaje) {
+        long tag = mensaje.getMessageProperties().getDeliveryTag();
+        PdIDTO entrada;
+        try {
+            entrada = mapper.readValue(mensaje.getBody(), PdIDTO.class);
+        } catch (IOException e) {
+            log.error("❌ [VirtualWorker] Mensaje {} ilegible, se descarta: {}", tag, e.getMessage());
+            fallidos.increment();
+            descartados.increment();
+            return;
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            // En un virtual thread esperar el pipeline es barato: se desmonta del carrier mientras tanto
+            var resultado = fachadaProcesadorPdI.procesar(entrada);
+            log.debug("✅ [VirtualWorker] PdI procesado → id={}, estado={}", resultado.id(), resultado.processingState());
+            procesados.increment();
+        } catch (RuntimeException e) {
+            fallidos.increment();
+            if (Boolean.TRUE.equals(mensaje.getMessageProperties().getRedelivered())) {
+                log.error("❌ [VirtualWorker] PdI {} falló de nuevo, se descarta: {}", entrada.id(), e.getMessage(), e);
+                descartados.increment();
+                return;
+            }
+            log.warn("⚠️ [VirtualWorker] PdI {} falló, se reencola: {}", entrada.id(), e.getMessage());
+            throw e;
+        } finally {
+            sample.stop(tiempo);
+        }
+    }
+}
@@ -2,45 +2,69 @@ package ar.edu.utn.dds.k3003.workers;
 
 import ar.edu.utn.dds.k3003.facades.FachadaProcesadorPDI;
 import ar.edu.utn.dds.k3003.facades.dtos.PdIDTO;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/** Consumidor de a un mensaje (modo por defecto, worker.mode=single). Ver PdiBatchWorker para el modo por lotes. */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "worker.mode", havingValue = "single", matchIfMissing = true)
 public class PdiWorker {
 
     private final FachadaProcesadorPDI fachadaProcesadorPdI;
     private final ObjectMapper mapper;
+    private final ProcesamientoMetrics metricas;
 
-    public PdiWorker(FachadaProcesadorPDI fachadaProcesadorPdI) {
+    public PdiWorker(FachadaProcesadorPDI fachadaProcesadorPdI, ProcesamientoMetrics metricas) {
         this.fachadaProcesadorPdI = fachadaProcesadorPdI;
+        this.metricas = metricas;
         this.mapper = new ObjectMapper();
         this.mapper.registerModule(new JavaTimeModule()); // ✅ soporte para LocalDateTime
     }
 
     /**
-     * 🎯 Escucha la cola y delega directamente al método procesar() de la fachada.
+     * 🎯 Escucha la cola y delega en procesarAsync() de la fachada.
      * Cada mensaje debe ser un JSON con los datos del PdI.
+     * El thread del contenedor no espera el procesamiento: devuelve el future y el contenedor
+     * (ack manual para retornos asíncronos) confirma el mensaje cuando termina. Los errores se loguean
+     * y el mensaje se confirma igual, como antes; los PdIs en vuelo por consumidor los limita el prefetch.
      */
     @RabbitListener(queues = "${queue.name}")
-    public void handleMessage(String body) {
+    public CompletableFuture<Void> handleMessage(String body,
+                                                 @Header(name = AmqpHeaders.TIMESTAMP, required = false) Date publicado) {
+        metricas.esperaEnCola(publicado);
         log.info("📥 [Worker] Mensaje recibido desde la cola: {}", body);
 
+        CompletableFuture<PdIDTO> procesamiento;
         try {
             // 🔸 Deserializar JSON a PdIDTO
             PdIDTO entrada = mapper.readValue(body, PdIDTO.class);
-
-            // 🔸 Llamar al método procesar() original de la fachada
-            var resultado = fachadaProcesadorPdI.procesar(entrada);
-
-            log.info("✅ [Worker] PdI procesado correctamente → id={}, estado={}",
-                    resultado.id(), resultado.processingState());
-
+            procesamiento = fachadaProcesadorPdI.procesarAsync(entrada);
         } catch (Exception e) {
-            log.error("❌ [Worker] Error procesando mensaje: {}", e.getMessage(), e);
+            procesamiento = CompletableFuture.failedFuture(e);
         }
+
+        return procesamiento.handle((resultado, error) -> {
+            if (error != null) {
+                Throwable causa = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                log.error("❌ [Worker] Error procesando mensaje: {}", causa.getMessage(), causa);
+            } else {
+                log.info("✅ [Worker] PdI procesado correctamente → id={}, estado={}",
+                        resultado.id(), resultado.processingState());
+            }
+            return null;
+        });
     }
 }
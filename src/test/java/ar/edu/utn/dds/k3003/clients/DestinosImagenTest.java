@@ -0,0 +1,60 @@
+package ar.edu.utn.dds.k3003.clients;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen.ImagenRechazadaException;
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.imagen.ImagenRechazadaException.Motivo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+class DestinosImagenTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+            "100.64.0.1", "0.0.0.0", "224.0.0.1", "::1", "fe80::1", "fd00::1", "::ffff:127.0.0.1",
+            "64:ff9b::a9fe:a9fe"})
+    @DisplayName("Direcciones no públicas se rechazan")
+    void noPublicas(String ip) throws UnknownHostException {
+        assertFalse(DestinosImagen.esPublica(InetAddress.getByName(ip)), ip);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"8.8.8.8", "151.101.1.69", "2606:4700:4700::1111"})
+    @DisplayName("Direcciones públicas se aceptan")
+    void publicas(String ip) throws UnknownHostException {
+        assertTrue(DestinosImagen.esPublica(InetAddress.getByName(ip)), ip);
+    }
+
+    @Test
+    @DisplayName("Sin permitir privadas, resolver loopback falla")
+    void resolverLoopback() {
+        DestinosImagen destinos = new DestinosImagen(List.of(), false);
+        assertThrows(DestinosImagen.DestinoNoPermitidoException.class, () -> destinos.resolve("127.0.0.1"));
+    }
+
+    @Test
+    @DisplayName("Allowlist: host exacto y .dominio para subdominios")
+    void allowlist() {
+        DestinosImagen destinos = new DestinosImagen(List.of("imgs.example.com", " .cdn.example.org "), false);
+
+        assertTrue(destinos.hostPermitido("imgs.example.com"));
+        assertTrue(destinos.hostPermitido("a.cdn.example.org"));
+        assertTrue(destinos.hostPermitido("cdn.example.org"));
+        assertFalse(destinos.hostPermitido("evilcdn.example.org"));
+        assertFalse(destinos.hostPermitido("example.com"));
+
+        ImagenRechazadaException e = assertThrows(ImagenRechazadaException.class,
+                () -> destinos.verificarHost("otro.example.net"));
+        assertEquals(Motivo.DESTINO_NO_PERMITIDO, e.getMotivo());
+    }
+}
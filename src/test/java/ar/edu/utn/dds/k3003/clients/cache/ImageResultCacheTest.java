@@ -0,0 +1,109 @@
+package ar.edu.utn.dds.k3003.clients.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ar.edu.utn.dds.k3003.clients.RespuestaInvalidaException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ImageResultCacheTest {
+
+    private static final String URL = "http://img/a.jpg";
+
+    private final ImageResultCache<String> cache = new ImageResultCache<>(
+            "test", 100, Duration.ofMinutes(10), Duration.ofMillis(200), new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Un fallo definitivo se relanza con su tipo original sin llamar al remoto y vence con el TTL negativo")
+    void falloDefinitivoExpira() throws InterruptedException {
+        AtomicInteger llamadas = new AtomicInteger();
+        RespuestaInvalidaException falla = new RespuestaInvalidaException("json inválido");
+
+        assertSame(falla, assertThrows(RespuestaInvalidaException.class,
+                () -> cache.get(URL, u -> { llamadas.incrementAndGet(); throw falla; })));
+        assertSame(falla, assertThrows(RespuestaInvalidaException.class,
+                () -> cache.get(URL, u -> { llamadas.incrementAndGet(); return "no debería llamarse"; })));
+        assertEquals(1, llamadas.get());
+
+        Thread.sleep(400);
+
+        assertEquals("ok", cache.get(URL, u -> { llamadas.incrementAndGet(); return "ok"; }));
+        assertEquals(2, llamadas.get());
+    }
+
+    @Test
+    @DisplayName("Timeouts, 5xx y 429 no se cachean: el próximo pedido vuelve a llamar")
+    void fallosTransitoriosNoSeCachean() {
+        AtomicInteger llamadas = new AtomicInteger();
+
+        assertThrows(ResourceAccessException.class, () -> cache.get(URL, u -> {
+            llamadas.incrementAndGet();
+            throw new ResourceAccessException("timeout");
+        }));
+        assertThrows(HttpServerErrorException.class, () -> cache.get(URL, u -> {
+            llamadas.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        }));
+        assertThrows(HttpClientErrorException.class, () -> cache.get(URL, u -> {
+            llamadas.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS);
+        }));
+        assertEquals("ok", cache.get(URL, u -> { llamadas.incrementAndGet(); return "ok"; }));
+        assertEquals(4, llamadas.get());
+    }
+
+    @Test
+    @DisplayName("En el camino async un 4xx queda cacheado y se devuelve como future fallido con el mismo tipo")
+    void asyncCacheaFalloDefinitivo() {
+        AtomicInteger llamadas = new AtomicInteger();
+        HttpClientErrorException falla = new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+
+        CompletableFuture<String> primero = cache.getAsync(URL, u -> {
+            llamadas.incrementAndGet();
+            return CompletableFuture.failedFuture(falla);
+        });
+        CompletableFuture<String> segundo = cache.getAsync(URL, u -> {
+            llamadas.incrementAndGet();
+            return CompletableFuture.completedFuture("no debería llamarse");
+        });
+
+        for (CompletableFuture<String> f : List.of(primero, segundo)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+            assertSame(falla, e.getCause());
+        }
+        assertEquals(1, llamadas.get());
+    }
+
+    @Test
+    @DisplayName("En el camino async un loader que lanza un Error completa el future y no deja nada cacheado")
+    void asyncCompletaConThrowable() {
+        AssertionError error = new AssertionError("boom");
+
+        CompletableFuture<String> f = cache.getAsync(URL, u -> { throw error; });
+
+        assertTrue(f.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+        assertSame(error, e.getCause());
+
+        CompletableFuture<String> reintento = cache.getAsync(URL, u -> CompletableFuture.completedFuture("ok"));
+        assertFalse(reintento.isCompletedExceptionally());
+        assertEquals("ok", reintento.join());
+    }
+}
@@ -0,0 +1,158 @@
+package ar.edu.utn.dds.k3003.clients.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class SingleFlightTest {
+
+    private static final int SEGUIDORES = 5;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<String> singleFlight = new SingleFlight<>("test", registry);
+    private final ExecutorService pool = Executors.newFixedThreadPool(SEGUIDORES + 1);
+
+    @AfterEach
+    void cerrar() {
+        pool.shutdownNow();
+    }
+
+    private double coalescidas() {
+        return registry.get("clients.singleflight.coalesced").tag("client", "test").counter().count();
+    }
+
+    /** Espera a que todos los seguidores se hayan sumado al vuelo en curso. */
+    private void esperarSeguidores() throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (coalescidas() < SEGUIDORES) {
+            assertTrue(System.nanoTime() < limite, "los seguidores no se sumaron al vuelo");
+            Thread.sleep(5);
+        }
+    }
+
+    /** Lanza al líder y a los seguidores sobre la misma clave; el líder queda bloqueado hasta {@code liberar}. */
+    private List<Future<String>> lanzar(Supplier<String> llamada, CountDownLatch liderAdentro) throws InterruptedException {
+        List<Future<String>> resultados = new ArrayList<>();
+        resultados.add(pool.submit(() -> singleFlight.execute("k", llamada)));
+        assertTrue(liderAdentro.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < SEGUIDORES; i++) {
+            resultados.add(pool.submit(() -> singleFlight.execute("k", llamada)));
+        }
+        esperarSeguidores();
+        return resultados;
+    }
+
+    @Test
+    @DisplayName("Los seguidores comparten la única llamada del líder y se cuentan como coalescidas")
+    void seguidoresCompartenLlamada() throws Exception {
+        AtomicInteger llamadas = new AtomicInteger();
+        CountDownLatch liderAdentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        List<Future<String>> resultados = lanzar(() -> {
+            llamadas.incrementAndGet();
+            liderAdentro.countDown();
+            await(liberar);
+            return "valor";
+        }, liderAdentro);
+        liberar.countDown();
+
+        for (Future<String> f : resultados) assertEquals("valor", f.get(10, TimeUnit.SECONDS));
+        assertEquals(1, llamadas.get());
+        assertEquals(SEGUIDORES, coalescidas());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    @DisplayName("El error del líder llega a todos los seguidores con su tipo original")
+    void errorDelLiderLlegaATodos() throws Exception {
+        IllegalArgumentException falla = new IllegalArgumentException("remoto caído");
+        AtomicInteger llamadas = new AtomicInteger();
+        CountDownLatch liderAdentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        List<Future<String>> resultados = lanzar(() -> {
+            llamadas.incrementAndGet();
+            liderAdentro.countDown();
+            await(liberar);
+            throw falla;
+        }, liderAdentro);
+        liberar.countDown();
+
+        for (Future<String> f : resultados) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(10, TimeUnit.SECONDS));
+            assertSame(falla, e.getCause());
+        }
+        assertEquals(1, llamadas.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    @DisplayName("executeAsync completa el future aunque el supplier lance un Error")
+    void asyncCompletaConThrowable() {
+        AssertionError error = new AssertionError("boom");
+
+        CompletableFuture<String> f = singleFlight.executeAsync("k", () -> { throw error; });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+        assertSame(error, e.getCause());
+        assertEquals(0, singleFlight.inFlight());
+
+        // la clave quedó libre: la próxima llamada ejecuta de nuevo
+        assertEquals("ok", singleFlight.executeAsync("k", () -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    @Test
+    @DisplayName("executeAsync comparte el future en curso y propaga su fallo a los seguidores")
+    void asyncCoalesceYPropagaFallo() {
+        CompletableFuture<String> remoto = new CompletableFuture<>();
+        AtomicInteger llamadas = new AtomicInteger();
+        Supplier<CompletableFuture<String>> llamada = () -> {
+            llamadas.incrementAndGet();
+            return remoto;
+        };
+
+        CompletableFuture<String> lider = singleFlight.executeAsync("k", llamada);
+        CompletableFuture<String> seguidor = singleFlight.executeAsync("k", llamada);
+        assertEquals(1, singleFlight.inFlight());
+
+        IllegalStateException falla = new IllegalStateException("503");
+        remoto.completeExceptionally(falla);
+
+        for (CompletableFuture<String> f : List.of(lider, seguidor)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertEquals(1, llamadas.get());
+        assertEquals(1, coalescidas());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ar.edu.utn.dds.k3003.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ar.edu.utn.dds.k3003.facades.dtos.PdIResumenDTO;
+import ar.edu.utn.dds.k3003.model.PdI;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class InMemoryPdIRepoTest {
+
+    private final InMemoryPdIRepo repo = new InMemoryPdIRepo();
+
+    private static PdI pdi(String hechoId, String imageUrl) {
+        return new PdI(hechoId, "desc", "lugar", null, "contenido", imageUrl);
+    }
+
+    private static String hash(String imageUrl) {
+        return PdI.hashImageUrl(imageUrl);
+    }
+
+    @Test
+    @DisplayName("save es upsert: cambiar hechoId o imageUrl reubica los índices sin duplicar")
+    void upsertReindexa() {
+        PdI p = repo.save(pdi("h1", "http://img/a.jpg"));
+        Long id = p.getId();
+
+        p.setHechoId("h2");
+        p.setImageUrl("http://img/b.jpg");
+        assertSame(p, repo.save(p));
+
+        assertEquals(id, p.getId());
+        assertEquals(1, repo.findAll().size());
+        assertEquals(List.of(), repo.findByHechoId("h1"));
+        assertEquals(List.of(p), repo.findByHechoId("h2"));
+        assertNull(repo.findByHechoIdAndImageUrlHash("h1", hash("http://img/a.jpg")));
+        assertSame(p, repo.findByHechoIdAndImageUrlHash("h2", hash("http://img/b.jpg")));
+
+        // la clave vieja quedó libre
+        PdI otro = repo.save(pdi("h1", "http://img/a.jpg"));
+        assertSame(otro, repo.findByHechoIdAndImageUrlHash("h1", hash("http://img/a.jpg")));
+    }
+
+    @Test
+    @DisplayName("Un (hechoId, imageUrl) duplicado lanza DataIntegrityViolationException sin tocar los índices")
+    void duplicadoNoTocaIndices() {
+        PdI original = repo.save(pdi("h1", "http://img/a.jpg"));
+        PdI otro = repo.save(pdi("h1", "http://img/b.jpg"));
+
+        PdI duplicado = pdi("h1", "http://img/a.jpg");
+        assertThrows(DataIntegrityViolationException.class, () -> repo.save(duplicado));
+        assertTrue(repo.findById(duplicado.getId()).isEmpty());
+
+        // un update que choca con otra imagen tampoco mueve nada
+        otro.setImageUrl("http://img/a.jpg");
+        assertThrows(DataIntegrityViolationException.class, () -> repo.save(otro));
+
+        assertEquals(2, repo.findAll().size());
+        assertEquals(2, repo.findByHechoId("h1").size());
+        assertSame(original, repo.findByHechoIdAndImageUrlHash("h1", hash("http://img/a.jpg")));
+        assertEquals(otro.getId(), repo.findByHechoIdAndImageUrlHash("h1", hash("http://img/b.jpg")).getId());
+    }
+
+    @Test
+    @DisplayName("Saves concurrentes desde varios threads reciben ids únicos y quedan todos indexados")
+    void idsUnicosConcurrentes() throws Exception {
+        int threads = 8;
+        int porThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<List<Long>>> resultados = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int hilo = t;
+                Callable<List<Long>> tarea = () -> {
+                    largada.await();
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < porThread; i++) {
+                        ids.add(repo.save(pdi("h" + (i % 10), "http://img/" + hilo + "-" + i + ".jpg")).getId());
+                    }
+                    return ids;
+                };
+                resultados.add(pool.submit(tarea));
+            }
+            largada.countDown();
+
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> f : resultados) ids.addAll(f.get(30, TimeUnit.SECONDS));
+
+            assertEquals(threads * porThread, ids.size());
+            assertEquals(threads * porThread, repo.findAll().size());
+            assertEquals(threads * porThread / 10, repo.findByHechoId("h3").size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Con el mismo (hechoId, imageUrl) en paralelo sólo uno se guarda")
+    void duplicadoConcurrente() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                resultados.add(pool.submit(() -> {
+                    largada.await();
+                    try {
+                        repo.save(pdi("h1", "http://img/misma.jpg"));
+                        return true;
+                    } catch (DataIntegrityViolationException e) {
+                        return false;
+                    }
+                }));
+            }
+            largada.countDown();
+
+            int guardados = 0;
+            for (Future<Boolean> f : resultados) if (f.get(30, TimeUnit.SECONDS)) guardados++;
+
+            assertEquals(1, guardados);
+            assertEquals(1, repo.findAll().size());
+            assertEquals(1, repo.findByHechoId("h1").size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("findResumenesPorHechoDesde pagina por cursor (id) dentro del hecho")
+    void keysetPorHecho() {
+        List<Long> deH1 = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            deH1.add(repo.save(pdi("h1", "http://img/h1-" + i + ".jpg")).getId());
+            repo.save(pdi("h2", "http://img/h2-" + i + ".jpg"));
+        }
+
+        List<PdIResumenDTO> primera = repo.findResumenesPorHechoDesde("h1", 0L, Limit.of(2));
+        assertEquals(deH1.subList(0, 2), primera.stream().map(PdIResumenDTO::id).toList());
+
+        Long cursor = primera.get(primera.size() - 1).id();
+        List<PdIResumenDTO> segunda = repo.findResumenesPorHechoDesde("h1", cursor, Limit.of(2));
+        assertEquals(deH1.subList(2, 4), segunda.stream().map(PdIResumenDTO::id).toList());
+
+        cursor = segunda.get(segunda.size() - 1).id();
+        List<PdIResumenDTO> ultima = repo.findResumenesPorHechoDesde("h1", cursor, Limit.of(2));
+        assertEquals(deH1.subList(4, 5), ultima.stream().map(PdIResumenDTO::id).toList());
+        assertTrue(ultima.stream().allMatch(r -> "h1".equals(r.hechoId())));
+
+        assertEquals(List.of(), repo.findResumenesPorHechoDesde("h1", deH1.get(4), Limit.of(2)));
+        assertEquals(List.of(), repo.findResumenesPorHechoDesde("otro", 0L, Limit.of(2)));
+    }
+}
@@ -0,0 +1,138 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ar.edu.utn.dds.k3003.resilience.CircuitBreaker.Estado;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+class CircuitBreakerTest {
+
+    private static final long RAPIDA = Duration.ofMillis(10).toNanos();
+    private static final long LENTA = Duration.ofSeconds(2).toNanos();
+
+    private final List<Estado> transiciones = new ArrayList<>();
+
+    private CircuitBreaker breaker(Duration esperaAbierto) {
+        // ventana 4, mínimo 4 llamadas, 50% fallas o 75% lentas (>= 1s), 2 llamadas de prueba
+        return new CircuitBreaker("test",
+                new CircuitBreaker.Config(4, 4, 50, Duration.ofSeconds(1), 75, esperaAbierto, 2),
+                transiciones::add);
+    }
+
+    private static void llamar(CircuitBreaker b, boolean fallo, long duracion) {
+        assertTrue(b.permitir());
+        b.registrar(fallo, duracion);
+    }
+
+    @Test
+    @DisplayName("Con menos llamadas que el mínimo no abre aunque todas fallen")
+    void minimoDeLlamadas() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 3; i++) llamar(b, true, RAPIDA);
+
+        assertEquals(Estado.CERRADO, b.estado());
+        assertEquals(100.0, b.tasaFallas());
+    }
+
+    @Test
+    @DisplayName("Abre al llegar al umbral de fallas y rechaza mientras está abierto")
+    void abrePorFallas() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        llamar(b, false, RAPIDA);
+        llamar(b, true, RAPIDA);
+        llamar(b, false, RAPIDA);
+        llamar(b, true, RAPIDA);
+
+        assertEquals(Estado.ABIERTO, b.estado());
+        assertFalse(b.permitir());
+        assertFalse(b.disponible());
+        assertEquals(List.of(Estado.ABIERTO), transiciones);
+    }
+
+    @Test
+    @DisplayName("Las llamadas lentas también lo abren, aunque no fallen")
+    void abrePorLentas() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        llamar(b, false, LENTA);
+        llamar(b, false, LENTA);
+        llamar(b, false, RAPIDA);
+        llamar(b, false, LENTA);
+
+        assertEquals(Estado.ABIERTO, b.estado());
+    }
+
+    @Test
+    @DisplayName("La ventana es deslizante: las fallas viejas salen")
+    void ventanaDeslizante() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        llamar(b, true, RAPIDA);
+        for (int i = 0; i < 6; i++) llamar(b, false, RAPIDA);
+
+        assertEquals(Estado.CERRADO, b.estado());
+        assertEquals(0.0, b.tasaFallas());
+    }
+
+    @Test
+    @DisplayName("Vencida la espera pasa a SEMI_ABIERTO y sólo deja pasar las llamadas de prueba")
+    void semiAbiertoLimitaPruebas() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) llamar(b, true, RAPIDA);
+
+        assertEquals(Estado.SEMI_ABIERTO, b.estado());
+        assertTrue(b.permitir());
+        assertTrue(b.permitir());
+        assertFalse(b.permitir());
+        assertFalse(b.disponible());
+
+        // Un permiso devuelto (p.ej. bulkhead lleno) libera su lugar de prueba
+        b.cancelar();
+        assertTrue(b.permitir());
+    }
+
+    @Test
+    @DisplayName("Pruebas exitosas cierran el circuito y limpian la ventana")
+    void pruebasExitosasCierran() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) llamar(b, true, RAPIDA);
+
+        llamar(b, false, RAPIDA);
+        llamar(b, false, RAPIDA);
+
+        assertEquals(Estado.CERRADO, b.estado());
+        assertEquals(0.0, b.tasaFallas());
+        assertEquals(List.of(Estado.ABIERTO, Estado.SEMI_ABIERTO, Estado.CERRADO), transiciones);
+    }
+
+    @Test
+    @DisplayName("Pruebas que fallan vuelven a abrirlo")
+    void pruebasFallidasReabren() {
+        CircuitBreaker b = breaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) llamar(b, true, RAPIDA);
+
+        llamar(b, true, RAPIDA);
+        llamar(b, false, RAPIDA);
+
+        assertEquals(List.of(Estado.ABIERTO, Estado.SEMI_ABIERTO, Estado.ABIERTO), transiciones);
+    }
+
+    @Test
+    @DisplayName("Resultados que llegan con el circuito abierto se ignoran")
+    void resultadosTardios() {
+        CircuitBreaker b = breaker(Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++) llamar(b, true, RAPIDA);
+
+        b.registrar(false, RAPIDA);
+        b.registrar(false, RAPIDA);
+
+        assertEquals(Estado.ABIERTO, b.estado());
+        assertEquals(100.0, b.tasaFallas());
+    }
+}
@@ -0,0 +1,65 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ar.edu.utn.dds.k3003.exceptions.infrastructure.resilience.DependenciaNoDisponibleException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+class ProteccionDependenciaTest {
+
+    private final Dependencias dependencias = new Dependencias(
+            new MockEnvironment()
+                    .withProperty("resilience.default.window-size", "4")
+                    .withProperty("resilience.default.min-calls", "4")
+                    .withProperty("resilience.default.max-concurrent", "2"),
+            new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("El clasificador lo fija el primer cliente; otro distinto se rechaza")
+    void clasificadorFijo() {
+        Predicate<Throwable> esFalla = e -> !(e instanceof NoSuchElementException);
+
+        dependencias.obtener("x");                                   // p.ej. un provider que sólo mira disponible()
+        ProteccionDependencia p = dependencias.obtener("x", esFalla);
+        assertDoesNotThrow(() -> dependencias.obtener("x", esFalla));
+        assertThrows(IllegalStateException.class, () -> dependencias.obtener("x", e -> true));
+
+        // Los 404 de negocio no abren el circuito
+        for (int i = 0; i < 4; i++) {
+            assertThrows(NoSuchElementException.class, () -> p.ejecutar(() -> {
+                throw new NoSuchElementException("no existe");
+            }));
+        }
+        assertEquals(CircuitBreaker.Estado.CERRADO, p.estado());
+    }
+
+    @Test
+    @DisplayName("Executor lleno: falla sin bloquear, devuelve el permiso y no cuenta como falla")
+    void executorLleno() {
+        ProteccionDependencia p = dependencias.obtener("y", e -> true);
+
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> f = p.ejecutarEn(() -> "ok", tarea -> {
+                throw new RejectedExecutionException("lleno");
+            });
+            ExecutionException e = assertThrows(ExecutionException.class, f::get);
+            assertInstanceOf(DependenciaNoDisponibleException.class, e.getCause());
+        }
+
+        assertEquals(CircuitBreaker.Estado.CERRADO, p.estado());
+        assertEquals("ok", p.ejecutar(() -> "ok"));   // los permisos del bulkhead volvieron
+    }
+}
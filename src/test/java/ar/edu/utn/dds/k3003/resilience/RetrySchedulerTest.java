@@ -0,0 +1,63 @@
+package ar.edu.utn.dds.k3003.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RetrySchedulerTest {
+
+    private final RetryScheduler retry = new RetryScheduler(new SimpleMeterRegistry(), 50, 0.0, 1.0, 100);
+
+    @AfterEach
+    void cerrar() {
+        retry.cerrar();
+    }
+
+    @Test
+    @DisplayName("Executor lleno: falla en el acto, sin reintentar")
+    void executorLleno() {
+        AtomicInteger intentos = new AtomicInteger();
+        CompletableFuture<String> f = retry.ejecutar("test", retry.politica(3, 1), e -> true,
+                () -> "ok", tarea -> {
+                    intentos.incrementAndGet();
+                    throw new RejectedExecutionException("lleno");
+                });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, intentos.get());
+    }
+
+    @Test
+    @DisplayName("Los reintentos no corren en el thread del timer")
+    void reintentosFueraDelTimer() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        AtomicInteger intentos = new AtomicInteger();
+
+        CompletableFuture<String> f = retry.ejecutar("test", retry.politica(3, 1), e -> true, () -> {
+            threads.add(Thread.currentThread().getName());
+            return intentos.incrementAndGet() < 3
+                    ? CompletableFuture.failedFuture(new IllegalStateException("falla " + intentos.get()))
+                    : CompletableFuture.completedFuture("ok");
+        });
+
+        assertEquals("ok", f.get(2, TimeUnit.SECONDS));
+        assertEquals(3, threads.size());
+        assertFalse(threads.stream().anyMatch(t -> t.equals("retry-timer")), threads.toString());
+    }
+}
@@ -0,0 +1,212 @@
+package ar.edu.utn.dds.k3003.services.ingesta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ar.edu.utn.dds.k3003.app.Fachada;
+import ar.edu.utn.dds.k3003.controller.dtos.PdIRequestDTO;
+import ar.edu.utn.dds.k3003.facades.FachadaSolicitudes;
+import ar.edu.utn.dds.k3003.metrics.ProcesamientoMetrics;
+import ar.edu.utn.dds.k3003.model.PdI;
+import ar.edu.utn.dds.k3003.repository.InMemoryPdIRepo;
+import ar.edu.utn.dds.k3003.services.ingesta.IngestaMasivaService.ResultadoItem;
+import ar.edu.utn.dds.k3003.services.pipeline.PdIPipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.ConnectException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class IngestaMasivaServiceTest {
+
+    private static final String HECHO = "h1";
+    private static final int LARGO_MAXIMO = 20;
+
+    /**
+     * InMemoryPdIRepo con lo que agrega la base real: una columna de largo acotado, un saveAll que rechaza
+     * el lote entero (rollback) y, opcionalmente, otro request que inserta la misma imagen justo después
+     * de la consulta de duplicados.
+     */
+    private static class RepoComoLaBase extends InMemoryPdIRepo {
+
+        private String imagenRival;
+
+        @Override
+        public PdI save(PdI pdi) {
+            if (pdi.getDescripcion() != null && pdi.getDescripcion().length() > LARGO_MAXIMO) {
+                throw new DataIntegrityViolationException("value too long for column descripcion");
+            }
+            return super.save(pdi);
+        }
+
+        @Override
+        public <S extends PdI> List<S> saveAll(Iterable<S> pdis) {
+            for (S pdi : pdis) {
+                boolean largo = pdi.getDescripcion() != null && pdi.getDescripcion().length() > LARGO_MAXIMO;
+                PdI existente = findByHechoIdAndImageUrl(pdi.getHechoId(), pdi.getImageUrl());
+                if (largo || (existente != null && !existente.getId().equals(pdi.getId()))) {
+                    throw new DataIntegrityViolationException("lote rechazado");
+                }
+            }
+            return super.saveAll(pdis);
+        }
+
+        @Override
+        public List<PdI> findByHechoIdInAndImageUrlHashIn(Collection<String> hechoIds, Collection<String> hashes) {
+            List<PdI> existentes = super.findByHechoIdInAndImageUrlHashIn(hechoIds, hashes);
+            if (imagenRival != null) {
+                super.save(new PdI(HECHO, "rival", "lugar", null, "contenido", imagenRival));
+                imagenRival = null;
+            }
+            return existentes;
+        }
+    }
+
+    private final RepoComoLaBase repo = new RepoComoLaBase();
+    private final RabbitTemplate rabbit = mock(RabbitTemplate.class);
+    private final RabbitOperations ops = mock(RabbitOperations.class);
+    private final ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+
+    private IngestaMasivaService servicio() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProcesamientoMetrics metricas = new ProcesamientoMetrics(registry);
+        Fachada fachada = new Fachada(repo, mock(PdIPipeline.class), metricas);
+
+        FachadaSolicitudes solicitudes = mock(FachadaSolicitudes.class);
+        when(solicitudes.estanActivos(any())).thenReturn(
+                new FachadaSolicitudes.EstadoHechos(Map.of(HECHO, true), Set.of()));
+
+        when(rabbit.getConnectionFactory()).thenReturn(connectionFactory);
+        when(rabbit.invoke(any())).thenAnswer(inv ->
+                inv.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(ops));
+
+        TransactionTemplate tx = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        return new IngestaMasivaService(solicitudes, fachada, repo, tx, rabbit, metricas, registry, 500, 200);
+    }
+
+    private static PdIRequestDTO item(String descripcion, String imageUrl) {
+        return new PdIRequestDTO(HECHO, descripcion, "lugar", null, "contenido", imageUrl);
+    }
+
+    /** Cada publicación confirma según su orden: ack, nack o nunca (null). */
+    private void confirmar(Boolean... acks) throws Exception {
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        AtomicInteger publicadas = new AtomicInteger();
+        doAnswer(inv -> {
+            Boolean ack = acks[publicadas.getAndIncrement()];
+            if (ack != null) {
+                inv.<CorrelationData>getArgument(4).getFuture()
+                        .complete(new CorrelationData.Confirm(ack, ack ? null : "cola llena"));
+            }
+            return null;
+        }).when(ops).convertAndSend(eq("pdi.direct"), eq("pdi.process"), anyString(),
+                any(MessagePostProcessor.class), any(CorrelationData.class));
+    }
+
+    @Test
+    @DisplayName("Si la base rechaza el lote se registra de a uno: 202 los válidos, 409 el duplicado, 400 el inválido")
+    void loteRechazadoSeRegistraDeAUno() throws Exception {
+        IngestaMasivaService servicio = servicio();
+        when(connectionFactory.isPublisherConfirms()).thenReturn(false);
+        repo.imagenRival = "http://img/b.jpg";
+
+        List<ResultadoItem> resultados = servicio.procesarLote(List.of(
+                item("ok", "http://img/a.jpg"),
+                item("carrera", "http://img/b.jpg"),
+                item("x".repeat(LARGO_MAXIMO + 1), "http://img/c.jpg"),
+                item("ok", "http://img/d.jpg")), 10);
+
+        assertEquals(List.of(202, 409, 400, 202), resultados.stream().map(ResultadoItem::status).toList());
+        assertEquals(List.of(10, 11, 12, 13), resultados.stream().map(ResultadoItem::indice).toList());
+
+        for (int i : new int[]{0, 3}) {
+            ResultadoItem r = resultados.get(i);
+            assertEquals(PdI.ProcessingState.PENDING, r.estado());
+            PdI guardado = repo.findById(Long.valueOf(r.pdiId())).orElseThrow();
+            assertEquals(PdI.ProcessingState.PENDING, guardado.getProcessingState());
+        }
+        for (int i : new int[]{1, 2}) {
+            assertNull(resultados.get(i).pdiId());
+            assertEquals(PdI.ProcessingState.ERROR, resultados.get(i).estado());
+        }
+        assertEquals("rival", repo.findByHechoIdAndImageUrl(HECHO, "http://img/b.jpg").getDescripcion());
+        assertNull(repo.findByHechoIdAndImageUrl(HECHO, "http://img/c.jpg"));
+        assertEquals(3, repo.findByHechoId(HECHO).size());
+
+        // sólo se publica lo que quedó guardado
+        verify(ops, times(2)).convertAndSend(eq("pdi.direct"), eq("pdi.process"), anyString(),
+                any(MessagePostProcessor.class), any(CorrelationData.class));
+    }
+
+    @Test
+    @DisplayName("Los PdIs con nack o sin confirm del broker quedan en ERROR y se informan con 500")
+    void nackYSinConfirmQuedanEnError() throws Exception {
+        IngestaMasivaService servicio = servicio();
+        confirmar(true, false, null);
+
+        List<ResultadoItem> resultados = servicio.procesarLote(List.of(
+                item("ack", "http://img/a.jpg"),
+                item("nack", "http://img/b.jpg"),
+                item("sin confirm", "http://img/c.jpg")), 0);
+
+        assertEquals(List.of(202, 500, 500), resultados.stream().map(ResultadoItem::status).toList());
+        assertEquals(List.of(PdI.ProcessingState.PENDING, PdI.ProcessingState.ERROR, PdI.ProcessingState.ERROR),
+                resultados.stream().map(ResultadoItem::estado).toList());
+
+        PdI ack = repo.findById(Long.valueOf(resultados.get(0).pdiId())).orElseThrow();
+        PdI nack = repo.findById(Long.valueOf(resultados.get(1).pdiId())).orElseThrow();
+        PdI sinConfirm = repo.findById(Long.valueOf(resultados.get(2).pdiId())).orElseThrow();
+
+        assertEquals(PdI.ProcessingState.PENDING, ack.getProcessingState());
+        assertNull(ack.getLastError());
+        assertEquals(PdI.ProcessingState.ERROR, nack.getProcessingState());
+        assertTrue(nack.getLastError().contains("nack"), nack.getLastError());
+        assertEquals(PdI.ProcessingState.ERROR, sinConfirm.getProcessingState());
+        assertTrue(sinConfirm.getLastError().contains("sin confirm"), sinConfirm.getLastError());
+    }
+
+    @Test
+    @DisplayName("Si no se puede abrir el canal, todo el lote guardado queda en ERROR con 500")
+    void sinCanalTodoEnError() {
+        IngestaMasivaService servicio = servicio();
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        doThrow(new AmqpConnectException(new ConnectException("refused"))).when(rabbit).invoke(any());
+
+        List<ResultadoItem> resultados = servicio.procesarLote(List.of(
+                item("uno", "http://img/a.jpg"),
+                item("dos", "http://img/b.jpg")), 0);
+
+        for (ResultadoItem r : resultados) {
+            assertEquals(500, r.status());
+            assertNotNull(r.pdiId());
+            assertEquals(PdI.ProcessingState.ERROR,
+                    repo.findById(Long.valueOf(r.pdiId())).orElseThrow().getProcessingState());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ar.edu.utn.dds.k3003.services.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ar.edu.utn.dds.k3003.model.NotificacionFuentes;
+import ar.edu.utn.dds.k3003.services.outbox.FuentesOutboxDispatcher.Clave;
+import ar.edu.utn.dds.k3003.services.outbox.FuentesOutboxDispatcher.Coalescing;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+class FuentesOutboxDispatcherTest {
+
+    private static NotificacionFuentes notificacion(long id, String hechoId, String pdiId) {
+        NotificacionFuentes n = new NotificacionFuentes(hechoId, pdiId, "{\"pdi_id\":\"" + pdiId + "\"}");
+        n.setId(id);
+        return n;
+    }
+
+    private static List<Long> ids(List<NotificacionFuentes> notificaciones) {
+        return notificaciones.stream().map(NotificacionFuentes::getId).toList();
+    }
+
+    @Test
+    @DisplayName("PdIs distintos del mismo hecho se envían todos")
+    void variosPdisDelMismoHecho() {
+        List<NotificacionFuentes> tomadas = List.of(
+                notificacion(1, "h1", "p1"),
+                notificacion(2, "h1", "p2"),
+                notificacion(3, "h1", "p3"));
+
+        Coalescing c = FuentesOutboxDispatcher.coalescer(tomadas, Map.of(
+                new Clave("h1", "p1"), 1L, new Clave("h1", "p2"), 2L, new Clave("h1", "p3"), 3L));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(c.aEnviar()));
+        assertEquals(List.of(), ids(c.superadas()));
+    }
+
+    @Test
+    @DisplayName("Del mismo PdI sólo sale la más nueva del lote")
+    void mismoPdiEnElLote() {
+        List<NotificacionFuentes> tomadas = List.of(
+                notificacion(1, "h1", "p1"),
+                notificacion(2, "h1", "p2"),
+                notificacion(4, "h1", "p1"));
+
+        Coalescing c = FuentesOutboxDispatcher.coalescer(tomadas, Map.of(
+                new Clave("h1", "p1"), 4L, new Clave("h1", "p2"), 2L));
+
+        assertEquals(List.of(2L, 4L), ids(c.aEnviar()));
+        assertEquals(List.of(1L), ids(c.superadas()));
+    }
+
+    @Test
+    @DisplayName("Si hay una más nueva pendiente fuera del lote, la tomada queda superada")
+    void masNuevaFueraDelLote() {
+        List<NotificacionFuentes> tomadas = List.of(
+                notificacion(1, "h1", "p1"),
+                notificacion(2, "h1", "p2"));
+
+        // p1 tiene la 7 todavía en la ventana de coalescing
+        Coalescing c = FuentesOutboxDispatcher.coalescer(tomadas, Map.of(
+                new Clave("h1", "p1"), 7L, new Clave("h1", "p2"), 2L));
+
+        assertEquals(List.of(2L), ids(c.aEnviar()));
+        assertEquals(List.of(1L), ids(c.superadas()));
+    }
+
+    @Test
+    @DisplayName("Notificaciones sin pdiId se agrupan entre sí, no con las de un PdI")
+    void sinPdiId() {
+        List<NotificacionFuentes> tomadas = List.of(
+                notificacion(1, "h1", null),
+                notificacion(2, "h1", null),
+                notificacion(3, "h1", "p1"));
+
+        Coalescing c = FuentesOutboxDispatcher.coalescer(tomadas, Map.of());
+
+        assertEquals(List.of(2L, 3L), ids(c.aEnviar()));
+        assertEquals(List.of(1L), ids(c.superadas()));
+    }
+}
@@ -0,0 +1,91 @@
+package ar.edu.utn.dds.k3003.services.tagging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+class OcrTokenizerTest {
+
+    private static OcrTokenizer tokenizer(int topK, boolean foldAccents) {
+        return new OcrTokenizer(List.of("el", "la", "de", "y", "él"), 3, topK, foldAccents);
+    }
+
+    @Test
+    @DisplayName("Top-K por frecuencia; el empate lo gana el que apareció primero")
+    void topKConDesempate() {
+        String texto = "gato perro gato loro perro gato pez loro";
+
+        assertEquals(List.of("gato", "perro", "loro"), tokenizer(3, true).topTokens(texto));
+        assertEquals(List.of("gato", "perro"), tokenizer(2, true).topTokens(texto));
+        // perro y loro empatan en 2: queda perro, que apareció antes
+        assertEquals(List.of("gato", "perro", "loro", "pez"), tokenizer(10, true).topTokens(texto));
+    }
+
+    @Test
+    @DisplayName("Mayúsculas y acentos se pliegan al mismo token")
+    void plegadoDeAcentos() {
+        String texto = "Canción CANCIÓN cancion Niño nino año";
+
+        assertEquals(List.of("cancion", "nino", "ano"), tokenizer(10, true).topTokens(texto));
+    }
+
+    @Test
+    @DisplayName("Sin plegado, la versión acentuada es otro token (sólo se pasa a minúsculas)")
+    void sinPlegado() {
+        String texto = "Canción CANCIÓN cancion";
+
+        assertEquals(List.of("canción", "cancion"), tokenizer(10, false).topTokens(texto));
+    }
+
+    @Test
+    @DisplayName("Stop-words y largo mínimo; las stop-words se normalizan igual que el texto")
+    void stopWordsYLargoMinimo() {
+        // "él" como stop-word también descarta "EL" con el plegado
+        OcrTokenizer t = new OcrTokenizer(List.of(" del ", "él"), 2, 10, true);
+
+        assertEquals(List.of("casa", "mar"), t.topTokens("DEL casa EL mar x Él del"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "--- !!! ...", "a b c"})
+    @DisplayName("Sin tokens válidos devuelve una lista vacía")
+    void sinTokens(String texto) {
+        assertEquals(List.of(), tokenizer(5, true).topTokens(texto));
+    }
+
+    @Test
+    @DisplayName("Con muchos términos distintos coincide con un conteo directo (crecimiento de la tabla y del heap)")
+    void coincideConConteoDirecto() {
+        Random random = new Random(42);
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            // distribución sesgada: pocos términos muy repetidos y una cola larga de únicos
+            int termino = (int) Math.floor(Math.pow(random.nextDouble(), 3) * 3_000);
+            texto.append("pal").append(termino).append(i % 7 == 0 ? ", " : " ");
+        }
+
+        assertEquals(topDirecto(texto.toString(), 25), tokenizer(25, true).topTokens(texto));
+    }
+
+    // Referencia simple: split + LinkedHashMap (orden de aparición) + orden estable por cuenta
+    private static List<String> topDirecto(String texto, int k) {
+        Map<String, Integer> cuentas = new LinkedHashMap<>();
+        for (String token : texto.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() >= 3) cuentas.merge(token, 1, Integer::sum);
+        }
+        List<Map.Entry<String, Integer>> entradas = new ArrayList<>(cuentas.entrySet());
+        entradas.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()));
+        return entradas.stream().limit(k).map(Map.Entry::getKey).toList();
+    }
+}